@@ -1,11 +1,27 @@
 package com.airtribe.meditrack;
 
+import com.airtribe.meditrack.cli.BatchRunner;
 import com.airtribe.meditrack.constants.*;
 import com.airtribe.meditrack.entity.*;
 import com.airtribe.meditrack.exception.*;
+import com.airtribe.meditrack.http.ApiServer;
+import com.airtribe.meditrack.persistence.AppointmentArchive;
+import com.airtribe.meditrack.persistence.DurableStore;
+import com.airtribe.meditrack.persistence.LogFollower;
+import com.airtribe.meditrack.persistence.binary.BinaryDataStore;
+import com.airtribe.meditrack.persistence.csv.CsvBulkImporter;
+import com.airtribe.meditrack.persistence.excel.ExcelRosterImporter;
+import com.airtribe.meditrack.persistence.invoice.InvoiceRenderer;
+import com.airtribe.meditrack.persistence.json.JsonDataStore;
 import com.airtribe.meditrack.service.*;
-
-import java.io.FileOutputStream;
+import com.airtribe.meditrack.store.EntityStore;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -40,6 +56,18 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
  * Command-Line Mode:
  *   java com.airtribe.meditrack.Main --help
  *   java com.airtribe.meditrack.Main --demo
+ *
+ * Durable Mode (state survives restarts):
+ *   java com.airtribe.meditrack.Main --durable
+ *
+ * Server Mode (JSON API over HTTP, combinable with --durable):
+ *   java com.airtribe.meditrack.Main --serve [port]
+ *
+ * Batch Mode (runs a command script, "-" reads standard input):
+ *   java com.airtribe.meditrack.Main --batch commands.txt
+ *
+ * Read Replica (follows a --durable primary's data directory, serves reads only):
+ *   java com.airtribe.meditrack.Main --follow [dir] --serve [port]
  * </pre>
  * 
  * @author MediTrack Development Team
@@ -67,6 +95,12 @@ public class Main {
     /** Scanner for reading user input from console */
     private static final Scanner scanner = new Scanner(System.in);
 
+    /** Write-ahead log and snapshots; only set in --durable mode */
+    private static DurableStore durableStore;
+
+    /** Applies the primary's log to the services; only set in --follow mode */
+    private static LogFollower logFollower;
+
     /**
      * Main entry point for the MediTrack application.
      * 
@@ -76,17 +110,41 @@ public class Main {
      *   <li>--help, -h: Displays help information</li>
      *   <li>--demo: Runs demonstration with sample data</li>
      *   <li>--version, -v: Shows version information</li>
+     *   <li>--durable: Recovers state from the data directory and logs every change</li>
+     *   <li>--serve [port]: Serves the JSON API instead of the menu</li>
+     *   <li>--batch &lt;file|-&gt;: Runs a command script without the menu</li>
+     *   <li>--follow [dir]: Replicates a primary's data directory; requires --serve</li>
      * </ul>
      * 
      * @param args Command line arguments for controlling application behavior
      */
     public static void main(String[] args) {
-        // Load default sample data at startup
-        initializeDefaultData();
+        // No event bus is set: the CLI and API have no event consumers
+        appointmentService.setPatientService(patientService);
+
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        int follow = options.indexOf("--follow");
+        if (follow >= 0) {
+            options.remove(follow);
+            String directory = follow < options.size() && !options.get(follow).startsWith("--")
+                    ? options.remove(follow) : Constants.DATA_DIRECTORY;
+            if (options.isEmpty() || !options.get(0).equals("--serve")) {
+                // Anything but the read-only API could write to the replica's services
+                System.out.println("--follow must be combined with --serve and nothing else");
+                return;
+            }
+            enableFollower(Path.of(directory));
+        } else if (options.remove("--durable")) {
+            // Recover from snapshot + log; fall back to default data on first start
+            enableDurability();
+        } else {
+            // Load default sample data at startup
+            initializeDefaultData();
+        }
         
         // Handle command-line arguments
-        if (args.length > 0) {
-            handleCommandLineArgs(args);
+        if (!options.isEmpty()) {
+            handleCommandLineArgs(options.toArray(new String[0]));
             return;
         }
 
@@ -110,6 +168,13 @@ public class Main {
                     case 8 -> downloadSummuryBills();
                     case 9 -> getAllDoctorsData();
                     case 10 -> getAllPatientsData();
+                    case 11 -> saveJsonData();
+                    case 12 -> loadJsonData();
+                    case 13 -> bulkImportCsv();
+                    case 14 -> importPatientRoster();
+                    case 15 -> renderInvoices();
+                    case 16 -> saveBinaryData();
+                    case 17 -> loadBinaryData();
                     case 0 -> {
                         running = false;
                         System.out.println("\n👋 Exiting MediTrack. Thank you for using our system!");
@@ -138,6 +203,8 @@ public class Main {
             case "--help", "-h" -> printHelp();
             case "--version", "-v" -> printVersion();
             case "--demo" -> runDemo();
+            case "--serve" -> startServer(args.length > 1 ? Integer.parseInt(args[1]) : Constants.HTTP_PORT);
+            case "--batch" -> runBatch(args.length > 1 ? args[1] : "-");
             default -> {
                 System.out.println("Unknown command: " + command);
                 System.out.println("Use --help for usage information");
@@ -145,6 +212,119 @@ public class Main {
         }
     }
 
+    /**
+     * Starts the HTTP API on {@code port} and returns; the server's dispatcher thread keeps
+     * the JVM running until it is shut down, which stops the server first.
+     *
+     * @see ApiServer
+     */
+    private static void startServer(int port) {
+        ApiServer server;
+        try {
+            server = new ApiServer(new InetSocketAddress(port),
+                    doctorService, patientService, appointmentService, billService);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot listen on port " + port + ": " + e.getMessage(), e);
+        }
+        if (logFollower != null) {
+            server.setReplica(logFollower);
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "meditrack-http-shutdown"));
+        System.out.println("🌐 MediTrack API listening on http://localhost:" + server.getPort() + "/api/"
+                + (logFollower != null ? " (read-only replica)" : ""));
+    }
+
+    /**
+     * Runs the command script in {@code source} ({@code -} for standard input) and writes the
+     * results to standard output through one large buffer, flushed when the script ends.
+     *
+     * @see BatchRunner
+     */
+    private static void runBatch(String source) {
+        BatchRunner runner = new BatchRunner(doctorService, patientService, appointmentService, billService);
+        try (InputStream in = source.equals("-") ? System.in : Files.newInputStream(Path.of(source));
+             BufferedReader script = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                     Constants.BATCH_BUFFER_SIZE)) {
+            // Not closed: closing would close standard output
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                    StandardCharsets.UTF_8), Constants.BATCH_BUFFER_SIZE);
+            runner.run(script, out);
+        } catch (IOException e) {
+            System.err.println("❌ Error running batch script: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the durable store in {@link Constants#DATA_DIRECTORY}.
+     *
+     * <p>Loads the newest snapshot and the deltas written after it, replays the rest of the
+     * write-ahead log and attaches the log to all services. Checkpoints of the changed
+     * entities are taken periodically and once more on shutdown, so the next start only has
+     * to replay a short log tail.</p>
+     *
+     * <p>Closed appointments older than {@link Constants#ARCHIVE_AFTER_DAYS} are then moved to
+     * the archive in {@link Constants#APPOINTMENT_ARCHIVE_DIRECTORY}. The archive is attached
+     * before recovery so bills of archived appointments still resolve.</p>
+     */
+    private static void enableDurability() {
+        try {
+            appointmentService.setArchive(AppointmentArchive.open(Path.of(Constants.APPOINTMENT_ARCHIVE_DIRECTORY),
+                    id -> patientService.findById(id).orElse(null)));
+            durableStore = DurableStore.open(Path.of(Constants.DATA_DIRECTORY),
+                    doctorService, patientService, appointmentService, billService);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open data directory: " + e.getMessage(), e);
+        }
+
+        if (durableStore.isRecovered()) {
+            System.out.println("\n✅ Recovered state in " + durableStore.getRecoveryMillis() + " ms ("
+                    + durableStore.getReplayedRecords() + " log records replayed, "
+                    + durableStore.getSkippedRecords() + " skipped)");
+        } else {
+            initializeDefaultData();
+        }
+
+        try {
+            int archived = appointmentService.archiveClosedAppointments(
+                    LocalDateTime.now().minusDays(Constants.ARCHIVE_AFTER_DAYS));
+            if (archived > 0) {
+                System.out.println("📦 Archived " + archived + " closed appointments");
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error archiving appointments: " + e.getMessage());
+        }
+
+        durableStore.startPeriodicSnapshots(Duration.ofMinutes(Constants.SNAPSHOT_INTERVAL_MINUTES));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                durableStore.checkpoint();
+                durableStore.close();
+            } catch (IOException e) {
+                System.err.println("❌ Error saving state: " + e.getMessage());
+            }
+        }, "meditrack-shutdown"));
+    }
+
+    /**
+     * Follows the primary whose data directory is {@code directory}: loads its last
+     * checkpoint, applies its log and keeps polling the log every
+     * {@link Constants#REPLICA_POLL_MILLIS} ms.
+     *
+     * @see LogFollower
+     */
+    private static void enableFollower(Path directory) {
+        try {
+            logFollower = LogFollower.open(directory, doctorService, patientService, appointmentService, billService);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot follow " + directory + ": " + e.getMessage(), e);
+        }
+        LogFollower.Lag lag = logFollower.getLag();
+        System.out.println("\n🔁 Following " + directory + " (" + lag.appliedRecords() + " log records applied)");
+        logFollower.start(Duration.ofMillis(Constants.REPLICA_POLL_MILLIS));
+        Runtime.getRuntime().addShutdownHook(new Thread(logFollower::close, "meditrack-follower-shutdown"));
+    }
+
     /**
      * Prints the welcome banner with application information.
      */
@@ -172,6 +352,13 @@ public class Main {
         System.out.println("8. 📊 Download Bill Summary (Excel)");
         System.out.println("9. 🩺 List All Doctors");
         System.out.println("10. 👤 List All Patients");
+        System.out.println("11. 💾 Save Data (JSON)");
+        System.out.println("12. 📂 Load Data (JSON)");
+        System.out.println("13. 📥 Bulk Import (CSV)");
+        System.out.println("14. 📥 Import Patient Roster (Excel)");
+        System.out.println("15. 🧾 Write Invoice Files");
+        System.out.println("16. 💾 Save Data (Binary)");
+        System.out.println("17. 📂 Load Data (Binary)");
         System.out.println("0. 🚪 Exit");
         System.out.println("=".repeat(40));
         System.out.print("Choose an option: ");
@@ -352,8 +539,10 @@ public class Main {
         
         BillSummary billSummary = new BillSummary();
         
-        billService.getAllBills()
-                .forEach(billSummary::addBill);
+        // Frozen copies from one pinned version: payments landing during the export don't tear it
+        try (EntityStore.Snapshot<Bill> snapshot = billService.openSnapshot()) {
+            snapshot.stream().forEach(billSummary::addBill);
+        }
 
         System.out.println("\n" + "=".repeat(40));
         System.out.println("  Bill Summary");
@@ -468,11 +657,11 @@ public class Main {
         Appointment appointment = appointmentService.findById(appointmentId)
                 .orElseThrow(() -> new AppointmentNotFoundException("Appointment not found"));
 
-        Bill bill = new Bill(billId, appointment, 500.0);
+        Bill bill = new Bill(billId, appointment, Constants.CONSULTATION_FEE);
         billService.createBill(bill);
 
         System.out.println("\n✅ Bill generated successfully");
-        System.out.println("💰 Amount: $500.00");
+        System.out.printf("💰 Amount: $%.2f%n", Constants.CONSULTATION_FEE);
     }
 
     /**
@@ -484,6 +673,11 @@ public class Main {
         System.out.println("\n--- Pay Bill ---");
         System.out.print("Bill ID: ");
         long billId = scanner.nextLong();
+        Optional<Bill> bill = billService.findById(billId);
+        if (bill.isPresent() && bill.get().getStatus() != BillStatus.PENDING) {
+            System.out.println("\n❌ Bill #" + billId + " is already " + bill.get().getStatus());
+            return;
+        }
         billService.payBill(billId);
         System.out.println("\n✅ Payment processed successfully");
     }
@@ -579,6 +773,146 @@ public class Main {
         }
     }
 
+    /**
+     * Saves doctors, patients and appointments to the JSON files configured in {@link Constants}.
+     */
+    private static void saveJsonData() {
+        System.out.println("\n--- Save Data (JSON) ---");
+        JsonDataStore store = new JsonDataStore();
+        long start = System.nanoTime();
+        try {
+            long doctors = store.saveDoctors(doctorService.getAllDoctors());
+            long patients = store.savePatients(patientService.getAllPatients());
+            long appointments = store.saveAppointments(appointmentService.getAllAppointments());
+            System.out.println("✅ Saved " + doctors + " doctor(s), " + patients + " patient(s), "
+                    + appointments + " appointment(s) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.out.println("❌ Error saving data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads doctors, patients and appointments from the JSON files configured in {@link Constants}.
+     * Entities with an existing id are replaced. Loading bypasses the write-ahead log, so in
+     * durable mode a full snapshot is taken right after to make the loaded data survive a restart.
+     */
+    private static void loadJsonData() {
+        System.out.println("\n--- Load Data (JSON) ---");
+        JsonDataStore store = new JsonDataStore();
+        long start = System.nanoTime();
+        try {
+            long doctors = store.loadDoctors(doctorService);
+            long patients = store.loadPatients(patientService, doctorService);
+            long appointments = store.loadAppointments(appointmentService, patientService);
+            System.out.println("✅ Loaded " + doctors + " doctor(s), " + patients + " patient(s), "
+                    + appointments + " appointment(s) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            if (durableStore != null) {
+                Path snapshot = durableStore.snapshot();
+                System.out.println("✅ Loaded data saved in snapshot " + snapshot.getFileName());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("❌ Error loading data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves all four services as binary entity files in {@link Constants#BINARY_DATA_DIRECTORY}.
+     */
+    private static void saveBinaryData() {
+        System.out.println("\n--- Save Data (Binary) ---");
+        BinaryDataStore store = new BinaryDataStore(Path.of(Constants.BINARY_DATA_DIRECTORY));
+        long start = System.nanoTime();
+        try {
+            long records = store.exportAll(doctorService, patientService, appointmentService, billService);
+            System.out.println("✅ Saved " + records + " record(s) to " + store.getDirectory() + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.out.println("❌ Error saving data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the binary entity files in {@link Constants#BINARY_DATA_DIRECTORY}. Like
+     * {@link #loadJsonData()}, entities with an existing id are replaced and durable mode takes
+     * a full snapshot right after.
+     */
+    private static void loadBinaryData() {
+        System.out.println("\n--- Load Data (Binary) ---");
+        BinaryDataStore store = new BinaryDataStore(Path.of(Constants.BINARY_DATA_DIRECTORY));
+        long start = System.nanoTime();
+        try {
+            long records = store.importAll(doctorService, patientService, appointmentService, billService);
+            System.out.println("✅ Loaded " + records + " record(s) from " + store.getDirectory() + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            if (durableStore != null) {
+                Path snapshot = durableStore.snapshot();
+                System.out.println("✅ Loaded data saved in snapshot " + snapshot.getFileName());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("❌ Error loading data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bulk-imports doctors and then patients from CSV files; rejected rows go to
+     * {@code <file>.rejects.csv} next to each input.
+     */
+    private static void bulkImportCsv() {
+        System.out.println("\n--- Bulk Import (CSV) ---");
+        System.out.print("Doctors CSV (blank to skip): ");
+        String doctorsFile = scanner.nextLine().trim();
+        System.out.print("Patients CSV (blank to skip): ");
+        String patientsFile = scanner.nextLine().trim();
+
+        CsvBulkImporter importer = new CsvBulkImporter();
+        try {
+            if (!doctorsFile.isEmpty()) {
+                Path csv = Path.of(doctorsFile);
+                CsvBulkImporter.ImportReport report = importer.importDoctors(csv,
+                        Path.of(doctorsFile + ".rejects.csv"), doctorService);
+                System.out.println("✅ Doctors: " + report);
+            }
+            if (!patientsFile.isEmpty()) {
+                Path csv = Path.of(patientsFile);
+                CsvBulkImporter.ImportReport report = importer.importPatients(csv,
+                        Path.of(patientsFile + ".rejects.csv"), patientService, doctorService);
+                System.out.println("✅ Patients: " + report);
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Error importing CSV: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams a patient roster from an {@code .xlsx} file into the patient service; rejected
+     * rows go to {@code <file>.rejects.csv}.
+     */
+    private static void importPatientRoster() {
+        System.out.println("\n--- Import Patient Roster (Excel) ---");
+        System.out.print("Roster file (.xlsx): ");
+        String file = scanner.nextLine().trim();
+        try {
+            CsvBulkImporter.ImportReport report = new ExcelRosterImporter().importPatients(Path.of(file),
+                    Path.of(file + ".rejects.csv"), patientService, doctorService);
+            System.out.println("✅ Patients: " + report);
+        } catch (IOException e) {
+            System.out.println("❌ Error importing roster: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one invoice file per bill into {@link Constants#BILL_OUTPUT_PATH}.
+     */
+    private static void renderInvoices() {
+        System.out.println("\n--- Write Invoice Files ---");
+        try (InvoiceRenderer renderer = new InvoiceRenderer()) {
+            InvoiceRenderer.RenderReport report = renderer.renderAll(billService.getAllBills());
+            System.out.println("✅ " + report + " -> " + renderer.getDirectory());
+        } catch (IOException e) {
+            System.out.println("❌ Error writing invoices: " + e.getMessage());
+        }
+    }
+
     /**
      * Prints command-line help information.
      */
@@ -591,6 +925,10 @@ public class Main {
         System.out.println("  --help, -h        Show this help message");
         System.out.println("  --version, -v     Display version information");
         System.out.println("  --demo            Run demonstration with sample data");
+        System.out.println("  --durable         Persist all changes to " + Constants.DATA_DIRECTORY + " and recover on restart");
+        System.out.println("  --serve [port]    Serve the JSON API on port " + Constants.HTTP_PORT + " (or [port]) instead of the menu");
+        System.out.println("  --batch <file|->  Run the commands in <file> (or standard input) and print the results");
+        System.out.println("  --follow [dir]    With --serve: read-only replica of the --durable primary in [dir]");
         System.out.println("\nFeatures:");
         System.out.println("  • Doctor management with specialization tracking");
         System.out.println("  • Patient registration and medical records");
@@ -620,26 +958,27 @@ public class Main {
     private static void runDemo() {
         System.out.println("\n🎬 Running MediTrack Demo...\n");
         
-        // Add sample doctor
-        Doctor doctor = new Doctor(1L, "Dr. Demo Smith", 10, Specialization.CARDIOLOGY,
+        // Add sample doctor (ids above the default data, which is already loaded)
+        Doctor doctor = new Doctor(101L, "Dr. Demo Smith", 10, Specialization.CARDIOLOGY,
                 Set.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY),
                 LocalDateTime.now(), java.time.LocalTime.of(9, 0), java.time.LocalTime.of(17, 0));
         doctorService.addDoctor(doctor);
         System.out.println("✅ Added sample doctor: Dr. Demo Smith (Cardiology)");
         
         // Add sample patient
-        Person person = new Person(1L, "Demo Patient", 35, "1234567890");
-        Patient patient = new Patient(1L, person, "MRN001");
+        Person person = new Person(101L, "Demo Patient", 35, "1234567890");
+        Patient patient = new Patient(101L, person, "MRN-DEMO-001");
+        patient.setAssignedDoctors(doctor);
         patientService.addPatient(patient);
         System.out.println("✅ Registered sample patient: Demo Patient");
         
         // Book appointment
-        Appointment appointment = new Appointment(1L, patient, LocalDateTime.now().plusDays(1));
+        Appointment appointment = new Appointment(101L, patient, LocalDateTime.now().plusDays(1));
         appointmentService.bookAppointment(appointment);
         System.out.println("✅ Booked sample appointment for tomorrow");
         
         // Generate bill
-        Bill bill = new Bill(1L, appointment, 500.0);
+        Bill bill = new Bill(101L, appointment, Constants.CONSULTATION_FEE);
         billService.createBill(bill);
         System.out.println("✅ Generated sample bill: $500.00");
         
@@ -721,10 +1060,13 @@ public class Main {
         patientService.assignDoctorToPatient(4L, doctor4);
         patientService.assignDoctorToPatient(5L, doctor5);
         
-        // Initialize Appointments
-        Appointment apt1 = new Appointment(1L, patient1, LocalDateTime.now().plusDays(2).withHour(10).withMinute(0));
-        Appointment apt2 = new Appointment(2L, patient2, LocalDateTime.now().plusDays(3).withHour(14).withMinute(30));
-        Appointment apt3 = new Appointment(3L, patient3, LocalDateTime.now().plusDays(5).withHour(11).withMinute(0));
+        // Initialize Appointments; assigning a doctor stored an updated copy of each patient
+        Appointment apt1 = new Appointment(1L, patientService.findById(1L).orElseThrow(),
+                LocalDateTime.now().plusDays(2).withHour(10).withMinute(0));
+        Appointment apt2 = new Appointment(2L, patientService.findById(2L).orElseThrow(),
+                LocalDateTime.now().plusDays(3).withHour(14).withMinute(30));
+        Appointment apt3 = new Appointment(3L, patientService.findById(3L).orElseThrow(),
+                LocalDateTime.now().plusDays(5).withHour(11).withMinute(0));
         
         appointmentService.bookAppointment(apt1);
         appointmentService.bookAppointment(apt2);
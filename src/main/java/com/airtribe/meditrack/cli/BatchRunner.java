@@ -0,0 +1,330 @@
+package com.airtribe.meditrack.cli;
+
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.entity.*;
+import com.airtribe.meditrack.exception.AppointmentNotFoundException;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.persistence.csv.CsvBulkImporter;
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.BillService;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a command script against the services without the interactive menu.
+ *
+ * <p>One command per line; blank lines and lines starting with {@code #} are skipped.
+ * Arguments are separated by whitespace, and a double-quoted argument may contain spaces:</p>
+ * <pre>
+ * add-doctor  id "name" experience SPECIALIZATION MONDAY;FRIDAY 09:00 17:00
+ * add-patient id "name" age mobileNo mrn [doctorId]
+ * assign      patientId doctorId
+ * book        appointmentId patientId 2025-01-31T10:30 ["notes"]
+ * cancel      appointmentId
+ * bill        billId appointmentId [amount]
+ * pay         billId
+ * get-doctor | get-patient | get-appointment | get-bill  id
+ * list-doctors | list-patients | list-appointments | list-bills
+ * stats
+ * </pre>
+ *
+ * <p>Every command writes one result line ({@code ok ...}, a tab-separated row, or
+ * {@code error <line>: <message>}); a failing command does not stop the script. All output
+ * goes through the one buffered writer passed in, which is flushed only at the end, and the
+ * run finishes with a {@code #} summary line.</p>
+ */
+public class BatchRunner {
+
+    /** Outcome of one script run. */
+    public record Summary(long commands, long failed, long millis) {
+
+        public double commandsPerSecond() {
+            return commands * 1000.0 / Math.max(1, millis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d command(s), %d failed in %d ms (%.0f commands/s)",
+                    commands, failed, millis, commandsPerSecond());
+        }
+    }
+
+    private final DoctorService doctorService;
+    private final PatientService patientService;
+    private final AppointmentService appointmentService;
+    private final BillService billService;
+
+    public BatchRunner(DoctorService doctorService, PatientService patientService,
+                       AppointmentService appointmentService, BillService billService) {
+        this.doctorService = doctorService;
+        this.patientService = patientService;
+        this.appointmentService = appointmentService;
+        this.billService = billService;
+    }
+
+    public Summary run(BufferedReader script, Writer out) throws IOException {
+        long start = System.nanoTime();
+        long commands = 0;
+        long failed = 0;
+        List<String> args = new ArrayList<>(8);
+        long lineNumber = 0;
+        for (String line; (line = script.readLine()) != null; ) {
+            lineNumber++;
+            try {
+                tokenize(line, args);
+                if (args.isEmpty() || args.get(0).startsWith("#")) {
+                    continue;
+                }
+                commands++;
+                execute(args, out);
+            } catch (RuntimeException e) {
+                if (args.isEmpty()) {
+                    commands++; // the line did not even tokenize
+                }
+                failed++;
+                out.write("error ");
+                out.write(Long.toString(lineNumber));
+                out.write(": ");
+                out.write(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                out.write('\n');
+            }
+        }
+        Summary summary = new Summary(commands, failed, (System.nanoTime() - start) / 1_000_000);
+        out.write("# ");
+        out.write(summary.toString());
+        out.write('\n');
+        out.flush();
+        return summary;
+    }
+
+    private void execute(List<String> args, Writer out) throws IOException {
+        String command = args.get(0);
+        switch (command) {
+            case "add-doctor" -> {
+                requireArgs(args, 8, "add-doctor id \"name\" experience SPECIALIZATION days from to");
+                Doctor doctor = CsvBulkImporter.parseDoctor(args.subList(1, 8));
+                doctorService.addDoctor(doctor);
+                ok(out, command, doctor.getId());
+            }
+            case "add-patient" -> {
+                requireArgs(args, 6, "add-patient id \"name\" age mobileNo mrn [doctorId]");
+                // Patient column order: id, personId, name, age, mobileNo, mrn[, doctorId]
+                List<String> fields = new ArrayList<>(7);
+                fields.add(args.get(1));
+                fields.addAll(args.subList(1, args.size()));
+                Patient patient = CsvBulkImporter.parsePatient(fields, id -> doctorService.findById(id).orElse(null));
+                patientService.addPatient(patient);
+                ok(out, command, patient.getId());
+            }
+            case "assign" -> {
+                requireArgs(args, 3, "assign patientId doctorId");
+                long doctorId = id(args.get(2));
+                Doctor doctor = doctorService.findById(doctorId)
+                        .orElseThrow(() -> new InvalidDataException("Doctor not found with ID: " + doctorId));
+                if (!patientService.assignDoctorToPatient(id(args.get(1)), doctor)) {
+                    throw new InvalidDataException("Patient not found with ID: " + args.get(1));
+                }
+                ok(out, command, id(args.get(1)));
+            }
+            case "book" -> {
+                requireArgs(args, 4, "book appointmentId patientId dateTime [\"notes\"]");
+                long patientId = id(args.get(2));
+                Patient patient = patientService.findById(patientId)
+                        .orElseThrow(() -> new InvalidDataException("Patient not found with ID: " + patientId));
+                Appointment appointment = new Appointment(id(args.get(1)), patient, LocalDateTime.parse(args.get(3)));
+                if (args.size() > 4) {
+                    appointment.setNotes(args.get(4));
+                }
+                appointmentService.bookAppointment(appointment);
+                ok(out, command, appointment.getId());
+            }
+            case "cancel" -> {
+                requireArgs(args, 2, "cancel appointmentId");
+                appointmentService.cancelAppointment(id(args.get(1)));
+                ok(out, command, id(args.get(1)));
+            }
+            case "bill" -> {
+                requireArgs(args, 3, "bill billId appointmentId [amount]");
+                long appointmentId = id(args.get(2));
+                Appointment appointment = appointmentService.findById(appointmentId)
+                        .orElseThrow(() -> new AppointmentNotFoundException("Appointment not found with ID: " + appointmentId));
+                double amount = args.size() > 3 ? Double.parseDouble(args.get(3)) : Constants.CONSULTATION_FEE;
+                Bill bill = new Bill(id(args.get(1)), appointment, amount);
+                billService.createBill(bill);
+                ok(out, command, bill.getId());
+            }
+            case "pay" -> {
+                requireArgs(args, 2, "pay billId");
+                billService.markBillPaid(id(args.get(1)));
+                ok(out, command, id(args.get(1)));
+            }
+            case "get-doctor" -> {
+                requireArgs(args, 2, "get-doctor id");
+                writeDoctor(out, doctorService.findById(id(args.get(1)))
+                        .orElseThrow(() -> new InvalidDataException("Doctor not found with ID: " + args.get(1))));
+            }
+            case "get-patient" -> {
+                requireArgs(args, 2, "get-patient id");
+                writePatient(out, patientService.findById(id(args.get(1)))
+                        .orElseThrow(() -> new InvalidDataException("Patient not found with ID: " + args.get(1))));
+            }
+            case "get-appointment" -> {
+                requireArgs(args, 2, "get-appointment id");
+                writeAppointment(out, appointmentService.findById(id(args.get(1)))
+                        .orElseThrow(() -> new AppointmentNotFoundException("Appointment not found with ID: " + args.get(1))));
+            }
+            case "get-bill" -> {
+                requireArgs(args, 2, "get-bill id");
+                writeBill(out, billService.findById(id(args.get(1)))
+                        .orElseThrow(() -> new InvalidDataException("Bill not found with ID: " + args.get(1))));
+            }
+            case "list-doctors" -> {
+                for (Doctor doctor : doctorService.getAllDoctors()) {
+                    writeDoctor(out, doctor);
+                }
+            }
+            case "list-patients" -> {
+                for (Patient patient : (Iterable<Patient>) patientService.streamPatients()::iterator) {
+                    writePatient(out, patient);
+                }
+            }
+            case "list-appointments" -> {
+                for (Appointment appointment : appointmentService.getAllAppointments()) {
+                    writeAppointment(out, appointment);
+                }
+            }
+            case "list-bills" -> {
+                for (Bill bill : billService.getAllBills()) {
+                    writeBill(out, bill);
+                }
+            }
+            case "stats" -> {
+                writeStats(out, "doctors", Map.of("total", doctorService.streamDoctors().count()));
+                writeStats(out, "patients", patientService.getPatientStatistics());
+                writeStats(out, "appointments", appointmentService.getAppointmentStatistics());
+                writeStats(out, "bills", billService.getBillStatistics());
+            }
+            default -> throw new InvalidDataException("Unknown command: " + command);
+        }
+    }
+
+    // ---------------- Output: plain writes, no per-row formatting ----------------
+
+    private static void ok(Writer out, String command, long id) throws IOException {
+        out.write("ok ");
+        out.write(command);
+        out.write(' ');
+        out.write(Long.toString(id));
+        out.write('\n');
+    }
+
+    private static void writeDoctor(Writer out, Doctor doctor) throws IOException {
+        out.write("doctor\t");
+        out.write(Long.toString(doctor.getId()));
+        field(out, doctor.getName());
+        field(out, doctor.getSpecialization());
+        field(out, doctor.getExperience());
+        field(out, doctor.getAvailableFrom());
+        field(out, doctor.getAvailableTo());
+        out.write('\n');
+    }
+
+    private static void writePatient(Writer out, Patient patient) throws IOException {
+        out.write("patient\t");
+        out.write(Long.toString(patient.getId()));
+        Person person = patient.getPerson();
+        field(out, person != null ? person.getName() : null);
+        field(out, person != null ? person.getAge() : null);
+        field(out, person != null ? person.getMobileNo() : null);
+        field(out, patient.getMedicalRecordNumber());
+        field(out, patient.getAssignedDoctors() != null ? patient.getAssignedDoctors().getId() : null);
+        out.write('\n');
+    }
+
+    private static void writeAppointment(Writer out, Appointment appointment) throws IOException {
+        out.write("appointment\t");
+        out.write(Long.toString(appointment.getId()));
+        field(out, appointment.getPatient() != null ? appointment.getPatient().getId() : null);
+        field(out, appointment.getAppointmentDateTime());
+        field(out, appointment.getStatus());
+        field(out, appointment.getNotes());
+        out.write('\n');
+    }
+
+    private static void writeBill(Writer out, Bill bill) throws IOException {
+        out.write("bill\t");
+        out.write(Long.toString(bill.getId()));
+        field(out, bill.getAppointment() != null ? bill.getAppointment().getId() : null);
+        field(out, bill.getAmount());
+        field(out, bill.getStatus());
+        field(out, bill.getPaymentDate());
+        out.write('\n');
+    }
+
+    private static void writeStats(Writer out, String name, Map<String, ? extends Number> stats) throws IOException {
+        out.write("stats\t");
+        out.write(name);
+        for (Map.Entry<String, ? extends Number> entry : stats.entrySet()) {
+            out.write('\t');
+            out.write(entry.getKey());
+            out.write('=');
+            out.write(entry.getValue().toString());
+        }
+        out.write('\n');
+    }
+
+    private static void field(Writer out, Object value) throws IOException {
+        out.write('\t');
+        out.write(value != null ? value.toString() : "-");
+    }
+
+    // ---------------- Parsing ----------------
+
+    /** Splits on whitespace; a double-quoted argument keeps its spaces. Reuses {@code args}. */
+    static void tokenize(String line, List<String> args) {
+        args.clear();
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int close = line.indexOf('"', i + 1);
+                if (close < 0) {
+                    args.clear();
+                    throw new InvalidDataException("Unclosed quote in: " + line);
+                }
+                args.add(line.substring(i + 1, close));
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(line.charAt(end))) {
+                    end++;
+                }
+                args.add(line.substring(i, end));
+                i = end;
+            }
+        }
+    }
+
+    private static void requireArgs(List<String> args, int count, String usage) {
+        if (args.size() < count) {
+            throw new InvalidDataException("Usage: " + usage);
+        }
+    }
+
+    private static long id(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Not an id: " + value);
+        }
+    }
+}
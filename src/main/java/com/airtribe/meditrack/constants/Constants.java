@@ -5,14 +5,34 @@ public final class Constants {
     private Constants() {}
 
     public static final double TAX_RATE = 0.05;
+    public static final double CONSULTATION_FEE = 500.0;
 
     public static final String BILL_OUTPUT_PATH = "data/bills/";
     public static final String PATIENT_DATA_FILE = "data/patients.json";
     public static final String DOCTOR_DATA_FILE = "data/doctors.json";
     public static final String APPOINTMENT_DATA_FILE = "data/appointments.json";
+    public static final String DATA_DIRECTORY = "data/";
+    public static final String BINARY_DATA_DIRECTORY = "data/binary/";
+
+    public static final int SNAPSHOT_INTERVAL_MINUTES = 5;
+
+    public static final String APPOINTMENT_ARCHIVE_DIRECTORY = "data/archive/";
+    public static final int ARCHIVE_AFTER_DAYS = 180;
 
     public static final int DEFAULT_APPOINTMENT_DURATION_MINUTES = 30;
 
+    public static final int HTTP_PORT = 8080;
+
+    public static final int BATCH_BUFFER_SIZE = 1 << 16;
+
+    public static final int BOOKING_MAX_CONCURRENT = 16;
+
+    public static final int BOOKING_QUEUE_PER_DOCTOR = 256;
+
+    public static final long BOOKING_DEADLINE_MILLIS = 2000;
+
+    public static final long REPLICA_POLL_MILLIS = 100;
+
     public static final String PAYMENT_SUCCESS_MESSAGE = "Payment completed successfully";
     public static final String PAYMENT_FAILED_MESSAGE = "Payment failed. Please try again.";
 
@@ -23,6 +23,15 @@ public class Appointment {
         this.status = AppointmentStatus.SCHEDULED;
     }
 
+    // Copy of this appointment's own fields; the patient is shared
+    public Appointment(Appointment other) {
+        this.id = other.id;
+        this.patient = other.patient;
+        this.appointmentDateTime = other.appointmentDateTime;
+        this.status = other.status;
+        this.notes = other.notes;
+    }
+
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
 
@@ -28,6 +28,17 @@ public class Bill implements Payable {
         this.status = BillStatus.PENDING;
     }
 
+    // Copy of this bill's own fields; the appointment is shared
+    public Bill(Bill other) {
+        this.id = other.id;
+        this.appointment = other.appointment;
+        this.amount = other.amount;
+        this.status = other.status;
+        this.createdAt = other.createdAt;
+        this.paymentDate = other.paymentDate;
+        this.notes = other.notes;
+    }
+
     // Getters and setters
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
@@ -54,15 +65,23 @@ public class Bill implements Payable {
 
     @Override
     public void pay() {
-        if (status == BillStatus.PENDING) {
-            this.status = BillStatus.PAID;
-            this.paymentDate = LocalDateTime.now();
+        if (markPaid()) {
             System.out.println("Bill #" + id + " has been paid successfully.");
         } else {
             System.out.println("Bill #" + id + " is already " + status);
         }
     }
 
+    /** Pays a pending bill like {@link #pay()} without printing; false if it was not pending. */
+    public boolean markPaid() {
+        if (status != BillStatus.PENDING) {
+            return false;
+        }
+        this.status = BillStatus.PAID;
+        this.paymentDate = LocalDateTime.now();
+        return true;
+    }
+
     @Override
     public boolean isPaid() {
         return status == BillStatus.PAID;
@@ -70,15 +89,23 @@ public class Bill implements Payable {
 
     @Override
     public void cancelPayment() {
-        if (status == BillStatus.PAID) {
-            this.status = BillStatus.PENDING;
-            this.paymentDate = null;
+        if (markPaymentCanceled()) {
             System.out.println("Payment for Bill #" + id + " has been canceled.");
         } else {
             System.out.println("Cannot cancel payment. Bill #" + id + " is " + status);
         }
     }
 
+    /** Cancels the payment like {@link #cancelPayment()} without printing; false if it was not paid. */
+    public boolean markPaymentCanceled() {
+        if (status != BillStatus.PAID) {
+            return false;
+        }
+        this.status = BillStatus.PENDING;
+        this.paymentDate = null;
+        return true;
+    }
+
     @Override
     public String toString() {
         return "Bill{" +
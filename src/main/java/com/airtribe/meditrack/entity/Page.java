@@ -0,0 +1,57 @@
+package com.airtribe.meditrack.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One page of a query result.
+ * Built from a lazy stream, so only {@code offset + limit + 1} elements are ever consumed.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final int offset;
+    private final int limit;
+    private final boolean hasMore;
+
+    public Page(List<T> items, int offset, int limit, boolean hasMore) {
+        this.items = Collections.unmodifiableList(items);
+        this.offset = offset;
+        this.limit = limit;
+        this.hasMore = hasMore;
+    }
+
+    // Advanced Java 8: Slice a lazy stream, peeking one element past the page to detect more rows
+    public static <T> Page<T> of(Stream<T> source, int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("offset must be >= 0 and limit > 0");
+        }
+        try (Stream<T> stream = source) {
+            Iterator<T> it = stream.skip(offset).iterator();
+            List<T> items = new ArrayList<>(Math.min(limit, 64));
+            while (items.size() < limit && it.hasNext()) {
+                items.add(it.next());
+            }
+            return new Page<>(items, offset, limit, it.hasNext());
+        }
+    }
+
+    public List<T> getItems() { return items; }
+    public int getOffset() { return offset; }
+    public int getLimit() { return limit; }
+    public boolean hasMore() { return hasMore; }
+    public int size() { return items.size(); }
+
+    // Offset to request for the following page, or -1 when this is the last one
+    public int nextOffset() {
+        return hasMore ? offset + items.size() : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{offset=" + offset + ", limit=" + limit + ", size=" + items.size() + ", hasMore=" + hasMore + '}';
+    }
+}
@@ -24,6 +24,16 @@ public class Patient {
         this.isActive = true;
     }
 
+    // Copy of this patient's own fields; the person and doctor are shared
+    public Patient(Patient other) {
+        this.id = other.id;
+        this.registrationDate = other.registrationDate;
+        this.person = other.person;
+        this.assignedDoctors = other.assignedDoctors;
+        this.medicalRecordNumber = other.medicalRecordNumber;
+        this.isActive = other.isActive;
+    }
+
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
 
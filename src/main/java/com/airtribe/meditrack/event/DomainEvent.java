@@ -0,0 +1,53 @@
+package com.airtribe.meditrack.event;
+
+/**
+ * One preallocated slot of the {@link EventBus} ring.
+ *
+ * <p>Slots are reused once every subscriber has passed them, so a handler must copy what it
+ * needs before returning instead of keeping the event.</p>
+ */
+public final class DomainEvent {
+
+    private EventType type;
+    private long entityId;
+    private long relatedId;
+    private double amount;
+    private long timestampMillis;
+
+    void set(EventType type, long entityId, long relatedId, double amount, long timestampMillis) {
+        this.type = type;
+        this.entityId = entityId;
+        this.relatedId = relatedId;
+        this.amount = amount;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    /** Id of the appointment or bill that changed. */
+    public long getEntityId() {
+        return entityId;
+    }
+
+    /** Patient id for appointment events, appointment id for bill events. */
+    public long getRelatedId() {
+        return relatedId;
+    }
+
+    /** Bill amount; 0 for appointment events. */
+    public double getAmount() {
+        return amount;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return type + "{entityId=" + entityId + ", relatedId=" + relatedId
+                + ", amount=" + amount + ", at=" + timestampMillis + "}";
+    }
+}
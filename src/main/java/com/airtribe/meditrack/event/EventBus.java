@@ -0,0 +1,217 @@
+package com.airtribe.meditrack.event;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process domain event bus on a ring of preallocated {@link DomainEvent} slots, in the style
+ * of the LMAX Disruptor.
+ *
+ * <p>Publishing claims the next sequence with one atomic increment, fills the slot for it in
+ * place and marks the slot published; it takes no lock and allocates nothing. Each
+ * {@link Subscription} reads every event in order on its own thread, handing over all events
+ * available at once as one batch, and records how far it got. A publisher that would overwrite
+ * a slot some subscriber has not read yet waits for it instead, so a slow subscriber slows
+ * down publishing rather than losing events. With no subscribers nothing is kept.</p>
+ *
+ * <p>Services publish after releasing their own lock, once the change is durable, so a full
+ * ring holds up only the thread that made the change, not every caller of the service.
+ * Changes made concurrently by different threads may therefore be published in either order.
+ * A handler must still never call a service mutator: it would publish from the handler's own
+ * thread and could wait on itself.</p>
+ */
+public final class EventBus {
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final DomainEvent[] slots;
+    // published.get(i) is the sequence last published into slots[i]
+    private final AtomicLongArray published;
+    private final int mask;
+    private final Sequence cursor = new Sequence(-1);
+    // Lowest subscriber position seen by a publisher; rechecked only when the ring looks full
+    private volatile long gatingCache = -1;
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    private final LongAdder stalls = new LongAdder();
+
+    /** @param capacity number of slots; a power of two */
+    public EventBus(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        slots = new DomainEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new DomainEvent();
+        }
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        mask = capacity - 1;
+    }
+
+    /** Publishes one event, waiting while the ring is full. Safe to call from any thread. */
+    public void publish(EventType type, long entityId, long relatedId, double amount) {
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > gatingCache) {
+            awaitCapacity(sequence, wrapPoint);
+        }
+        int index = (int) sequence & mask;
+        slots[index].set(type, entityId, relatedId, amount, System.currentTimeMillis());
+        published.set(index, sequence);
+    }
+
+    /**
+     * Starts a daemon thread that hands every event published from now on to {@code handler}.
+     * An exception from the handler is counted and the event skipped; the subscription keeps going.
+     */
+    public synchronized Subscription subscribe(String name, EventHandler handler) {
+        Subscription subscription = new Subscription(name, handler, cursor.get());
+        Subscription[] current = subscriptions;
+        Subscription[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = subscription;
+        subscriptions = next;
+        gatingCache = -1;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /** Events published so far. */
+    public long getPublishedCount() {
+        return cursor.get() + 1;
+    }
+
+    /** Times a publisher found the ring full and had to wait for a subscriber. */
+    public long getStallCount() {
+        return stalls.sum();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    private void awaitCapacity(long sequence, long wrapPoint) {
+        long minimum = minimumPosition(sequence);
+        if (wrapPoint > minimum) {
+            stalls.increment();
+            int tries = 0;
+            while (wrapPoint > (minimum = minimumPosition(sequence))) {
+                tries = idle(tries);
+            }
+        }
+        gatingCache = minimum;
+    }
+
+    private long minimumPosition(long sequence) {
+        long minimum = sequence;
+        for (Subscription subscription : subscriptions) {
+            minimum = Math.min(minimum, subscription.position.get());
+        }
+        return minimum;
+    }
+
+    // Highest sequence from `from` up to the cursor that is published without gaps
+    private long highestPublished(long from) {
+        long claimed = cursor.get();
+        for (long sequence = from; sequence <= claimed; sequence++) {
+            if (published.get((int) sequence & mask) != sequence) {
+                return sequence - 1;
+            }
+        }
+        return claimed;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        subscriptions = Arrays.stream(subscriptions)
+                .filter(s -> s != subscription)
+                .toArray(Subscription[]::new);
+    }
+
+    // Spins briefly, then parks; returns the updated try count
+    private static int idle(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+            return tries + 1;
+        }
+        LockSupport.parkNanos(PARK_NANOS);
+        return tries;
+    }
+
+    /** One reader of the bus with its own thread and position. */
+    public final class Subscription implements AutoCloseable {
+
+        private final String name;
+        private final EventHandler handler;
+        // Last sequence fully handled
+        private final Sequence position;
+        private final Thread thread;
+        private final LongAdder errors = new LongAdder();
+        private volatile boolean running = true;
+
+        private Subscription(String name, EventHandler handler, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.position = new Sequence(start);
+            this.thread = Thread.ofPlatform().daemon().name("event-" + name).unstarted(this::run);
+        }
+
+        private void run() {
+            long next = position.get() + 1;
+            int tries = 0;
+            while (running) {
+                long available = highestPublished(next);
+                if (available < next) {
+                    tries = idle(tries);
+                    continue;
+                }
+                tries = 0;
+                for (long sequence = next; sequence <= available; sequence++) {
+                    try {
+                        handler.onEvent(slots[(int) sequence & mask], sequence, sequence == available);
+                    } catch (RuntimeException e) {
+                        errors.increment();
+                    }
+                }
+                position.set(available);
+                next = available + 1;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Sequence of the last event handled; starts at the bus position when subscribing. */
+        public long getPosition() {
+            return position.get();
+        }
+
+        /** Events whose handler threw. */
+        public long getErrorCount() {
+            return errors.sum();
+        }
+
+        /** Stops reading and releases any publisher waiting on this subscription. */
+        @Override
+        public void close() {
+            running = false;
+            unsubscribe(this);
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.airtribe.meditrack.event;
+
+/** Consumes events from an {@link EventBus} subscription, on the subscription's own thread. */
+@FunctionalInterface
+public interface EventHandler {
+
+    /**
+     * @param event      the slot holding the event; only valid until this call returns
+     * @param sequence   position of the event on the bus, increasing by one per event
+     * @param endOfBatch true for the last event currently available, a good point to flush
+     */
+    void onEvent(DomainEvent event, long sequence, boolean endOfBatch);
+}
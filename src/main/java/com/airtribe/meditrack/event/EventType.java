@@ -0,0 +1,9 @@
+package com.airtribe.meditrack.event;
+
+/** Domain changes published on the {@link EventBus}. */
+public enum EventType {
+    APPOINTMENT_BOOKED,
+    APPOINTMENT_CANCELED,
+    BILL_CREATED,
+    BILL_PAID
+}
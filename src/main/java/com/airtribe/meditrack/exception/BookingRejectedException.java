@@ -0,0 +1,17 @@
+package com.airtribe.meditrack.exception;
+
+/** Thrown when a booking is turned away because the system is overloaded; retrying later may succeed. */
+public class BookingRejectedException extends RuntimeException {
+
+    public BookingRejectedException() {
+        super("Booking rejected: too many bookings in progress");
+    }
+
+    public BookingRejectedException(String message) {
+        super(message);
+    }
+
+    public BookingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package com.airtribe.meditrack.exception;
+
+/** Thrown when a conditional update finds the entity changed since the revision it was based on. */
+public class ConcurrentUpdateException extends RuntimeException {
+
+    public ConcurrentUpdateException() {
+        super("Entity was updated concurrently");
+    }
+
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+
+    public ConcurrentUpdateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
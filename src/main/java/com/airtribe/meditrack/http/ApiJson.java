@@ -0,0 +1,176 @@
+package com.airtribe.meditrack.http;
+
+import com.airtribe.meditrack.entity.*;
+import com.airtribe.meditrack.persistence.json.JsonReader;
+import com.airtribe.meditrack.persistence.json.JsonWriter;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON views of the entities returned by {@link ApiServer}, and parsers for its request
+ * bodies. References are flattened to ids plus a display name, so a response never embeds
+ * a whole object graph.
+ */
+final class ApiJson {
+
+    @FunctionalInterface
+    interface Writer<T> {
+        void write(JsonWriter json, T value) throws IOException;
+    }
+
+    /** Body of {@code POST /api/appointments}. */
+    record BookingRequest(long id, long patientId, LocalDateTime appointmentDateTime, String notes) {}
+
+    /** Body of {@code POST /api/bills}; a missing amount uses the standard consultation fee. */
+    record BillRequest(long id, long appointmentId, Double amount) {}
+
+    private ApiJson() {
+    }
+
+    static void doctor(JsonWriter json, Doctor doctor) throws IOException {
+        json.beginObject();
+        json.name("id").value(doctor.getId());
+        json.name("name").value(doctor.getName());
+        json.name("experience").value(doctor.getExperience());
+        json.name("specialization").value(doctor.getSpecialization());
+        json.name("availableDays").beginArray();
+        if (doctor.getAvailableDays() != null) {
+            for (DayOfWeek day : doctor.getAvailableDays()) {
+                json.value(day.name());
+            }
+        }
+        json.endArray();
+        json.name("availableFrom").value(doctor.getAvailableFrom());
+        json.name("availableTo").value(doctor.getAvailableTo());
+        json.endObject();
+    }
+
+    static void patient(JsonWriter json, Patient patient) throws IOException {
+        json.beginObject();
+        json.name("id").value(patient.getId());
+        json.name("medicalRecordNumber").value(patient.getMedicalRecordNumber());
+        json.name("active").value(patient.isActive());
+        Person person = patient.getPerson();
+        json.name("name").value(person != null ? person.getName() : null);
+        json.name("age").value(person != null ? person.getAge() : 0);
+        json.name("mobileNo").value(person != null ? person.getMobileNo() : null);
+        json.name("doctorId");
+        if (patient.getAssignedDoctors() != null) {
+            json.value(patient.getAssignedDoctors().getId());
+        } else {
+            json.nullValue();
+        }
+        json.name("registrationDate").value(patient.getRegistrationDate());
+        json.endObject();
+    }
+
+    static void appointment(JsonWriter json, Appointment appointment) throws IOException {
+        json.beginObject();
+        json.name("id").value(appointment.getId());
+        Patient patient = appointment.getPatient();
+        json.name("patientId");
+        if (patient != null) {
+            json.value(patient.getId());
+        } else {
+            json.nullValue();
+        }
+        json.name("patientName").value(patient != null && patient.getPerson() != null
+                ? patient.getPerson().getName() : null);
+        json.name("appointmentDateTime").value(appointment.getAppointmentDateTime());
+        json.name("status").value(appointment.getStatus());
+        json.name("notes").value(appointment.getNotes());
+        json.endObject();
+    }
+
+    static void bill(JsonWriter json, Bill bill) throws IOException {
+        json.beginObject();
+        json.name("id").value(bill.getId());
+        json.name("appointmentId");
+        if (bill.getAppointment() != null) {
+            json.value(bill.getAppointment().getId());
+        } else {
+            json.nullValue();
+        }
+        json.name("amount").value(bill.getAmount());
+        json.name("status").value(bill.getStatus());
+        json.name("createdAt").value(bill.getCreatedAt());
+        json.name("paymentDate").value(bill.getPaymentDate());
+        json.name("notes").value(bill.getNotes());
+        json.endObject();
+    }
+
+    static <T> void list(JsonWriter json, List<T> items, Writer<T> writer) throws IOException {
+        json.beginArray();
+        for (T item : items) {
+            writer.write(json, item);
+        }
+        json.endArray();
+    }
+
+    static <T> void page(JsonWriter json, Page<T> page, Writer<T> writer) throws IOException {
+        json.beginObject();
+        json.name("offset").value(page.getOffset());
+        json.name("limit").value(page.getLimit());
+        json.name("hasMore").value(page.hasMore());
+        json.name("items");
+        list(json, page.getItems(), writer);
+        json.endObject();
+    }
+
+    /** Writes a flat map of statistics; keys are written with {@code toString()}. */
+    static void stats(JsonWriter json, Map<?, ? extends Number> stats) throws IOException {
+        json.beginObject();
+        for (Map.Entry<?, ? extends Number> entry : stats.entrySet()) {
+            json.name(String.valueOf(entry.getKey()));
+            if (entry.getValue() instanceof Double || entry.getValue() instanceof Float) {
+                json.value(entry.getValue().doubleValue());
+            } else {
+                json.value(entry.getValue().longValue());
+            }
+        }
+        json.endObject();
+    }
+
+    static BookingRequest readBooking(JsonReader json) throws IOException {
+        long id = -1;
+        long patientId = -1;
+        LocalDateTime dateTime = null;
+        String notes = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = json.nextLong();
+                case "patientId" -> patientId = json.nextLong();
+                case "appointmentDateTime" -> {
+                    String value = json.nextString();
+                    dateTime = value != null ? LocalDateTime.parse(value) : null;
+                }
+                case "notes" -> notes = json.nextString();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new BookingRequest(id, patientId, dateTime, notes);
+    }
+
+    static BillRequest readBill(JsonReader json) throws IOException {
+        long id = -1;
+        long appointmentId = -1;
+        Double amount = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = json.nextLong();
+                case "appointmentId" -> appointmentId = json.nextLong();
+                case "amount" -> amount = json.nextNull() ? null : json.nextDouble();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new BillRequest(id, appointmentId, amount);
+    }
+}
@@ -0,0 +1,481 @@
+package com.airtribe.meditrack.http;
+
+import com.airtribe.meditrack.constants.AppointmentStatus;
+import com.airtribe.meditrack.constants.BillStatus;
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.constants.Specialization;
+import com.airtribe.meditrack.entity.*;
+import com.airtribe.meditrack.exception.AppointmentNotFoundException;
+import com.airtribe.meditrack.exception.BookingRejectedException;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.persistence.LogFollower;
+import com.airtribe.meditrack.persistence.json.JsonReader;
+import com.airtribe.meditrack.persistence.json.JsonWriter;
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.BillService;
+import com.airtribe.meditrack.service.BookingPipeline;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Embedded JSON API in front of the services, on the JDK's {@code com.sun.net.httpserver}.
+ *
+ * <p>Each exchange runs on its own virtual thread, so thousands of slow or idle clients
+ * cost a few kilobytes each instead of a platform thread. Handlers call the services
+ * directly: reads never block and writes are serialized inside each service.</p>
+ *
+ * <pre>
+ * GET  /api/health
+ * GET  /api/doctors[?q=|specialization=|day=][&amp;offset=&amp;limit=]   GET /api/doctors/{id}[/schedule]
+ * GET  /api/patients[?q=|mrn=|mobile=][&amp;offset=&amp;limit=]          GET /api/patients/{id}[/appointments]
+ * GET  /api/appointments[?date=|status=][&amp;offset=&amp;limit=]        GET /api/appointments/{id}
+ * POST /api/appointments  {id, patientId, appointmentDateTime, notes}
+ * POST /api/appointments/{id}/cancel
+ * GET  /api/bills[?status=][&amp;offset=&amp;limit=]                     GET /api/bills/{id}
+ * POST /api/bills  {id, appointmentId, amount}
+ * POST /api/bills/{id}/pay
+ * GET  /api/stats
+ * </pre>
+ *
+ * <p>The hot reads are coalesced: doctor and patient lookups by id go through a
+ * {@link BatchLoader}, so a burst of requests becomes one batched {@code findAllById} call,
+ * and identical concurrent schedule requests share one computation through a
+ * {@link SingleFlight}. Counters for both appear under {@code coalescing} in {@code /api/stats}.</p>
+ *
+ * <p>Bookings pass through a {@link BookingPipeline} sized from {@link Constants}, which
+ * bounds the work in progress per doctor and turns away bookings that would miss their
+ * deadline; its queue and wait-time metrics appear under {@code booking}.</p>
+ *
+ * <p>In front of a {@link LogFollower} (see {@link #setReplica}) the server is a read-only
+ * replica: every method other than GET gets a 405 and {@code /api/stats} reports the
+ * follower's lag under {@code replication}.</p>
+ *
+ * <p>Errors are returned as {@code {"error": message}} with 400 for invalid input, 404 for
+ * unknown ids, 405 for a wrong method, 409 for a duplicate id, 413 for an oversized body and
+ * 503 for a booking rejected under load.</p>
+ */
+public class ApiServer implements Closeable {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final int BACKLOG = 1024;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_LOOKUP_BATCH = 256;
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private record Response(int status, Body body) {}
+
+    /** Ends a request early with the given status; the message becomes the error body. */
+    private static final class ApiException extends RuntimeException {
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final DoctorService doctorService;
+    private final PatientService patientService;
+    private final AppointmentService appointmentService;
+    private final BillService billService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LongAdder requests = new LongAdder();
+    private final BatchLoader<Long, Doctor> doctorLookups;
+    private final BatchLoader<Long, Patient> patientLookups;
+    private final SingleFlight<Long, List<Appointment>> schedules = new SingleFlight<>();
+    private final BookingPipeline bookings;
+    // Set on a read replica; null on the primary
+    private volatile LogFollower replica;
+
+    /**
+     * Binds the server; it accepts requests once {@link #start()} is called.
+     * Port 0 picks a free port, see {@link #getPort()}.
+     */
+    public ApiServer(InetSocketAddress address, DoctorService doctorService, PatientService patientService,
+                     AppointmentService appointmentService, BillService billService) throws IOException {
+        this.doctorService = doctorService;
+        this.patientService = patientService;
+        this.appointmentService = appointmentService;
+        this.billService = billService;
+        this.doctorLookups = new BatchLoader<>(doctorService::findAllById, MAX_LOOKUP_BATCH);
+        this.patientLookups = new BatchLoader<>(patientService::findAllById, MAX_LOOKUP_BATCH);
+        this.bookings = new BookingPipeline(appointmentService, Constants.BOOKING_MAX_CONCURRENT,
+                Constants.BOOKING_QUEUE_PER_DOCTOR, Duration.ofMillis(Constants.BOOKING_DEADLINE_MILLIS));
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Serves the services as a read-only replica kept current by {@code follower}. */
+    public void setReplica(LogFollower follower) {
+        this.replica = follower;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Number of requests handled so far. */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /** Stops accepting connections and gives in-flight exchanges up to a second to finish. */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            Response response;
+            try {
+                response = route(exchange);
+            } catch (ApiException e) {
+                response = error(e.status, e.getMessage());
+            } catch (AppointmentNotFoundException e) {
+                response = error(404, e.getMessage());
+            } catch (BookingRejectedException e) {
+                response = error(503, e.getMessage());
+            } catch (InvalidDataException | IllegalArgumentException | DateTimeParseException e) {
+                response = error(400, e.getMessage());
+            } catch (RuntimeException e) {
+                response = error(500, "Internal error: " + e.getClass().getSimpleName());
+            }
+            send(exchange, response);
+        }
+    }
+
+    private Response route(HttpExchange exchange) {
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        String method = exchange.getRequestMethod();
+        if (replica != null && !method.equals("GET")) {
+            throw new ApiException(405, "Read-only replica; send " + method + " requests to the primary");
+        }
+        return switch (path[0]) {
+            case "health" -> {
+                requireMethod(method, "GET");
+                yield ok(json -> json.beginObject().name("status").value("UP").endObject());
+            }
+            case "doctors" -> doctors(method, path, query);
+            case "patients" -> patients(method, path, query);
+            case "appointments" -> appointments(method, path, query, exchange);
+            case "bills" -> bills(method, path, query, exchange);
+            case "stats" -> {
+                requireMethod(method, "GET");
+                yield ok(this::stats);
+            }
+            default -> throw new ApiException(404, "No such resource: " + exchange.getRequestURI().getPath());
+        };
+    }
+
+    // ---------------- Resources ----------------
+
+    private Response doctors(String method, String[] path, Map<String, String> query) {
+        requireMethod(method, "GET");
+        if (path.length == 1) {
+            if (query.containsKey("q")) {
+                List<Doctor> matches = doctorService.searchByName(query.get("q"), limit(query));
+                return ok(json -> ApiJson.list(json, matches, ApiJson::doctor));
+            }
+            Predicate<Doctor> filter = doctor -> true;
+            if (query.containsKey("specialization")) {
+                Specialization specialization = Specialization.valueOf(query.get("specialization").toUpperCase(Locale.ROOT));
+                filter = filter.and(doctor -> doctor.getSpecialization() == specialization);
+            }
+            if (query.containsKey("day")) {
+                DayOfWeek day = DayOfWeek.valueOf(query.get("day").toUpperCase(Locale.ROOT));
+                filter = filter.and(doctor -> doctor.getAvailableDays() != null && doctor.getAvailableDays().contains(day));
+            }
+            Page<Doctor> page = doctorService.findDoctorsByPredicate(filter, offset(query), limit(query));
+            return ok(json -> ApiJson.page(json, page, ApiJson::doctor));
+        }
+        long id = id(path[1]);
+        Doctor doctor = doctorLookups.load(id);
+        if (doctor == null) {
+            throw new ApiException(404, "Doctor not found with ID: " + id);
+        }
+        if (path.length == 3 && path[2].equals("schedule")) {
+            List<Appointment> schedule = schedules.get(id, appointmentService::getDoctorSchedule);
+            return ok(json -> ApiJson.list(json, schedule, ApiJson::appointment));
+        }
+        requireLength(path, 2);
+        return ok(json -> ApiJson.doctor(json, doctor));
+    }
+
+    private Response patients(String method, String[] path, Map<String, String> query) {
+        requireMethod(method, "GET");
+        if (path.length == 1) {
+            List<Patient> matches;
+            if (query.containsKey("q")) {
+                matches = patientService.searchByName(query.get("q"), limit(query));
+            } else if (query.containsKey("mrn")) {
+                matches = patientService.findByMedicalRecordNumber(query.get("mrn")).map(List::of).orElse(List.of());
+            } else if (query.containsKey("mobile")) {
+                matches = patientService.findPatientsByMobileNumber(query.get("mobile"));
+            } else {
+                Page<Patient> page = patientService.getPatients(offset(query), limit(query));
+                return ok(json -> ApiJson.page(json, page, ApiJson::patient));
+            }
+            return ok(json -> ApiJson.list(json, matches, ApiJson::patient));
+        }
+        long id = id(path[1]);
+        Patient patient = patientLookups.load(id);
+        if (patient == null) {
+            throw new ApiException(404, "Patient not found with ID: " + id);
+        }
+        if (path.length == 3 && path[2].equals("appointments")) {
+            List<Appointment> history = appointmentService.getAppointmentsByPatient(patient);
+            return ok(json -> ApiJson.list(json, history, ApiJson::appointment));
+        }
+        requireLength(path, 2);
+        return ok(json -> ApiJson.patient(json, patient));
+    }
+
+    private Response appointments(String method, String[] path, Map<String, String> query, HttpExchange exchange) {
+        if (path.length == 1) {
+            if (method.equals("POST")) {
+                return book(readBody(exchange, ApiJson::readBooking));
+            }
+            requireMethod(method, "GET");
+            List<Appointment> matches;
+            if (query.containsKey("date")) {
+                matches = appointmentService.getAppointmentsByDate(LocalDate.parse(query.get("date")));
+            } else if (query.containsKey("status")) {
+                matches = appointmentService.getAppointmentsByStatus(
+                        AppointmentStatus.valueOf(query.get("status").toUpperCase(Locale.ROOT)));
+            } else {
+                Page<Appointment> page = appointmentService.getAppointments(offset(query), limit(query));
+                return ok(json -> ApiJson.page(json, page, ApiJson::appointment));
+            }
+            return ok(json -> ApiJson.list(json, matches, ApiJson::appointment));
+        }
+        long id = id(path[1]);
+        if (path.length == 3 && path[2].equals("cancel")) {
+            requireMethod(method, "POST");
+            appointmentService.cancelAppointment(id);
+        } else {
+            requireLength(path, 2);
+            requireMethod(method, "GET");
+        }
+        Appointment appointment = appointmentService.findById(id)
+                .orElseThrow(() -> new ApiException(404, "Appointment not found with ID: " + id));
+        return ok(json -> ApiJson.appointment(json, appointment));
+    }
+
+    private Response book(ApiJson.BookingRequest request) {
+        if (appointmentService.findById(request.id()).isPresent()) {
+            throw new ApiException(409, "Appointment already exists with ID: " + request.id());
+        }
+        Patient patient = patientService.findById(request.patientId())
+                .orElseThrow(() -> new InvalidDataException("Patient not found with ID: " + request.patientId()));
+        Appointment appointment = new Appointment(request.id(), patient, request.appointmentDateTime());
+        if (request.notes() != null && !request.notes().isEmpty()) {
+            appointment.setNotes(request.notes());
+        }
+        bookings.book(appointment);
+        return new Response(201, json -> ApiJson.appointment(json, appointment));
+    }
+
+    private Response bills(String method, String[] path, Map<String, String> query, HttpExchange exchange) {
+        if (path.length == 1) {
+            if (method.equals("POST")) {
+                return createBill(readBody(exchange, ApiJson::readBill));
+            }
+            requireMethod(method, "GET");
+            if (query.containsKey("status")) {
+                List<Bill> matches = billService.getBillsByStatus(
+                        BillStatus.valueOf(query.get("status").toUpperCase(Locale.ROOT)));
+                return ok(json -> ApiJson.list(json, matches, ApiJson::bill));
+            }
+            Page<Bill> page = billService.getBills(offset(query), limit(query));
+            return ok(json -> ApiJson.page(json, page, ApiJson::bill));
+        }
+        long id = id(path[1]);
+        if (billService.findById(id).isEmpty()) {
+            throw new ApiException(404, "Bill not found with ID: " + id);
+        }
+        if (path.length == 3 && path[2].equals("pay")) {
+            requireMethod(method, "POST");
+            billService.payBill(id);
+        } else {
+            requireLength(path, 2);
+            requireMethod(method, "GET");
+        }
+        // Paying replaces the stored bill, so read it after the request is applied
+        Bill bill = billService.findById(id).orElseThrow();
+        return ok(json -> ApiJson.bill(json, bill));
+    }
+
+    private Response createBill(ApiJson.BillRequest request) {
+        if (billService.findById(request.id()).isPresent()) {
+            throw new ApiException(409, "Bill already exists with ID: " + request.id());
+        }
+        Appointment appointment = appointmentService.findById(request.appointmentId())
+                .orElseThrow(() -> new AppointmentNotFoundException(
+                        "Appointment not found with ID: " + request.appointmentId()));
+        Bill bill = new Bill(request.id(), appointment,
+                request.amount() != null ? request.amount() : Constants.CONSULTATION_FEE);
+        billService.createBill(bill);
+        return new Response(201, json -> ApiJson.bill(json, bill));
+    }
+
+    private void stats(JsonWriter json) throws IOException {
+        json.beginObject();
+        json.name("doctors").value(doctorService.streamDoctors().count());
+        json.name("patients");
+        ApiJson.stats(json, patientService.getPatientStatistics());
+        json.name("appointments");
+        ApiJson.stats(json, appointmentService.getAppointmentStatistics());
+        json.name("bills");
+        ApiJson.stats(json, billService.getBillStatistics());
+        json.name("coalescing").beginObject();
+        json.name("doctorLookups").value(doctorLookups.getRequestCount());
+        json.name("doctorBatches").value(doctorLookups.getBatchCount());
+        json.name("patientLookups").value(patientLookups.getRequestCount());
+        json.name("patientBatches").value(patientLookups.getBatchCount());
+        json.name("schedulesComputed").value(schedules.getComputedCount());
+        json.name("schedulesShared").value(schedules.getSharedCount());
+        json.endObject();
+        BookingPipeline.Metrics booking = bookings.getMetrics();
+        json.name("booking").beginObject();
+        json.name("queued").value(booking.queued());
+        json.name("running").value(booking.running());
+        json.name("admitted").value(booking.admitted());
+        json.name("completed").value(booking.completed());
+        json.name("rejectedQueueFull").value(booking.rejectedQueueFull());
+        json.name("rejectedDeadline").value(booking.rejectedDeadline());
+        json.name("p50WaitMillis").value(booking.p50WaitMillis());
+        json.name("p99WaitMillis").value(booking.p99WaitMillis());
+        json.name("avgBookingMillis").value(booking.avgBookingMillis());
+        json.endObject();
+        LogFollower follower = replica;
+        if (follower != null) {
+            LogFollower.Lag lag = follower.getLag();
+            json.name("replication").beginObject();
+            json.name("appliedLsn").value(lag.appliedLsn());
+            json.name("primaryLsn").value(lag.primaryLsn());
+            json.name("lagBytes").value(lag.lagBytes());
+            json.name("lagMillis").value(lag.lagMillis());
+            json.name("appliedRecords").value(lag.appliedRecords());
+            json.name("skippedRecords").value(lag.skippedRecords());
+            json.name("polls").value(lag.polls());
+            json.endObject();
+        }
+        json.endObject();
+    }
+
+    // ---------------- Plumbing ----------------
+
+    private static Response ok(Body body) {
+        return new Response(200, body);
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, json -> json.beginObject().name("error").value(message).endObject());
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        try (JsonWriter json = new JsonWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+            response.body().write(json);
+        }
+        byte[] bytes = buffer.toByteArray();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(JsonReader json) throws IOException;
+    }
+
+    private static <T> T readBody(HttpExchange exchange, BodyReader<T> reader) {
+        try {
+            byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            try (JsonReader json = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+                return reader.read(json);
+            }
+        } catch (IOException e) {
+            throw new ApiException(400, "Malformed JSON body: " + e.getMessage());
+        }
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new ApiException(405, "Method " + method + " not allowed; use " + expected);
+        }
+    }
+
+    private static void requireLength(String[] path, int length) {
+        if (path.length != length) {
+            throw new ApiException(404, "No such resource: /api/" + String.join("/", path));
+        }
+    }
+
+    private static long id(String segment) {
+        try {
+            return Long.parseLong(segment);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "Not an id: " + segment);
+        }
+    }
+
+    private static int offset(Map<String, String> query) {
+        return Math.max(0, Integer.parseInt(query.getOrDefault("offset", "0")));
+    }
+
+    private static int limit(Map<String, String> query) {
+        int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+        return Math.max(1, Math.min(MAX_PAGE_SIZE, limit));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(name, value);
+        }
+        return params;
+    }
+}
@@ -0,0 +1,116 @@
+package com.airtribe.meditrack.http;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Gathers concurrent single-key lookups into batched lookups.
+ *
+ * <p>Works like a group commit instead of a timer: when no batch is running, a request is
+ * looked up at once, in a batch of one. Requests arriving while a batch runs queue up, and
+ * when it finishes they all go out together in the next batch (up to {@code maxBatch} keys),
+ * so an idle server adds no delay and a busy one makes one call per burst. A key requested
+ * several times in the same burst is looked up once and every caller gets the result.</p>
+ *
+ * <p>The caller whose request starts a batch runs it; if more requests queued up meanwhile,
+ * a virtual thread takes over draining them, so no caller waits for batches after its own.</p>
+ */
+public final class BatchLoader<K, V> {
+
+    private final Function<Collection<K>, Map<K, V>> batchLookup;
+    private final int maxBatch;
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    private boolean running;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+
+    /**
+     * @param batchLookup returns the values found for the given keys; missing keys resolve to null
+     * @param maxBatch    maximum keys per batched lookup
+     */
+    public BatchLoader(Function<Collection<K>, Map<K, V>> batchLookup, int maxBatch) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch must be positive");
+        }
+        this.batchLookup = batchLookup;
+        this.maxBatch = maxBatch;
+    }
+
+    /** The value for {@code key}, or null if the lookup did not find it. */
+    public V load(K key) {
+        requests.increment();
+        CompletableFuture<V> future;
+        boolean leader;
+        synchronized (this) {
+            future = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+            leader = !running;
+            running = true;
+        }
+        if (leader) {
+            runNextBatch();
+            handOff();
+        }
+        return SingleFlight.join(future);
+    }
+
+    /** Keys requested so far, including repeats. */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /** Batched lookups run so far. */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /** Distinct keys looked up across all batches. */
+    public long getKeyCount() {
+        return keys.sum();
+    }
+
+    private void runNextBatch() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (this) {
+            if (pending.size() <= maxBatch) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            } else {
+                batch = new LinkedHashMap<>();
+                Iterator<Map.Entry<K, CompletableFuture<V>>> it = pending.entrySet().iterator();
+                while (batch.size() < maxBatch) {
+                    Map.Entry<K, CompletableFuture<V>> entry = it.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        batches.increment();
+        keys.add(batch.size());
+        try {
+            Map<K, V> found = batchLookup.apply(Collections.unmodifiableSet(batch.keySet()));
+            batch.forEach((key, future) -> future.complete(found.get(key)));
+        } catch (RuntimeException | Error e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    // Keeps draining on a virtual thread while requests are queued; clears `running` when idle
+    private void handOff() {
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                running = false;
+                return;
+            }
+        }
+        Thread.ofVirtual().name("batch-loader").start(() -> {
+            runNextBatch();
+            handOff();
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.airtribe.meditrack.http;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent identical requests into one computation.
+ *
+ * <p>The first caller for a key runs the computation; callers asking for the same key while
+ * it is running wait for it and get the same result (or exception) instead of repeating the
+ * work. Nothing is cached: once the computation finishes, the next caller starts a fresh one.
+ * A caller that joins may therefore see a result computed from state that was current just
+ * before its request arrived. Results are shared, so they must not be modified.</p>
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public V get(K key, Function<? super K, ? extends V> computation) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            shared.increment();
+            return join(running);
+        }
+        computed.increment();
+        try {
+            V value = computation.apply(key);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Computations actually run. */
+    public long getComputedCount() {
+        return computed.sum();
+    }
+
+    /** Requests answered by joining a computation already in flight. */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
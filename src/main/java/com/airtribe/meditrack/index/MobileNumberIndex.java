@@ -0,0 +1,226 @@
+package com.airtribe.meditrack.index;
+
+import java.util.Arrays;
+
+/**
+ * Hash index from normalized 10-digit mobile numbers to patient ids.
+ *
+ * <p>Keys are stored as primitive longs in an open-addressing table with linear probing,
+ * so an entry costs a few array slots instead of boxed {@code Long}s and map nodes.
+ * Most numbers belong to a single patient, which is stored inline; shared (family)
+ * numbers spill the extra ids into a small per-slot array. Instance methods are synchronized.</p>
+ */
+public class MobileNumberIndex {
+
+    private static final long FREE = -1L;
+    private static final long[] NO_IDS = new long[0];
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] firstIds;
+    private long[][] extraIds;
+    private int size;
+
+    public MobileNumberIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MobileNumberIndex(int expectedNumbers) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedNumbers * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Normalizes a mobile number to its 10-digit numeric key.
+     * Separators are ignored and a leading "0" or "91" country prefix is dropped.
+     *
+     * @return the numeric key, or -1 if the value is not a 10-digit mobile number
+     */
+    public static long normalize(String mobileNo) {
+        if (mobileNo == null) {
+            return FREE;
+        }
+        long key = 0;
+        int digits = 0;
+        for (int i = 0; i < mobileNo.length(); i++) {
+            char c = mobileNo.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 12) {
+                    return FREE;
+                }
+                key = key * 10 + (c - '0');
+            } else if (c != ' ' && c != '-' && c != '+' && c != '(' && c != ')' && c != '.') {
+                return FREE;
+            }
+        }
+        if (digits == 12 && key / 10_000_000_000L == 91) {
+            return key % 10_000_000_000L;
+        }
+        if (digits == 11 && key < 10_000_000_000L) {
+            return key;
+        }
+        return digits == 10 ? key : FREE;
+    }
+
+    public synchronized void add(String mobileNo, long patientId) {
+        long key = normalize(mobileNo);
+        if (key == FREE) {
+            return;
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            if (firstIds[slot] == patientId || contains(extraIds[slot], patientId)) {
+                return;
+            }
+            long[] extra = extraIds[slot] == null ? NO_IDS : extraIds[slot];
+            extra = Arrays.copyOf(extra, extra.length + 1);
+            extra[extra.length - 1] = patientId;
+            extraIds[slot] = extra;
+            return;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            rehash(keys.length << 1);
+        }
+        slot = probe(key);
+        keys[slot] = key;
+        firstIds[slot] = patientId;
+        extraIds[slot] = null;
+        size++;
+    }
+
+    public synchronized void remove(String mobileNo, long patientId) {
+        long key = normalize(mobileNo);
+        int slot = key == FREE ? -1 : find(key);
+        if (slot < 0) {
+            return;
+        }
+        long[] extra = extraIds[slot];
+        if (firstIds[slot] == patientId) {
+            if (extra == null || extra.length == 0) {
+                delete(slot);
+                return;
+            }
+            firstIds[slot] = extra[extra.length - 1];
+            extraIds[slot] = extra.length == 1 ? null : Arrays.copyOf(extra, extra.length - 1);
+        } else if (contains(extra, patientId)) {
+            long[] kept = new long[extra.length - 1];
+            int n = 0;
+            for (long id : extra) {
+                if (id != patientId) {
+                    kept[n++] = id;
+                }
+            }
+            extraIds[slot] = kept.length == 0 ? null : kept;
+        }
+    }
+
+    /** Returns the ids of all patients registered with the given number. */
+    public synchronized long[] get(String mobileNo) {
+        long key = normalize(mobileNo);
+        int slot = key == FREE ? -1 : find(key);
+        if (slot < 0) {
+            return NO_IDS;
+        }
+        long[] extra = extraIds[slot];
+        if (extra == null) {
+            return new long[] { firstIds[slot] };
+        }
+        long[] ids = new long[extra.length + 1];
+        ids[0] = firstIds[slot];
+        System.arraycopy(extra, 0, ids, 1, extra.length);
+        return ids;
+    }
+
+    public synchronized boolean contains(String mobileNo) {
+        long key = normalize(mobileNo);
+        return key != FREE && find(key) >= 0;
+    }
+
+    /** Number of distinct mobile numbers in the index. */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(extraIds, null);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int probe(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                firstIds[gap] = firstIds[next];
+                extraIds[gap] = extraIds[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+        extraIds[gap] = null;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldFirst = firstIds;
+        long[][] oldExtra = extraIds;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = probe(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                firstIds[slot] = oldFirst[i];
+                extraIds[slot] = oldExtra[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        firstIds = new long[capacity];
+        extraIds = new long[capacity][];
+        Arrays.fill(keys, FREE);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        if (ids != null) {
+            for (long candidate : ids) {
+                if (candidate == id) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,264 @@
+package com.airtribe.meditrack.index;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted trigram index for ranked fuzzy name search.
+ *
+ * <p>Each name is lower-cased, padded with spaces and split into 3-character grams.
+ * A query scores every id sharing at least one gram with it using the Dice coefficient
+ * {@code 2 * shared / (queryGrams + nameGrams)}, so typos and partial names still rank
+ * close matches first. Only the posting lists of the query's grams are visited.</p>
+ *
+ * <p>A posting list is a primitive {@code long[]} of ids with each name's gram count
+ * alongside, in no particular order: a name is appended, and removing one moves the last
+ * id into its slot, so both cost O(1) per gram however long the list. Each indexed name
+ * remembers its slot in every list for that. A search counts shared grams in an
+ * open-addressing table keyed by primitive id, sized from the total length of the posting
+ * lists it visits and reused by the calling thread, so scoring boxes nothing.</p>
+ *
+ * <p>The index is updated incrementally through {@link #put} and {@link #remove}, which
+ * take a write lock. Searches only take the read lock, so they run concurrently with each
+ * other and wait only while a writer is updating the index.</p>
+ */
+public class TrigramIndex {
+
+    /** Minimum score for a name to be returned by {@link #search}. */
+    public static final double DEFAULT_MIN_SCORE = 0.3;
+
+    // Scratch space of search(); each thread scores in its own table
+    private static final ThreadLocal<Counter> SHARED = ThreadLocal.withInitial(Counter::new);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Posting> postings = new HashMap<>();
+    // Grams of each indexed name with its slot in their posting lists, needed to unlink it again
+    private final Map<Long, Indexed> byId = new HashMap<>();
+
+    public void put(long id, String name) {
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            if (name == null || name.isBlank()) {
+                return;
+            }
+            String[] grams = trigrams(name);
+            int[] slots = new int[grams.length];
+            for (int k = 0; k < grams.length; k++) {
+                slots[k] = postings.computeIfAbsent(grams[k], g -> new Posting()).add(id, grams.length);
+            }
+            byId.put(id, new Indexed(grams, slots));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock
+    private void unlink(long id) {
+        Indexed indexed = byId.remove(id);
+        if (indexed == null) {
+            return;
+        }
+        for (int k = 0; k < indexed.grams.length; k++) {
+            String gram = indexed.grams[k];
+            Posting posting = postings.get(gram);
+            int slot = indexed.slots[k];
+            if (posting.removeAt(slot)) {
+                // The last id of the list took over the slot
+                byId.get(posting.ids[slot]).moved(gram, slot);
+            }
+            if (posting.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            byId.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Match> search(String query, int limit) {
+        return search(query, limit, DEFAULT_MIN_SCORE);
+    }
+
+    /**
+     * Returns up to {@code limit} ids ordered by descending similarity to the query; ties are
+     * ordered by id.
+     */
+    public List<Match> search(String query, int limit, double minScore) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String[] queryGrams = trigrams(query);
+        Counter shared = SHARED.get();
+        // Bounded min-heap keeps only the current top `limit` candidates
+        PriorityQueue<Match> top = new PriorityQueue<>(Comparator.comparingDouble(Match::score)
+                .thenComparing(Match::id, Comparator.reverseOrder()));
+
+        lock.readLock().lock();
+        try {
+            Posting[] lists = new Posting[queryGrams.length];
+            long candidates = 0;
+            for (int q = 0; q < queryGrams.length; q++) {
+                lists[q] = postings.get(queryGrams[q]);
+                candidates += lists[q] != null ? lists[q].size : 0;
+            }
+            shared.reset((int) Math.min(candidates, byId.size()));
+            for (Posting posting : lists) {
+                if (posting != null) {
+                    for (int i = 0; i < posting.size; i++) {
+                        shared.increment(posting.ids[i], posting.nameGrams[i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (int n = 0; n < shared.used; n++) {
+            int slot = shared.usedSlots[n];
+            double score = 2.0 * shared.counts[slot] / (queryGrams.length + shared.nameGrams[slot]);
+            if (score >= minScore) {
+                top.offer(new Match(shared.keys[slot], score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<Match> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingDouble(Match::score).reversed().thenComparing(Match::id));
+        return result;
+    }
+
+    // Distinct grams of " name " so word starts and ends carry weight
+    static String[] trigrams(String text) {
+        String normalized = " " + text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ") + " ";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + 3));
+        }
+        return grams.toArray(new String[0]);
+    }
+
+    /** A search hit: entity id and similarity score in (0, 1]. */
+    public record Match(long id, double score) {
+    }
+
+    // Grams of one indexed name and, for each, the slot the id occupies in that gram's posting list
+    private record Indexed(String[] grams, int[] slots) {
+
+        void moved(String gram, int slot) {
+            for (int k = 0; k < grams.length; k++) {
+                if (grams[k].equals(gram)) {
+                    slots[k] = slot;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Ids of the names containing one gram, unordered, with each name's gram count alongside
+    private static final class Posting {
+
+        long[] ids = new long[4];
+        int[] nameGrams = new int[4];
+        int size;
+
+        // Returns the slot the id was put in
+        int add(long id, int grams) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                nameGrams = Arrays.copyOf(nameGrams, size * 2);
+            }
+            ids[size] = id;
+            nameGrams[size] = grams;
+            return size++;
+        }
+
+        // Moves the last id into the freed slot; returns whether one was moved
+        boolean removeAt(int slot) {
+            size--;
+            if (slot == size) {
+                return false;
+            }
+            ids[slot] = ids[size];
+            nameGrams[slot] = nameGrams[size];
+            return true;
+        }
+    }
+
+    // Open-addressing id -> shared gram count with linear probing; reset clears only used slots
+    private static final class Counter {
+
+        private static final long FREE = Long.MIN_VALUE;
+
+        long[] keys = new long[0];
+        int[] counts;
+        int[] nameGrams;
+        int[] usedSlots;
+        int used;
+
+        // Sized for `candidates` distinct ids at a load factor of at most 1/2
+        void reset(int candidates) {
+            for (int n = 0; n < used; n++) {
+                keys[usedSlots[n]] = FREE;
+            }
+            used = 0;
+            int capacity = Integer.highestOneBit(Math.max(8, candidates) * 2 - 1) << 1;
+            if (capacity > keys.length) {
+                keys = new long[capacity];
+                counts = new int[capacity];
+                nameGrams = new int[capacity];
+                usedSlots = new int[capacity];
+                Arrays.fill(keys, FREE);
+            }
+        }
+
+        void increment(long id, int grams) {
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+            while (keys[slot] != id) {
+                if (keys[slot] == FREE) {
+                    keys[slot] = id;
+                    counts[slot] = 0;
+                    nameGrams[slot] = grams;
+                    usedSlots[used++] = slot;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            counts[slot]++;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.airtribe.meditrack.interfaces;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives every successful service mutation, after it has been applied in memory.
+ * Services start with {@link #NONE}; implementations override only what they need.
+ */
+public interface MutationLog {
+
+    MutationLog NONE = new MutationLog() {};
+
+    default void doctorAdded(Doctor doctor) {}
+
+    default void doctorUpdated(long doctorId, Doctor doctor) {}
+
+    default void doctorRemoved(long doctorId) {}
+
+    default void patientAdded(Patient patient) {}
+
+    default void patientUpdated(long patientId, Patient patient) {}
+
+    default void patientRemoved(long patientId) {}
+
+    default void doctorAssigned(long patientId, long doctorId) {}
+
+    default void appointmentBooked(Appointment appointment) {}
+
+    default void appointmentCanceled(long appointmentId) {}
+
+    default void appointmentUpdated(long appointmentId, LocalDateTime newDateTime, String newNotes) {}
+
+    default void appointmentArchived(long appointmentId) {}
+
+    default void billCreated(Bill bill) {}
+
+    default void billPaid(long billId, LocalDateTime paymentDate) {}
+
+    default void billPaymentCanceled(long billId) {}
+
+    /**
+     * Blocks until every record the calling thread has handed over is durable. Services call
+     * this after releasing their lock, so a log may batch records from concurrent writers.
+     */
+    default void awaitDurable() {}
+}
@@ -1,7 +1,11 @@
 package com.airtribe.meditrack.interfaces;
 
+import com.airtribe.meditrack.entity.Page;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 public interface Searchable<T> {
@@ -9,6 +13,20 @@ public interface Searchable<T> {
     Optional<T> findById(long id);
 
     List<T> findByName(String name);
-}
 
+    // Lazy variant of findByName; consumers can stop early without materializing a list
+    default Stream<T> streamByName(String name) {
+        return findByName(name).stream();
+    }
 
+    default Page<T> findByName(String name, int offset, int limit) {
+        return Page.of(streamByName(name), offset, limit);
+    }
+
+    // Ranked fuzzy match on name, best first; falls back to exact matching
+    default List<T> searchByName(String query, int limit) {
+        return findByName(query).stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,265 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.constants.AppointmentStatus;
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Patient;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold tier for closed appointments: gzip-compressed segment files partitioned by the month
+ * of the appointment date ({@code appointments-2024-03.seg.gz}).
+ *
+ * <p>Each segment is a sequence of {@code [int length][payload]} records encoded with
+ * {@link EntityCodec}; every archive run appends one gzip member to the segments it touches.
+ * A small manifest keeps the id range and status counts of every segment, so lookups by id or
+ * date only decompress the segments that can match and statistics need no decompression.</p>
+ */
+public class AppointmentArchive {
+
+    private static final String SEGMENT_PREFIX = "appointments-";
+    private static final String SEGMENT_SUFFIX = ".seg.gz";
+    private static final String MANIFEST = "manifest.txt";
+
+    /** Per-segment summary stored in the manifest. */
+    public record Segment(YearMonth month, long count, long minId, long maxId, long completed, long canceled) {
+
+        boolean mayContain(long id) {
+            return count > 0 && id >= minId && id <= maxId;
+        }
+    }
+
+    private final Path directory;
+    private final LongFunction<Patient> patients;
+    private final NavigableMap<YearMonth, Segment> segments = new TreeMap<>();
+
+    private AppointmentArchive(Path directory, LongFunction<Patient> patients) throws IOException {
+        this.directory = directory;
+        this.patients = patients;
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                String[] f = line.trim().split("\\s+");
+                if (f.length == 6) {
+                    Segment segment = new Segment(YearMonth.parse(f[0]), Long.parseLong(f[1]), Long.parseLong(f[2]),
+                            Long.parseLong(f[3]), Long.parseLong(f[4]), Long.parseLong(f[5]));
+                    segments.put(segment.month(), segment);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens (or starts) an archive in {@code directory}.
+     *
+     * @param patients resolves the patient of an archived appointment when it is read back
+     */
+    public static AppointmentArchive open(Path directory, LongFunction<Patient> patients) throws IOException {
+        return new AppointmentArchive(directory, patients);
+    }
+
+    /**
+     * Appends appointments to their monthly segments. Appointments already archived are
+     * skipped, so a run interrupted before the hot copies were removed can simply be repeated.
+     *
+     * @return ids now safely archived (newly written or already present)
+     */
+    public synchronized Set<Long> append(Collection<Appointment> appointments) throws IOException {
+        Files.createDirectories(directory);
+        Map<YearMonth, List<Appointment>> byMonth = appointments.stream()
+                .filter(a -> a.getAppointmentDateTime() != null)
+                .collect(Collectors.groupingBy(a -> YearMonth.from(a.getAppointmentDateTime()),
+                        TreeMap::new, Collectors.toList()));
+
+        Set<Long> archived = new HashSet<>();
+        EntityCodec.Output record = new EntityCodec.Output(256);
+        for (Map.Entry<YearMonth, List<Appointment>> entry : byMonth.entrySet()) {
+            Path file = segmentFile(entry.getKey());
+            // Rebuild the summary from the segment itself so the manifest can never drift from the data
+            SegmentStats stats = new SegmentStats();
+            Set<Long> existing = new HashSet<>();
+            if (Files.exists(file)) {
+                try (Stream<Appointment> stored = readSegment(file, id -> null)) {
+                    stored.forEach(a -> {
+                        existing.add(a.getId());
+                        stats.add(a);
+                    });
+                }
+            }
+            // Each run appends one complete gzip member; earlier members are never rewritten
+            try (GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024));
+                 DataOutputStream out = new DataOutputStream(gzip)) {
+                for (Appointment appointment : entry.getValue()) {
+                    if (existing.add(appointment.getId())) {
+                        EntityCodec.writeAppointment(record.clear(), appointment);
+                        out.writeInt(record.position());
+                        out.write(record.array(), 0, record.position());
+                        stats.add(appointment);
+                    }
+                    archived.add(appointment.getId());
+                }
+                out.flush();
+                gzip.finish();
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            segments.put(entry.getKey(), stats.toSegment(entry.getKey()));
+        }
+        writeManifest();
+        return archived;
+    }
+
+    private void writeManifest() throws IOException {
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        List<String> lines = segments.values().stream()
+                .map(s -> s.month() + " " + s.count() + " " + s.minId() + " " + s.maxId()
+                        + " " + s.completed() + " " + s.canceled())
+                .collect(Collectors.toList());
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized Optional<Appointment> findById(long id) {
+        for (Segment segment : segments.values()) {
+            if (segment.mayContain(id)) {
+                try (Stream<Appointment> stored = readSegment(segmentFile(segment.month()), patients)) {
+                    Optional<Appointment> match = stored.filter(a -> a.getId() == id).findFirst();
+                    if (match.isPresent()) {
+                        return match;
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Archived appointments dated in {@code [from, to)}; only the overlapping monthly
+     * segments are read, lazily and in month order. Close the stream when done.
+     */
+    public Stream<Appointment> stream(LocalDateTime from, LocalDateTime to) {
+        List<YearMonth> months;
+        synchronized (this) {
+            months = new ArrayList<>(segments.subMap(YearMonth.from(from), true, YearMonth.from(to), true).keySet());
+        }
+        return months.stream()
+                .flatMap(month -> readSegment(segmentFile(month), patients))
+                .filter(a -> !a.getAppointmentDateTime().isBefore(from) && a.getAppointmentDateTime().isBefore(to));
+    }
+
+    /** Every archived appointment, lazily and in month order. Close the stream when done. */
+    public Stream<Appointment> streamAll() {
+        List<YearMonth> months;
+        synchronized (this) {
+            months = new ArrayList<>(segments.keySet());
+        }
+        return months.stream().flatMap(month -> readSegment(segmentFile(month), patients));
+    }
+
+    /** Counts per status, answered from the manifest without reading any segment. */
+    public synchronized Map<AppointmentStatus, Long> countByStatus() {
+        Map<AppointmentStatus, Long> counts = new EnumMap<>(AppointmentStatus.class);
+        long completed = segments.values().stream().mapToLong(Segment::completed).sum();
+        long canceled = segments.values().stream().mapToLong(Segment::canceled).sum();
+        if (completed > 0) {
+            counts.put(AppointmentStatus.COMPLETED, completed);
+        }
+        if (canceled > 0) {
+            counts.put(AppointmentStatus.CANCELED, canceled);
+        }
+        return counts;
+    }
+
+    public synchronized long size() {
+        return segments.values().stream().mapToLong(Segment::count).sum();
+    }
+
+    public synchronized List<Segment> getSegments() {
+        return new ArrayList<>(segments.values());
+    }
+
+    public Path getDirectory() { return directory; }
+
+    private Path segmentFile(YearMonth month) {
+        return directory.resolve(SEGMENT_PREFIX + month + SEGMENT_SUFFIX);
+    }
+
+    // Lazily decodes a segment; GZIPInputStream reads the concatenated members of all runs
+    private static Stream<Appointment> readSegment(Path file, LongFunction<Patient> patients) {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read archive segment " + file, e);
+        }
+        Spliterator<Appointment> records = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            private byte[] buffer = new byte[256];
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Appointment> action) {
+                try {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException end) {
+                        return false;
+                    }
+                    if (buffer.length < length) {
+                        buffer = new byte[length];
+                    }
+                    in.readFully(buffer, 0, length);
+                    action.accept(EntityCodec.readAppointment(ByteBuffer.wrap(buffer, 0, length), patients));
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Corrupt archive segment " + file, e);
+                }
+            }
+        };
+        return StreamSupport.stream(records, false).onClose(() -> {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static final class SegmentStats {
+        long count;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        long completed;
+        long canceled;
+
+        void add(Appointment appointment) {
+            count++;
+            minId = Math.min(minId, appointment.getId());
+            maxId = Math.max(maxId, appointment.getId());
+            if (appointment.getStatus() == AppointmentStatus.COMPLETED) {
+                completed++;
+            } else if (appointment.getStatus() == AppointmentStatus.CANCELED) {
+                canceled++;
+            }
+        }
+
+        Segment toSegment(YearMonth month) {
+            return new Segment(month, count, minId, maxId, completed, canceled);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.interfaces.MutationLog;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records the ids of entities changed since the last checkpoint, then forwards every
+ * mutation to the wrapped log.
+ *
+ * <p>An id is marked before the mutation is handed to the log, so any change whose log
+ * record is already durable when a checkpoint reads the log position is guaranteed to be
+ * in the set that checkpoint {@link #drain() drains}.</p>
+ */
+public class DirtyTracker implements MutationLog {
+
+    /** Ids changed since the previous drain, per entity type. */
+    public record Changes(Set<Long> doctorIds, Set<Long> patientIds, Set<Long> appointmentIds, Set<Long> billIds) {
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        public int size() {
+            return doctorIds.size() + patientIds.size() + appointmentIds.size() + billIds.size();
+        }
+    }
+
+    private final MutationLog delegate;
+    private Set<Long> doctorIds = new HashSet<>();
+    private Set<Long> patientIds = new HashSet<>();
+    private Set<Long> appointmentIds = new HashSet<>();
+    private Set<Long> billIds = new HashSet<>();
+
+    public DirtyTracker(MutationLog delegate) {
+        this.delegate = delegate;
+    }
+
+    /** Returns the changed ids and starts a new, empty change set. */
+    public synchronized Changes drain() {
+        Changes changes = new Changes(Collections.unmodifiableSet(doctorIds), Collections.unmodifiableSet(patientIds),
+                Collections.unmodifiableSet(appointmentIds), Collections.unmodifiableSet(billIds));
+        doctorIds = new HashSet<>();
+        patientIds = new HashSet<>();
+        appointmentIds = new HashSet<>();
+        billIds = new HashSet<>();
+        return changes;
+    }
+
+    /** Puts back ids drained by a checkpoint that then failed. */
+    public synchronized void requeue(Changes changes) {
+        doctorIds.addAll(changes.doctorIds());
+        patientIds.addAll(changes.patientIds());
+        appointmentIds.addAll(changes.appointmentIds());
+        billIds.addAll(changes.billIds());
+    }
+
+    public synchronized int pendingCount() {
+        return doctorIds.size() + patientIds.size() + appointmentIds.size() + billIds.size();
+    }
+
+    private synchronized void markDoctor(long id) { doctorIds.add(id); }
+    private synchronized void markPatient(long id) { patientIds.add(id); }
+    private synchronized void markAppointment(long id) { appointmentIds.add(id); }
+    private synchronized void markBill(long id) { billIds.add(id); }
+
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        markDoctor(doctor.getId());
+        delegate.doctorAdded(doctor);
+    }
+
+    @Override
+    public void doctorUpdated(long doctorId, Doctor doctor) {
+        markDoctor(doctorId);
+        delegate.doctorUpdated(doctorId, doctor);
+    }
+
+    @Override
+    public void doctorRemoved(long doctorId) {
+        markDoctor(doctorId);
+        delegate.doctorRemoved(doctorId);
+    }
+
+    @Override
+    public void patientAdded(Patient patient) {
+        markPatient(patient.getId());
+        delegate.patientAdded(patient);
+    }
+
+    @Override
+    public void patientUpdated(long patientId, Patient patient) {
+        markPatient(patientId);
+        delegate.patientUpdated(patientId, patient);
+    }
+
+    @Override
+    public void patientRemoved(long patientId) {
+        markPatient(patientId);
+        delegate.patientRemoved(patientId);
+    }
+
+    @Override
+    public void doctorAssigned(long patientId, long doctorId) {
+        markPatient(patientId);
+        delegate.doctorAssigned(patientId, doctorId);
+    }
+
+    @Override
+    public void appointmentBooked(Appointment appointment) {
+        markAppointment(appointment.getId());
+        delegate.appointmentBooked(appointment);
+    }
+
+    @Override
+    public void appointmentCanceled(long appointmentId) {
+        markAppointment(appointmentId);
+        delegate.appointmentCanceled(appointmentId);
+    }
+
+    @Override
+    public void appointmentUpdated(long appointmentId, LocalDateTime newDateTime, String newNotes) {
+        markAppointment(appointmentId);
+        delegate.appointmentUpdated(appointmentId, newDateTime, newNotes);
+    }
+
+    @Override
+    public void appointmentArchived(long appointmentId) {
+        markAppointment(appointmentId);
+        delegate.appointmentArchived(appointmentId);
+    }
+
+    @Override
+    public void billCreated(Bill bill) {
+        markBill(bill.getId());
+        delegate.billCreated(bill);
+    }
+
+    @Override
+    public void billPaid(long billId, LocalDateTime paymentDate) {
+        markBill(billId);
+        delegate.billPaid(billId, paymentDate);
+    }
+
+    @Override
+    public void billPaymentCanceled(long billId) {
+        markBill(billId);
+        delegate.billPaymentCanceled(billId);
+    }
+
+    @Override
+    public void awaitDurable() {
+        delegate.awaitDurable();
+    }
+}
@@ -0,0 +1,308 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.interfaces.MutationLog;
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.BillService;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durability for the four services: write-ahead log plus incremental checkpoints.
+ *
+ * <p>{@link #open} recovers state by loading the newest snapshot, applying the delta files
+ * written after it and replaying only the log tail after the last delta, truncates any torn
+ * record at the end of the log, then attaches the log to the services so every further
+ * mutation is durable.</p>
+ *
+ * <p>Every checkpoint starts a new log segment and deletes the segments it covers. Segments
+ * a {@link LogFollower} has not read yet are kept: each follower records its position in
+ * {@value #FOLLOWER_DIR}, and a position not refreshed within {@link #FOLLOWER_TIMEOUT} is
+ * taken to belong to a follower that has gone away.</p>
+ *
+ * <p>A {@link DirtyTracker} in front of the log remembers which entities changed, so a
+ * {@link #checkpoint()} writes only those records as a delta and its cost follows the change
+ * rate rather than the dataset size. Once enough deltas pile up (by count, or by size relative
+ * to the base) the checkpoint compacts them into a new full snapshot.</p>
+ *
+ * <p>Snapshots are fuzzy: the durable LSN is read first and the entity lists are copied
+ * afterwards while writers keep running. Anything that lands in between is both in the
+ * snapshot and in the replayed tail, which the idempotent {@link LogReplayer} tolerates.</p>
+ */
+public class DurableStore implements Closeable {
+
+    public static final String LOG_DIR = "wal";
+    public static final String SNAPSHOT_DIR = "snapshots";
+    public static final String FOLLOWER_DIR = "followers";
+    static final Duration FOLLOWER_TIMEOUT = Duration.ofMinutes(10);
+    // Single-file log written before the log was split into segments
+    private static final String LEGACY_LOG_FILE = "meditrack.wal";
+    private static final int SNAPSHOTS_TO_KEEP = 2;
+    private static final int COMPACT_AFTER_DELTAS = 16;
+
+    private final DoctorService doctorService;
+    private final PatientService patientService;
+    private final AppointmentService appointmentService;
+    private final BillService billService;
+    private final SnapshotStore snapshots;
+    private final Path followers;
+    private final WriteAheadLog log;
+    private final DirtyTracker tracker;
+
+    private final boolean recovered;
+    private final long replayedRecords;
+    private final long skippedRecords;
+    private final long recoveryMillis;
+    private ScheduledExecutorService scheduler;
+
+    // Checkpoint state, guarded by `this`
+    private long checkpointLsn;
+    private int deltasSinceBase;
+    private long deltaBytesSinceBase;
+    private long baseBytes;
+    private long lastCheckpointRecords;
+
+    private DurableStore(Path directory, DoctorService doctorService, PatientService patientService,
+                         AppointmentService appointmentService, BillService billService) throws IOException {
+        this.doctorService = doctorService;
+        this.patientService = patientService;
+        this.appointmentService = appointmentService;
+        this.billService = billService;
+        this.snapshots = new SnapshotStore(directory.resolve(SNAPSHOT_DIR));
+        this.followers = directory.resolve(FOLLOWER_DIR);
+        Path logDir = directory.resolve(LOG_DIR);
+        Path legacyLog = directory.resolve(LEGACY_LOG_FILE);
+        if (Files.exists(legacyLog) && WriteAheadLog.segments(logDir).isEmpty()) {
+            // Its offsets are its LSNs, so it becomes the segment starting at 0
+            Files.createDirectories(logDir);
+            Files.move(legacyLog, WriteAheadLog.segmentFile(logDir, 0));
+        }
+
+        long start = System.nanoTime();
+        long fromLsn = 0;
+        Optional<Path> latest = snapshots.latest();
+        if (latest.isPresent()) {
+            fromLsn = snapshots.load(latest.get(), doctorService, patientService, appointmentService, billService);
+            baseBytes = Files.size(latest.get());
+        }
+        for (Path delta : snapshots.deltasAfter(fromLsn)) {
+            fromLsn = snapshots.loadDelta(delta, doctorService, patientService, appointmentService, billService);
+            deltasSinceBase++;
+            deltaBytesSinceBase += Files.size(delta);
+        }
+        this.checkpointLsn = fromLsn;
+        LogReplayer replayer = new LogReplayer(doctorService, patientService, appointmentService, billService);
+        long validEnd = LogReader.read(logDir, fromLsn, replayer);
+        alignLogEnd(logDir, validEnd);
+
+        this.replayedRecords = replayer.getApplied();
+        this.skippedRecords = replayer.getSkipped();
+        this.recovered = latest.isPresent() || deltasSinceBase > 0 || replayedRecords > 0;
+        this.recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+
+        this.log = new WriteAheadLog(logDir);
+        this.tracker = new DirtyTracker(log);
+        attach(tracker);
+    }
+
+    /**
+     * Recovers the services from {@code directory} and starts logging their mutations.
+     * The services must be empty and must not have a mutation log attached.
+     */
+    public static DurableStore open(Path directory, DoctorService doctorService, PatientService patientService,
+                                    AppointmentService appointmentService, BillService billService) throws IOException {
+        return new DurableStore(directory, doctorService, patientService, appointmentService, billService);
+    }
+
+    // Cuts a torn tail off the log, or starts a segment at the snapshot LSN when the log ends
+    // below it, so new records are never written below an LSN that a snapshot already covers
+    private static void alignLogEnd(Path logDir, long validEnd) throws IOException {
+        Path newest = null;
+        for (Path segment : WriteAheadLog.segments(logDir)) {
+            if (WriteAheadLog.lsnOf(segment) > validEnd) {
+                Files.delete(segment);
+            } else {
+                newest = segment;
+            }
+        }
+        long end = newest != null ? WriteAheadLog.lsnOf(newest) + Files.size(newest) : 0;
+        if (newest != null && end > validEnd) {
+            try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd - WriteAheadLog.lsnOf(newest));
+                channel.force(true);
+            }
+        } else if (end < validEnd) {
+            Files.createDirectories(logDir);
+            Files.createFile(WriteAheadLog.segmentFile(logDir, validEnd));
+        }
+    }
+
+    private void attach(MutationLog mutationLog) {
+        doctorService.setMutationLog(mutationLog);
+        patientService.setMutationLog(mutationLog);
+        appointmentService.setMutationLog(mutationLog);
+        billService.setMutationLog(mutationLog);
+    }
+
+    /**
+     * Writes the entities changed since the previous checkpoint as a delta, or compacts into
+     * a full snapshot when the deltas have grown large. Does nothing if no new log records
+     * have become durable.
+     *
+     * @return the file written, if any
+     */
+    public synchronized Optional<Path> checkpoint() throws IOException {
+        long lsn = log.getDurableLsn();
+        if (lsn == checkpointLsn) {
+            // Pending changes are not durable yet; keep them for the next checkpoint
+            return Optional.empty();
+        }
+        if (deltasSinceBase >= COMPACT_AFTER_DELTAS || deltaBytesSinceBase > baseBytes / 2) {
+            return Optional.of(snapshot());
+        }
+        DirtyTracker.Changes changes = tracker.drain();
+        Path delta;
+        try {
+            delta = snapshots.writeDelta(lsn, changes,
+                    id -> doctorService.findById(id).orElse(null),
+                    id -> patientService.findById(id).orElse(null),
+                    id -> appointmentService.findInWorkingSet(id).orElse(null),
+                    id -> billService.findById(id).orElse(null));
+        } catch (IOException | RuntimeException e) {
+            // Keep the ids so the next checkpoint writes them
+            tracker.requeue(changes);
+            throw e;
+        }
+        checkpointLsn = lsn;
+        deltasSinceBase++;
+        deltaBytesSinceBase += Files.size(delta);
+        lastCheckpointRecords = changes.size();
+        releaseLog(lsn);
+        return Optional.of(delta);
+    }
+
+    /**
+     * Takes a full point-in-time snapshot without stopping writers and drops the deltas it
+     * supersedes.
+     *
+     * @return the snapshot file
+     */
+    public synchronized Path snapshot() throws IOException {
+        long lsn = log.getDurableLsn();
+        // Everything marked so far is covered by the full copy below
+        DirtyTracker.Changes changes = tracker.drain();
+        List<Doctor> doctors = doctorService.getAllDoctors();
+        List<Patient> patients = new ArrayList<>(patientService.getAllPatients());
+        List<Appointment> appointments = appointmentService.getAllAppointments();
+        List<Bill> bills = billService.getAllBills();
+        Path file;
+        try {
+            file = snapshots.write(lsn, doctors, patients, appointments, bills);
+        } catch (IOException | RuntimeException e) {
+            tracker.requeue(changes);
+            throw e;
+        }
+        snapshots.prune(SNAPSHOTS_TO_KEEP);
+        snapshots.deleteDeltasUpTo(lsn);
+        checkpointLsn = lsn;
+        deltasSinceBase = 0;
+        deltaBytesSinceBase = 0;
+        baseBytes = Files.size(file);
+        lastCheckpointRecords = doctors.size() + patients.size() + appointments.size() + bills.size();
+        releaseLog(lsn);
+        return file;
+    }
+
+    // Starts a new segment and deletes the ones holding only records the checkpoint at `lsn`
+    // covers, unless a follower still has to read them
+    private void releaseLog(long lsn) throws IOException {
+        log.roll();
+        log.deleteSegmentsBelow(Math.min(lsn, oldestFollowerLsn()));
+    }
+
+    // Lowest position recorded by a live follower; Long.MAX_VALUE if there is none
+    private long oldestFollowerLsn() throws IOException {
+        if (!Files.isDirectory(followers)) {
+            return Long.MAX_VALUE;
+        }
+        long oldest = Long.MAX_VALUE;
+        long expired = System.currentTimeMillis() - FOLLOWER_TIMEOUT.toMillis();
+        try (DirectoryStream<Path> positions = Files.newDirectoryStream(followers)) {
+            for (Path position : positions) {
+                try {
+                    if (Files.getLastModifiedTime(position).toMillis() < expired) {
+                        Files.deleteIfExists(position);
+                        continue;
+                    }
+                    oldest = Math.min(oldest, Long.parseLong(Files.readString(position).trim()));
+                } catch (NoSuchFileException e) {
+                    // The follower closed meanwhile
+                } catch (NumberFormatException e) {
+                    // Caught mid-write: keep everything until the next checkpoint
+                    oldest = 0;
+                }
+            }
+        }
+        return oldest;
+    }
+
+    public synchronized void startPeriodicSnapshots(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "meditrack-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                // Keep the schedule alive; the next run retries with a fresh copy
+                System.err.println("❌ Checkpoint failed: " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** True if any state was loaded from a snapshot or the log. */
+    public boolean isRecovered() { return recovered; }
+    public long getReplayedRecords() { return replayedRecords; }
+    /** Log records not replayed because the entity they refer to no longer exists. */
+    public long getSkippedRecords() { return skippedRecords; }
+    public long getRecoveryMillis() { return recoveryMillis; }
+    public WriteAheadLog getLog() { return log; }
+    public synchronized int getDeltasSinceBase() { return deltasSinceBase; }
+    /** Records written by the most recent checkpoint or snapshot. */
+    public synchronized long getLastCheckpointRecords() { return lastCheckpointRecords; }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        attach(MutationLog.NONE);
+        log.close();
+    }
+}
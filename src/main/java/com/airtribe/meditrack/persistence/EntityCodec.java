@@ -0,0 +1,305 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.constants.AppointmentStatus;
+import com.airtribe.meditrack.constants.BillStatus;
+import com.airtribe.meditrack.constants.Specialization;
+import com.airtribe.meditrack.entity.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Compact binary encoding of the entities, shared by the write-ahead log and snapshots.
+ *
+ * <p>Enums are stored as ordinals, timestamps as UTC epoch second + nanos, days of week
+ * as a bit mask and strings as length-prefixed UTF-8. References to other entities are
+ * stored as ids and resolved through a lookup function on decode.</p>
+ *
+ * <p>The field-level {@code put*} and {@code get*} helpers are public so the fixed-width
+ * binary entity files encode their fields exactly the same way.</p>
+ */
+public final class EntityCodec {
+
+    static final long NO_REF = -1L;
+
+    private EntityCodec() {}
+
+    // ---------------- Doctor ----------------
+
+    public static void writeDoctor(Output out, Doctor doctor) {
+        out.putLong(doctor.getId());
+        out.putString(doctor.getName());
+        out.putInt(doctor.getExperience());
+        out.putEnum(doctor.getSpecialization());
+        out.putDays(doctor.getAvailableDays());
+        out.putDateTime(doctor.getCreatedAt());
+        out.putTime(doctor.getAvailableFrom());
+        out.putTime(doctor.getAvailableTo());
+    }
+
+    public static Doctor readDoctor(ByteBuffer in) {
+        Doctor doctor = new Doctor();
+        doctor.setId(in.getLong());
+        doctor.setName(getString(in));
+        doctor.setExperience(in.getInt());
+        doctor.setSpecialization(getEnum(in, Specialization.values()));
+        doctor.setAvailableDays(getDays(in));
+        doctor.setCreatedAt(getDateTime(in));
+        doctor.setAvailableFrom(getTime(in));
+        doctor.setAvailableTo(getTime(in));
+        return doctor;
+    }
+
+    // ---------------- Patient / Person ----------------
+
+    public static void writePatient(Output out, Patient patient) {
+        out.putLong(patient.getId());
+        out.putDateTime(patient.getRegistrationDate());
+        Person person = patient.getPerson();
+        out.putByte(person != null ? 1 : 0);
+        if (person != null) {
+            out.putLong(person.getId());
+            out.putString(person.getName());
+            out.putInt(person.getAge());
+            out.putString(person.getMobileNo());
+            out.putDateTime(person.getCreatedAt());
+        }
+        out.putLong(patient.getAssignedDoctors() != null ? patient.getAssignedDoctors().getId() : NO_REF);
+        out.putString(patient.getMedicalRecordNumber());
+        out.putByte(patient.isActive() ? 1 : 0);
+    }
+
+    public static Patient readPatient(ByteBuffer in, LongFunction<Doctor> doctors) {
+        Patient patient = new Patient();
+        patient.setId(in.getLong());
+        patient.setRegistrationDate(getDateTime(in));
+        if (in.get() == 1) {
+            Person person = new Person();
+            person.setId(in.getLong());
+            person.setName(getString(in));
+            person.setAge(in.getInt());
+            person.setMobileNo(getString(in));
+            person.setCreatedAt(getDateTime(in));
+            patient.setPerson(person);
+        }
+        long doctorId = in.getLong();
+        patient.setAssignedDoctors(doctorId != NO_REF ? doctors.apply(doctorId) : null);
+        patient.setMedicalRecordNumber(getString(in));
+        patient.setActive(in.get() == 1);
+        return patient;
+    }
+
+    // ---------------- Appointment ----------------
+
+    public static void writeAppointment(Output out, Appointment appointment) {
+        out.putLong(appointment.getId());
+        out.putLong(appointment.getPatient() != null ? appointment.getPatient().getId() : NO_REF);
+        out.putDateTime(appointment.getAppointmentDateTime());
+        out.putEnum(appointment.getStatus());
+        out.putString(appointment.getNotes());
+    }
+
+    public static Appointment readAppointment(ByteBuffer in, LongFunction<Patient> patients) {
+        Appointment appointment = new Appointment();
+        appointment.setId(in.getLong());
+        long patientId = in.getLong();
+        appointment.setPatient(patientId != NO_REF ? patients.apply(patientId) : null);
+        appointment.setAppointmentDateTime(getDateTime(in));
+        appointment.setStatus(getEnum(in, AppointmentStatus.values()));
+        appointment.setNotes(getString(in));
+        return appointment;
+    }
+
+    // ---------------- Bill ----------------
+
+    public static void writeBill(Output out, Bill bill) {
+        out.putLong(bill.getId());
+        out.putLong(bill.getAppointment() != null ? bill.getAppointment().getId() : NO_REF);
+        out.putDouble(bill.getAmount());
+        out.putEnum(bill.getStatus());
+        out.putDateTime(bill.getCreatedAt());
+        out.putDateTime(bill.getPaymentDate());
+        out.putString(bill.getNotes());
+    }
+
+    public static Bill readBill(ByteBuffer in, LongFunction<Appointment> appointments) {
+        Bill bill = new Bill();
+        bill.setId(in.getLong());
+        long appointmentId = in.getLong();
+        bill.setAppointment(appointmentId != NO_REF ? appointments.apply(appointmentId) : null);
+        bill.setAmount(in.getDouble());
+        bill.setStatus(getEnum(in, BillStatus.values()));
+        bill.setCreatedAt(getDateTime(in));
+        bill.setPaymentDate(getDateTime(in));
+        bill.setNotes(getString(in));
+        return bill;
+    }
+
+    // ---------------- Field encodings ----------------
+
+    public static final int DATE_TIME_BYTES = 12;
+
+    public static void putDateTime(ByteBuffer out, LocalDateTime value) {
+        if (value == null) {
+            out.putLong(0).putInt(-1);
+        } else {
+            out.putLong(value.toEpochSecond(ZoneOffset.UTC)).putInt(value.getNano());
+        }
+    }
+
+    public static void putTime(ByteBuffer out, LocalTime value) {
+        out.putInt(value == null ? -1 : value.toSecondOfDay());
+    }
+
+    public static void putEnum(ByteBuffer out, Enum<?> value) {
+        out.put((byte) (value == null ? -1 : value.ordinal()));
+    }
+
+    public static void putDays(ByteBuffer out, Set<DayOfWeek> days) {
+        if (days == null) {
+            out.put((byte) -1);
+            return;
+        }
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << day.ordinal();
+        }
+        out.put((byte) mask);
+    }
+
+    public static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static LocalDateTime getDateTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return nanos < 0 ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    public static LocalTime getTime(ByteBuffer in) {
+        int seconds = in.getInt();
+        return seconds < 0 ? null : LocalTime.ofSecondOfDay(seconds);
+    }
+
+    public static <E extends Enum<E>> E getEnum(ByteBuffer in, E[] values) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    public static Set<DayOfWeek> getDays(ByteBuffer in) {
+        byte mask = in.get();
+        if (mask < 0) {
+            return null;
+        }
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((mask & (1 << day.ordinal())) != 0) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Growable, reusable output buffer. Call {@link #clear()} to reuse it for the next record.
+     */
+    public static final class Output {
+
+        private ByteBuffer buffer;
+
+        public Output(int initialCapacity) {
+            this.buffer = ByteBuffer.allocate(initialCapacity);
+        }
+
+        public Output clear() {
+            buffer.clear();
+            return this;
+        }
+
+        public int position() {
+            return buffer.position();
+        }
+
+        /** Flipped read-only view of the bytes written since the last clear. */
+        public ByteBuffer view() {
+            return buffer.duplicate().flip();
+        }
+
+        public byte[] array() {
+            return buffer.array();
+        }
+
+        public void putByte(int value) {
+            ensure(1).put((byte) value);
+        }
+
+        public void putInt(int value) {
+            ensure(4).putInt(value);
+        }
+
+        public void putIntAt(int index, int value) {
+            buffer.putInt(index, value);
+        }
+
+        public void putLong(long value) {
+            ensure(8).putLong(value);
+        }
+
+        public void putDouble(double value) {
+            ensure(8).putDouble(value);
+        }
+
+        public void putBytes(byte[] bytes) {
+            ensure(bytes.length).put(bytes);
+        }
+
+        public void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length).putInt(bytes.length).put(bytes);
+        }
+
+        public void putDateTime(LocalDateTime value) {
+            EntityCodec.putDateTime(ensure(DATE_TIME_BYTES), value);
+        }
+
+        void putTime(LocalTime value) {
+            EntityCodec.putTime(ensure(4), value);
+        }
+
+        void putEnum(Enum<?> value) {
+            EntityCodec.putEnum(ensure(1), value);
+        }
+
+        void putDays(Set<DayOfWeek> days) {
+            EntityCodec.putDays(ensure(1), days);
+        }
+
+        private ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                grown.put(buffer.flip());
+                buffer = grown;
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.BillService;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read replica of a {@link DurableStore} kept up to date by shipping its log through the
+ * shared data directory.
+ *
+ * <p>{@link #open} loads the primary's newest snapshot and deltas into the follower's own
+ * services, exactly like recovery does. After that every {@link #poll()} reads the records
+ * appended to the primary's write-ahead log since the last one and applies them with a
+ * {@link LogReplayer}. The primary is never contacted and never waits for a follower, so any
+ * number of followers can run, each in its own process.</p>
+ *
+ * <p>Each follower writes the LSN it has applied up to into its own file under
+ * {@link DurableStore#FOLLOWER_DIR}, and the primary keeps the log segments from there on
+ * when a checkpoint would otherwise delete them. The file is refreshed at least every few
+ * minutes and deleted on {@link #close()}.</p>
+ *
+ * <p>The follower's services must only be read: a local write would not reach the primary
+ * and would be overwritten or contradicted by the next record. A record becomes visible to
+ * a follower once written, which can be just before the primary's fsync; archived
+ * appointments leave the follower's working set and are not served from the archive.</p>
+ */
+public class LogFollower implements Closeable {
+
+    /**
+     * How far the follower trails the primary. {@code lagMillis} is the time since the
+     * follower last had every logged record applied, or 0 while it is caught up.
+     */
+    public record Lag(long appliedLsn, long primaryLsn, long lagBytes, long lagMillis,
+                      long appliedRecords, long skippedRecords, long polls) {}
+
+    private final Path logDir;
+    private final Path position;
+    private final LogReplayer replayer;
+    private ScheduledExecutorService scheduler;
+
+    // Poll state, guarded by `this`
+    private long appliedLsn;
+    private long recordedLsn = -1;
+    private long recordedAtMillis;
+    private long polls;
+    private volatile long caughtUpAtMillis;
+
+    private LogFollower(Path directory, DoctorService doctorService, PatientService patientService,
+                        AppointmentService appointmentService, BillService billService) throws IOException {
+        this.logDir = directory.resolve(DurableStore.LOG_DIR);
+        this.position = directory.resolve(DurableStore.FOLLOWER_DIR).resolve(UUID.randomUUID() + ".lsn");
+        this.replayer = new LogReplayer(doctorService, patientService, appointmentService, billService);
+        // Holds on to the whole log until the checkpoint to start from is loaded
+        Files.createDirectories(position.getParent());
+        recordPosition(0);
+
+        SnapshotStore snapshots = new SnapshotStore(directory.resolve(DurableStore.SNAPSHOT_DIR));
+        long fromLsn = 0;
+        Optional<Path> latest = snapshots.latest();
+        if (latest.isPresent()) {
+            fromLsn = snapshots.load(latest.get(), doctorService, patientService, appointmentService, billService);
+        }
+        for (Path delta : snapshots.deltasAfter(fromLsn)) {
+            fromLsn = snapshots.loadDelta(delta, doctorService, patientService, appointmentService, billService);
+        }
+        this.appliedLsn = fromLsn;
+        this.caughtUpAtMillis = System.currentTimeMillis();
+        poll();
+    }
+
+    /**
+     * Loads the primary's last checkpoint from {@code directory} into the services and applies
+     * the log written since. The services must be empty and must not have a mutation log attached.
+     */
+    public static LogFollower open(Path directory, DoctorService doctorService, PatientService patientService,
+                                   AppointmentService appointmentService, BillService billService) throws IOException {
+        return new LogFollower(directory, doctorService, patientService, appointmentService, billService);
+    }
+
+    /**
+     * Applies the records appended since the previous poll. A record still being written is
+     * left for the next poll.
+     *
+     * @return number of records read
+     */
+    public synchronized long poll() throws IOException {
+        polls++;
+        long now = System.currentTimeMillis();
+        long primaryLsn = primaryLsn();
+        if (primaryLsn <= appliedLsn) {
+            caughtUpAtMillis = now;
+            recordPosition(appliedLsn);
+            return 0;
+        }
+        long before = replayer.getApplied() + replayer.getSkipped();
+        try {
+            appliedLsn = Math.max(appliedLsn, LogReader.read(logDir, appliedLsn, replayer));
+        } finally {
+            recordPosition(appliedLsn);
+        }
+        if (appliedLsn >= primaryLsn) {
+            caughtUpAtMillis = now;
+        }
+        return replayer.getApplied() + replayer.getSkipped() - before;
+    }
+
+    // Rewritten when the position moves, and often enough that the primary does not expire it
+    private void recordPosition(long lsn) throws IOException {
+        long now = System.currentTimeMillis();
+        if (lsn != recordedLsn || now - recordedAtMillis > DurableStore.FOLLOWER_TIMEOUT.toMillis() / 4) {
+            Files.writeString(position, Long.toString(lsn));
+            recordedLsn = lsn;
+            recordedAtMillis = now;
+        }
+    }
+
+    /** Polls every {@code interval} on a daemon thread until closed. */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "meditrack-follower");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (IOException | RuntimeException e) {
+                // Keep following; the next poll retries from the same position
+                System.err.println("❌ Replication poll failed: " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Lag getLag() {
+        long primaryLsn;
+        try {
+            primaryLsn = primaryLsn();
+        } catch (IOException e) {
+            primaryLsn = -1;
+        }
+        synchronized (this) {
+            long lagBytes = Math.max(0, primaryLsn - appliedLsn);
+            long lagMillis = lagBytes == 0 ? 0 : System.currentTimeMillis() - caughtUpAtMillis;
+            return new Lag(appliedLsn, primaryLsn, lagBytes, lagMillis,
+                    replayer.getApplied(), replayer.getSkipped(), polls);
+        }
+    }
+
+    // End of what the primary has written to its log so far
+    private long primaryLsn() throws IOException {
+        return WriteAheadLog.endOf(logDir);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        try {
+            Files.deleteIfExists(position);
+        } catch (IOException e) {
+            // Left behind, the position expires after DurableStore.FOLLOWER_TIMEOUT
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.airtribe.meditrack.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Sequential reader for {@link WriteAheadLog} segments.
+ *
+ * <p>Reading stops at the first incomplete or corrupt frame, which is what a crash in the
+ * middle of a group commit leaves behind, and at a gap between segments. The returned LSN is
+ * the end of the valid log.</p>
+ */
+public final class LogReader {
+
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        /**
+         * @param payload record body positioned after the type byte
+         * @param lsn     offset just past this record
+         */
+        void accept(LogRecordType type, ByteBuffer payload, long lsn);
+    }
+
+    private LogReader() {}
+
+    /**
+     * Reads every valid record starting at {@code fromLsn} from the log in {@code directory},
+     * moving on from one segment to the next.
+     *
+     * @return the LSN just past the last valid record; {@code fromLsn} if there is no log
+     * @throws IOException also if the segment holding {@code fromLsn} has been deleted
+     */
+    public static long read(Path directory, long fromLsn, RecordHandler handler) throws IOException {
+        List<Path> segments = WriteAheadLog.segments(directory);
+        if (segments.isEmpty()) {
+            return fromLsn;
+        }
+        if (WriteAheadLog.lsnOf(segments.get(0)) > fromLsn) {
+            throw new IOException("Log records from LSN " + fromLsn + " on were deleted from " + directory);
+        }
+        int first = 0;
+        while (first + 1 < segments.size() && WriteAheadLog.lsnOf(segments.get(first + 1)) <= fromLsn) {
+            first++;
+        }
+        long validEnd = fromLsn;
+        for (int i = first; i < segments.size(); i++) {
+            long segmentLsn = WriteAheadLog.lsnOf(segments.get(i));
+            if (segmentLsn > validEnd) {
+                // The previous segment ends torn or short; nothing after the gap is valid
+                return validEnd;
+            }
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                validEnd = read(channel, segmentLsn, validEnd, handler);
+            }
+        }
+        return validEnd;
+    }
+
+    /**
+     * Reads every valid record of one segment starting at {@code fromLsn}.
+     *
+     * @param segmentLsn LSN of the first byte of the segment
+     * @return the LSN just past the last valid record
+     */
+    public static long read(FileChannel channel, long segmentLsn, long fromLsn, RecordHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        long position = fromLsn - segmentLsn;
+        long validEnd = fromLsn;
+        buffer.flip();
+        CRC32C crc = new CRC32C();
+
+        while (true) {
+            if (buffer.remaining() < WriteAheadLog.HEADER_BYTES
+                    && !fill(channel, buffer, position, WriteAheadLog.HEADER_BYTES)) {
+                return validEnd;
+            }
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + 4);
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return validEnd;
+            }
+            int frame = WriteAheadLog.HEADER_BYTES + length;
+            if (buffer.remaining() < frame) {
+                if (buffer.capacity() < frame) {
+                    buffer = ByteBuffer.allocate(frame).put(buffer).flip();
+                }
+                if (!fill(channel, buffer, position, frame)) {
+                    return validEnd;
+                }
+            }
+
+            int start = buffer.position() + WriteAheadLog.HEADER_BYTES;
+            crc.reset();
+            crc.update(buffer.slice(start, length));
+            if ((int) crc.getValue() != checksum) {
+                return validEnd;
+            }
+            ByteBuffer payload = buffer.slice(start + 1, length - 1);
+            LogRecordType type = LogRecordType.fromCode(buffer.get(start));
+            validEnd += frame;
+            handler.accept(type, payload, validEnd);
+            buffer.position(buffer.position() + frame);
+            position += frame;
+        }
+    }
+
+    // Compacts the unread bytes to the front and reads more until `needed` bytes are available
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, long position, int needed) throws IOException {
+        int unread = buffer.remaining();
+        buffer.compact();
+        long readAt = position + unread;
+        while (buffer.position() < needed) {
+            int n = channel.read(buffer, readAt);
+            if (n <= 0) {
+                buffer.flip();
+                return false;
+            }
+            readAt += n;
+        }
+        buffer.flip();
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.airtribe.meditrack.persistence;
+
+/**
+ * Record types of the write-ahead log. The code byte is part of the on-disk format
+ * and must never be reused or renumbered.
+ */
+public enum LogRecordType {
+    DOCTOR_ADDED(1),
+    DOCTOR_UPDATED(2),
+    DOCTOR_REMOVED(3),
+    PATIENT_ADDED(10),
+    PATIENT_UPDATED(11),
+    PATIENT_REMOVED(12),
+    DOCTOR_ASSIGNED(13),
+    APPOINTMENT_BOOKED(20),
+    APPOINTMENT_CANCELED(21),
+    APPOINTMENT_UPDATED(22),
+    APPOINTMENT_ARCHIVED(23),
+    BILL_CREATED(30),
+    BILL_PAID(31),
+    BILL_PAYMENT_CANCELED(32);
+
+    private static final LogRecordType[] BY_CODE = new LogRecordType[128];
+
+    static {
+        for (LogRecordType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    LogRecordType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public static LogRecordType fromCode(byte code) {
+        LogRecordType type = code >= 0 ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown log record type: " + code);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,128 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.BillService;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+/**
+ * Applies write-ahead log records to the in-memory services.
+ *
+ * <p>Every record is applied as an idempotent redo: inserts become upserts and state changes
+ * are re-set rather than toggled, so records already contained in a fuzzy snapshot can be
+ * replayed again safely. State changes go through the services' {@code apply*} methods,
+ * which store them the way live writes do, so revisions and snapshot statistics come out the
+ * same as on the primary. The services must not have a mutation log attached while replaying.</p>
+ *
+ * <p>A booking or bill whose patient or appointment no longer exists is skipped and counted:
+ * a later record in the fuzzy window removed what it refers to. Any other failure stops the
+ * replay, since going on would leave the services silently diverged from the log.</p>
+ */
+public class LogReplayer implements LogReader.RecordHandler {
+
+    private final DoctorService doctorService;
+    private final PatientService patientService;
+    private final AppointmentService appointmentService;
+    private final BillService billService;
+
+    private long applied;
+    private long skipped;
+    private long lastLsn;
+
+    public LogReplayer(DoctorService doctorService, PatientService patientService,
+                       AppointmentService appointmentService, BillService billService) {
+        this.doctorService = doctorService;
+        this.patientService = patientService;
+        this.appointmentService = appointmentService;
+        this.billService = billService;
+    }
+
+    /**
+     * @throws IllegalStateException if the record cannot be applied for any reason other than
+     *                               a missing reference
+     */
+    @Override
+    public void accept(LogRecordType type, ByteBuffer in, long lsn) {
+        lastLsn = lsn;
+        boolean done;
+        try {
+            done = apply(type, in);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cannot replay " + type + " record ending at LSN " + lsn, e);
+        }
+        if (done) {
+            applied++;
+        } else {
+            skipped++;
+        }
+    }
+
+    // False if the record refers to a patient or appointment that no longer exists
+    private boolean apply(LogRecordType type, ByteBuffer in) {
+        switch (type) {
+            case DOCTOR_ADDED -> doctorService.restoreDoctor(EntityCodec.readDoctor(in));
+            case DOCTOR_UPDATED -> {
+                long doctorId = in.getLong();
+                Doctor doctor = EntityCodec.readDoctor(in);
+                doctor.setId(doctorId);
+                doctorService.restoreDoctor(doctor);
+            }
+            case DOCTOR_REMOVED -> doctorService.removeDoctor(in.getLong());
+            case PATIENT_ADDED -> patientService.restorePatient(EntityCodec.readPatient(in, this::doctor));
+            case PATIENT_UPDATED -> {
+                long patientId = in.getLong();
+                Patient patient = EntityCodec.readPatient(in, this::doctor);
+                patient.setId(patientId);
+                patientService.restorePatient(patient);
+            }
+            case PATIENT_REMOVED -> patientService.removePatient(in.getLong());
+            case DOCTOR_ASSIGNED -> {
+                long patientId = in.getLong();
+                patientService.applyDoctorAssigned(patientId, doctor(in.getLong()));
+            }
+            case APPOINTMENT_BOOKED -> {
+                Appointment appointment = EntityCodec.readAppointment(in, id -> patientService.findById(id).orElse(null));
+                if (appointment.getPatient() == null) {
+                    return false;
+                }
+                appointmentService.restoreAppointment(appointment);
+            }
+            case APPOINTMENT_CANCELED -> appointmentService.applyCanceled(in.getLong());
+            case APPOINTMENT_UPDATED -> {
+                long appointmentId = in.getLong();
+                LocalDateTime dateTime = EntityCodec.getDateTime(in);
+                String notes = EntityCodec.getString(in);
+                appointmentService.applyUpdated(appointmentId, dateTime, notes);
+            }
+            case APPOINTMENT_ARCHIVED -> appointmentService.evictAppointment(in.getLong());
+            case BILL_CREATED -> {
+                Bill bill = EntityCodec.readBill(in, id -> appointmentService.findById(id).orElse(null));
+                if (bill.getAppointment() == null) {
+                    return false;
+                }
+                billService.restoreBill(bill);
+            }
+            case BILL_PAID -> {
+                long billId = in.getLong();
+                billService.applyPaid(billId, EntityCodec.getDateTime(in));
+            }
+            case BILL_PAYMENT_CANCELED -> billService.applyPaymentCanceled(in.getLong());
+        }
+        return true;
+    }
+
+    private Doctor doctor(long doctorId) {
+        return doctorId < 0 ? null : doctorService.findById(doctorId).orElse(null);
+    }
+
+    public long getApplied() { return applied; }
+    public long getSkipped() { return skipped; }
+    public long getLastLsn() { return lastLsn; }
+}
@@ -0,0 +1,315 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.BillService;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Point-in-time snapshots of all four services.
+ *
+ * <p>File layout: {@code [int magic][int version][long lsn]} followed by four sections
+ * (doctors, patients, appointments, bills), each a {@code long count} and then
+ * {@code [int length][payload]} records encoded with {@link EntityCodec}. Snapshots are
+ * written to a temporary file and atomically renamed, and are loaded through read-only
+ * memory mappings so the OS pages them in without copying through heap buffers.</p>
+ *
+ * <p>Delta files use the same layout with magic {@code "MTDL"}, but hold only the entities
+ * changed since the previous checkpoint; each record starts with an op byte: upsert followed
+ * by the encoded entity, or delete followed by the id. A delta is applied on top of the
+ * newest full snapshot with a lower LSN.</p>
+ */
+public class SnapshotStore {
+
+    static final int MAGIC = 0x4D54534E; // "MTSN"
+    static final int VERSION = 1;
+    static final int DELTA_MAGIC = 0x4D54444C; // "MTDL"
+
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final String DELTA_PREFIX = "delta-";
+    private static final String DELTA_SUFFIX = ".delta";
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Writes a snapshot labelled with {@code lsn}: the log position up to which every
+     * mutation is already reflected in the given entities.
+     */
+    public Path write(long lsn, List<Doctor> doctors, List<Patient> patients,
+                      List<Appointment> appointments, List<Bill> bills) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(lsn);
+            EntityCodec.Output record = new EntityCodec.Output(1024);
+            buffer = writeSection(channel, buffer, record, doctors, EntityCodec::writeDoctor);
+            buffer = writeSection(channel, buffer, record, patients, EntityCodec::writePatient);
+            buffer = writeSection(channel, buffer, record, appointments, EntityCodec::writeAppointment);
+            buffer = writeSection(channel, buffer, record, bills, EntityCodec::writeBill);
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /**
+     * Writes a delta labelled with {@code lsn} holding the current state of every changed id.
+     * Ids no longer found through the lookups are written as deletes.
+     */
+    public Path writeDelta(long lsn, DirtyTracker.Changes changes,
+                           LongFunction<Doctor> doctors, LongFunction<Patient> patients,
+                           LongFunction<Appointment> appointments, LongFunction<Bill> bills) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("%s%020d%s", DELTA_PREFIX, lsn, DELTA_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            buffer.putInt(DELTA_MAGIC).putInt(VERSION).putLong(lsn);
+            EntityCodec.Output record = new EntityCodec.Output(1024);
+            buffer = writeDeltaSection(channel, buffer, record, changes.doctorIds(), doctors, EntityCodec::writeDoctor);
+            buffer = writeDeltaSection(channel, buffer, record, changes.patientIds(), patients, EntityCodec::writePatient);
+            buffer = writeDeltaSection(channel, buffer, record, changes.appointmentIds(), appointments, EntityCodec::writeAppointment);
+            buffer = writeDeltaSection(channel, buffer, record, changes.billIds(), bills, EntityCodec::writeBill);
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    private static <T> ByteBuffer writeDeltaSection(FileChannel channel, ByteBuffer buffer, EntityCodec.Output record,
+                                                    Set<Long> ids, LongFunction<T> lookup,
+                                                    BiConsumer<EntityCodec.Output, T> encoder) throws IOException {
+        buffer = ensure(channel, buffer, 8);
+        buffer.putLong(ids.size());
+        for (long id : ids) {
+            T entity = lookup.apply(id);
+            record.clear();
+            if (entity != null) {
+                record.putByte(UPSERT);
+                encoder.accept(record, entity);
+            } else {
+                record.putByte(DELETE);
+                record.putLong(id);
+            }
+            buffer = ensure(channel, buffer, 4 + record.position());
+            buffer.putInt(record.position()).put(record.array(), 0, record.position());
+        }
+        return buffer;
+    }
+
+    private static <T> ByteBuffer writeSection(FileChannel channel, ByteBuffer buffer, EntityCodec.Output record,
+                                               List<T> entities, BiConsumer<EntityCodec.Output, T> encoder) throws IOException {
+        buffer = ensure(channel, buffer, 8);
+        buffer.putLong(entities.size());
+        for (T entity : entities) {
+            encoder.accept(record.clear(), entity);
+            buffer = ensure(channel, buffer, 4 + record.position());
+            buffer.putInt(record.position()).put(record.array(), 0, record.position());
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(channel, buffer);
+            if (buffer.capacity() < bytes) {
+                return ByteBuffer.allocateDirect(bytes);
+            }
+        }
+        return buffer;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Newest complete snapshot, if any. */
+    public Optional<Path> latest() throws IOException {
+        List<Path> snapshots = list(PREFIX, SUFFIX);
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(snapshots.size() - 1));
+    }
+
+    /** Deletes all but the newest {@code keep} snapshots. */
+    public void prune(int keep) throws IOException {
+        List<Path> snapshots = list(PREFIX, SUFFIX);
+        for (int i = 0; i < snapshots.size() - keep; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    /** Deltas with an LSN above {@code lsn}, oldest first. */
+    public List<Path> deltasAfter(long lsn) throws IOException {
+        return list(DELTA_PREFIX, DELTA_SUFFIX).stream()
+                .filter(p -> lsnOf(p) > lsn)
+                .collect(Collectors.toList());
+    }
+
+    /** Deletes deltas already folded into a snapshot at {@code lsn}. */
+    public void deleteDeltasUpTo(long lsn) throws IOException {
+        for (Path delta : list(DELTA_PREFIX, DELTA_SUFFIX)) {
+            if (lsnOf(delta) <= lsn) {
+                Files.deleteIfExists(delta);
+            }
+        }
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> p.getFileName().toString().startsWith(prefix))
+                    .filter(p -> p.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Loads a snapshot into the services through {@code restore*} and returns its LSN.
+     */
+    public long load(Path snapshot, DoctorService doctorService, PatientService patientService,
+                     AppointmentService appointmentService, BillService billService) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedCursor cursor = new MappedCursor(channel);
+            ByteBuffer header = cursor.next(16);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a MediTrack snapshot: " + snapshot);
+            }
+            long lsn = header.getLong();
+
+            readSection(cursor, in -> doctorService.restoreDoctor(EntityCodec.readDoctor(in)));
+            readSection(cursor, in -> patientService.restorePatient(EntityCodec.readPatient(in,
+                    id -> doctorService.findById(id).orElse(null))));
+            readSection(cursor, in -> appointmentService.restoreAppointment(EntityCodec.readAppointment(in,
+                    id -> patientService.findById(id).orElse(null))));
+            readSection(cursor, in -> billService.restoreBill(EntityCodec.readBill(in,
+                    id -> appointmentService.findById(id).orElse(null))));
+            return lsn;
+        }
+    }
+
+    /**
+     * Applies a delta on top of already loaded state and returns its LSN.
+     */
+    public long loadDelta(Path delta, DoctorService doctorService, PatientService patientService,
+                          AppointmentService appointmentService, BillService billService) throws IOException {
+        try (FileChannel channel = FileChannel.open(delta, StandardOpenOption.READ)) {
+            MappedCursor cursor = new MappedCursor(channel);
+            ByteBuffer header = cursor.next(16);
+            if (header.getInt() != DELTA_MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a MediTrack delta: " + delta);
+            }
+            long lsn = header.getLong();
+
+            readDeltaSection(cursor, in -> doctorService.restoreDoctor(EntityCodec.readDoctor(in)),
+                    doctorService::removeDoctor);
+            readDeltaSection(cursor, in -> patientService.restorePatient(EntityCodec.readPatient(in,
+                    id -> doctorService.findById(id).orElse(null))), patientService::removePatient);
+            // Appointments leave memory only when archived; bills are never removed
+            readDeltaSection(cursor, in -> appointmentService.restoreAppointment(EntityCodec.readAppointment(in,
+                    id -> patientService.findById(id).orElse(null))), appointmentService::evictAppointment);
+            readDeltaSection(cursor, in -> billService.restoreBill(EntityCodec.readBill(in,
+                    id -> appointmentService.findById(id).orElse(null))), id -> {});
+            return lsn;
+        }
+    }
+
+    /** LSN encoded in a snapshot or delta file name. */
+    public static long lsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+    }
+
+    private static void readSection(MappedCursor cursor, Consumer<ByteBuffer> decoder) throws IOException {
+        long count = cursor.next(8).getLong();
+        for (long i = 0; i < count; i++) {
+            int length = cursor.next(4).getInt();
+            decoder.accept(cursor.next(length));
+        }
+    }
+
+    private static void readDeltaSection(MappedCursor cursor, Consumer<ByteBuffer> upsert, LongConsumer delete) throws IOException {
+        readSection(cursor, in -> {
+            if (in.get() == UPSERT) {
+                upsert.accept(in);
+            } else {
+                delete.accept(in.getLong());
+            }
+        });
+    }
+
+    /**
+     * Walks a file through read-only mappings of up to 1 GiB, remapping when a read would
+     * cross the current window, so snapshots larger than 2 GiB are still supported.
+     */
+    private static final class MappedCursor {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedCursor(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        ByteBuffer next(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (position + bytes > size) {
+                    throw new IOException("Truncated snapshot at offset " + position);
+                }
+                map(position);
+            }
+            ByteBuffer slice = window.slice(window.position(), bytes);
+            window.position(window.position() + bytes);
+            return slice;
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+        }
+    }
+}
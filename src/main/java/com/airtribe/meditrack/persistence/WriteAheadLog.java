@@ -0,0 +1,448 @@
+package com.airtribe.meditrack.persistence;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.interfaces.MutationLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log of service mutations with group commit.
+ *
+ * <p>Each record is framed as {@code [int length][int crc32c][byte type][payload]}, where
+ * length and checksum cover type and payload. The log sequence number (LSN) of a record
+ * is its offset just past its end, counted across the whole log.</p>
+ *
+ * <p>The log is a directory of segment files, each named after the LSN its first byte has.
+ * Records are appended to the newest segment; {@link #roll()} starts a new one, and once a
+ * checkpoint covers older segments {@link #deleteSegmentsBelow(long)} removes them, so the
+ * log does not grow without bound.</p>
+ *
+ * <p>Group commit: an appender copies its record into a shared buffer and waits until the
+ * log is durable up to its LSN. If no flush is running it becomes the leader, swaps the
+ * buffer out and writes + fsyncs everything queued so far; appenders that arrive meanwhile
+ * queue into the other buffer and are covered by the next single fsync.</p>
+ *
+ * <p>As a {@link MutationLog} the log only queues each record and remembers its LSN for the
+ * calling thread; the service waits in {@link #awaitDurable()} after releasing its own lock.
+ * Writers serialized by a service lock therefore still share group commits.</p>
+ */
+public class WriteAheadLog implements MutationLog, Closeable {
+
+    static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private static final ThreadLocal<EntityCodec.Output> RECORD_BUFFER =
+            ThreadLocal.withInitial(() -> new EntityCodec.Output(512));
+
+    private final Path directory;
+    private final boolean fsync;
+    // Newest segment and the LSN of its first byte; swapped by roll() while no flush runs
+    private FileChannel channel;
+    private long segmentLsn;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+    private long appendedLsn;
+    private long durableLsn;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    // LSN of the last record each thread queued through the MutationLog methods
+    private final ThreadLocal<long[]> lastQueuedLsn = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    public WriteAheadLog(Path directory) throws IOException {
+        this(directory, true);
+    }
+
+    /**
+     * Opens the log in {@code directory}, appending after the end of its newest segment.
+     *
+     * @param fsync force every group commit to disk; disable only for tests and benchmarks
+     */
+    public WriteAheadLog(Path directory, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.fsync = fsync;
+        List<Path> segments = segments(directory);
+        this.segmentLsn = segments.isEmpty() ? 0 : lsnOf(segments.get(segments.size() - 1));
+        this.channel = openSegment(directory, segmentLsn);
+        this.appendedLsn = segmentLsn + channel.size();
+        this.durableLsn = appendedLsn;
+        channel.position(channel.size());
+    }
+
+    private static FileChannel openSegment(Path directory, long lsn) throws IOException {
+        return FileChannel.open(segmentFile(directory, lsn), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    // ---------------- Segments ----------------
+
+    /** Segment file in {@code directory} whose first byte has LSN {@code lsn}. */
+    public static Path segmentFile(Path directory, long lsn) {
+        return directory.resolve(String.format("%020d%s", lsn, SEGMENT_SUFFIX));
+    }
+
+    /** LSN of the first byte of a segment, from its file name. */
+    public static long lsnOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** Segment files of the log in {@code directory}, oldest first; empty if there is none. */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("\\d{20}" + SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(WriteAheadLog::lsnOf))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * LSN just past the last byte written to the log in {@code directory}, read from the file
+     * system so another process can follow a running log; 0 if there is no log.
+     */
+    public static long endOf(Path directory) throws IOException {
+        while (true) {
+            List<Path> segments = segments(directory);
+            if (segments.isEmpty()) {
+                return 0;
+            }
+            Path newest = segments.get(segments.size() - 1);
+            try {
+                return lsnOf(newest) + Files.size(newest);
+            } catch (NoSuchFileException e) {
+                // Deleted between listing and sizing; list again
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment at the end of what is durable; records queued meanwhile go to the
+     * new segment. Does nothing while the newest segment is still empty.
+     *
+     * @return the LSN the newest segment starts at
+     * @throws IOException if the log failed or the segment cannot be created
+     */
+    public long roll() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed: " + directory);
+            }
+            // Nothing is in flight once no flush runs, so the old segment ends at durableLsn
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed: " + directory, failure);
+            }
+            if (durableLsn > segmentLsn) {
+                FileChannel next = openSegment(directory, durableLsn);
+                channel.close();
+                channel = next;
+                segmentLsn = durableLsn;
+            }
+            return segmentLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments holding only records below {@code lsn}. The newest segment is
+     * always kept.
+     *
+     * @return number of segments deleted
+     */
+    public int deleteSegmentsBelow(long lsn) throws IOException {
+        List<Path> segments = segments(directory);
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size() && lsnOf(segments.get(i + 1)) <= lsn; i++) {
+            Files.deleteIfExists(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // ---------------- MutationLog ----------------
+
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        queue(LogRecordType.DOCTOR_ADDED, out -> EntityCodec.writeDoctor(out, doctor));
+    }
+
+    @Override
+    public void doctorUpdated(long doctorId, Doctor doctor) {
+        queue(LogRecordType.DOCTOR_UPDATED, out -> {
+            out.putLong(doctorId);
+            EntityCodec.writeDoctor(out, doctor);
+        });
+    }
+
+    @Override
+    public void doctorRemoved(long doctorId) {
+        queue(LogRecordType.DOCTOR_REMOVED, out -> out.putLong(doctorId));
+    }
+
+    @Override
+    public void patientAdded(Patient patient) {
+        queue(LogRecordType.PATIENT_ADDED, out -> EntityCodec.writePatient(out, patient));
+    }
+
+    @Override
+    public void patientUpdated(long patientId, Patient patient) {
+        queue(LogRecordType.PATIENT_UPDATED, out -> {
+            out.putLong(patientId);
+            EntityCodec.writePatient(out, patient);
+        });
+    }
+
+    @Override
+    public void patientRemoved(long patientId) {
+        queue(LogRecordType.PATIENT_REMOVED, out -> out.putLong(patientId));
+    }
+
+    @Override
+    public void doctorAssigned(long patientId, long doctorId) {
+        queue(LogRecordType.DOCTOR_ASSIGNED, out -> {
+            out.putLong(patientId);
+            out.putLong(doctorId);
+        });
+    }
+
+    @Override
+    public void appointmentBooked(Appointment appointment) {
+        queue(LogRecordType.APPOINTMENT_BOOKED, out -> EntityCodec.writeAppointment(out, appointment));
+    }
+
+    @Override
+    public void appointmentCanceled(long appointmentId) {
+        queue(LogRecordType.APPOINTMENT_CANCELED, out -> out.putLong(appointmentId));
+    }
+
+    @Override
+    public void appointmentUpdated(long appointmentId, LocalDateTime newDateTime, String newNotes) {
+        queue(LogRecordType.APPOINTMENT_UPDATED, out -> {
+            out.putLong(appointmentId);
+            out.putDateTime(newDateTime);
+            out.putString(newNotes);
+        });
+    }
+
+    @Override
+    public void appointmentArchived(long appointmentId) {
+        queue(LogRecordType.APPOINTMENT_ARCHIVED, out -> out.putLong(appointmentId));
+    }
+
+    @Override
+    public void billCreated(Bill bill) {
+        queue(LogRecordType.BILL_CREATED, out -> EntityCodec.writeBill(out, bill));
+    }
+
+    @Override
+    public void billPaid(long billId, LocalDateTime paymentDate) {
+        queue(LogRecordType.BILL_PAID, out -> {
+            out.putLong(billId);
+            out.putDateTime(paymentDate);
+        });
+    }
+
+    @Override
+    public void billPaymentCanceled(long billId) {
+        queue(LogRecordType.BILL_PAYMENT_CANCELED, out -> out.putLong(billId));
+    }
+
+    @Override
+    public void awaitDurable() {
+        awaitDurable(lastQueuedLsn.get()[0]);
+    }
+
+    private void queue(LogRecordType type, Consumer<EntityCodec.Output> body) {
+        lastQueuedLsn.get()[0] = enqueue(type, body);
+    }
+
+    // ---------------- Append and group commit ----------------
+
+    /**
+     * Appends one record and blocks until it is durable.
+     *
+     * @return the LSN just past the record
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public long append(LogRecordType type, Consumer<EntityCodec.Output> body) {
+        long lsn = enqueue(type, body);
+        awaitDurable(lsn);
+        return lsn;
+    }
+
+    /**
+     * Queues one record for the next group commit without waiting for it; pass the returned
+     * LSN to {@link #awaitDurable(long)}.
+     *
+     * @return the LSN just past the record
+     */
+    public long enqueue(LogRecordType type, Consumer<EntityCodec.Output> body) {
+        EntityCodec.Output out = RECORD_BUFFER.get().clear();
+        out.putInt(0);
+        out.putInt(0);
+        out.putByte(type.code());
+        body.accept(out);
+        int length = out.position();
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), HEADER_BYTES, length - HEADER_BYTES);
+        out.putIntAt(0, length - HEADER_BYTES);
+        out.putIntAt(4, (int) crc.getValue());
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed: " + directory);
+            }
+            pending = ensureCapacity(pending, length);
+            pending.put(out.array(), 0, length);
+            records.increment();
+            return appendedLsn += length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the log is durable up to {@code lsn}, joining or leading a group commit.
+     *
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            awaitDurableLocked(lsn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held; either waits for the running flush or leads the next one
+    private void awaitDurableLocked(long lsn) {
+        while (durableLsn < lsn) {
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed: " + directory, failure);
+            }
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+                continue;
+            }
+            flushing = true;
+            ByteBuffer batch = pending;
+            pending = writing;
+            writing = batch;
+            long batchLsn = appendedLsn;
+
+            lock.unlock();
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                lock.lock();
+            }
+
+            batch.clear();
+            flushing = false;
+            if (error != null) {
+                failure = error;
+            } else {
+                durableLsn = batchLsn;
+                syncs.increment();
+            }
+            flushed.signalAll();
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        grown.put(buffer.flip());
+        return grown;
+    }
+
+    public Path getDirectory() { return directory; }
+
+    /** Segment files currently making up the log, oldest first. */
+    public List<Path> getSegments() throws IOException {
+        return segments(directory);
+    }
+
+    public long getDurableLsn() {
+        lock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRecordCount() { return records.sum(); }
+
+    /** Number of group commits; compare with {@link #getRecordCount()} to see the batching factor. */
+    public long getSyncCount() { return syncs.sum(); }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // Records queued by writers that have not waited yet still go to disk
+            if (failure == null) {
+                awaitDurableLocked(appendedLsn);
+            }
+            closed = true;
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
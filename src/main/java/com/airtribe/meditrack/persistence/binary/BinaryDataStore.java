@@ -0,0 +1,71 @@
+package com.airtribe.meditrack.persistence.binary;
+
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.BillService;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Exports and imports all four services as binary entity files in one directory.
+ *
+ * <p>Import order follows the references: doctors, patients, appointments, bills. Entities
+ * are loaded through the services' {@code restore*} methods, which upsert by id.</p>
+ */
+public class BinaryDataStore {
+
+    public static final String DOCTOR_FILE = "doctors.mtb";
+    public static final String PATIENT_FILE = "patients.mtb";
+    public static final String APPOINTMENT_FILE = "appointments.mtb";
+    public static final String BILL_FILE = "bills.mtb";
+
+    private final Path directory;
+
+    public BinaryDataStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /** @return total number of records written */
+    public long exportAll(DoctorService doctorService, PatientService patientService,
+                          AppointmentService appointmentService, BillService billService) throws IOException {
+        long written = BinaryEntityWriter.write(directory.resolve(DOCTOR_FILE),
+                EntityLayouts.doctor(), doctorService.getAllDoctors());
+        written += BinaryEntityWriter.write(directory.resolve(PATIENT_FILE),
+                EntityLayouts.patient(id -> null), patientService.getAllPatients());
+        written += BinaryEntityWriter.write(directory.resolve(APPOINTMENT_FILE),
+                EntityLayouts.appointment(id -> null), appointmentService.getAllAppointments());
+        written += BinaryEntityWriter.write(directory.resolve(BILL_FILE),
+                EntityLayouts.bill(id -> null), billService.getAllBills());
+        return written;
+    }
+
+    /** @return total number of records loaded; missing files load nothing */
+    public long importAll(DoctorService doctorService, PatientService patientService,
+                          AppointmentService appointmentService, BillService billService) throws IOException {
+        long loaded = load(DOCTOR_FILE, EntityLayouts.doctor(), doctorService::restoreDoctor);
+        loaded += load(PATIENT_FILE, EntityLayouts.patient(id -> doctorService.findById(id).orElse(null)),
+                patientService::restorePatient);
+        loaded += load(APPOINTMENT_FILE, EntityLayouts.appointment(id -> patientService.findById(id).orElse(null)),
+                appointmentService::restoreAppointment);
+        loaded += load(BILL_FILE, EntityLayouts.bill(id -> appointmentService.findById(id).orElse(null)),
+                billService::restoreBill);
+        return loaded;
+    }
+
+    private <T> long load(String name, RecordLayout<T> layout, Consumer<T> sink) throws IOException {
+        Path file = directory.resolve(name);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (MappedEntityReader<T> reader = MappedEntityReader.open(file, layout)) {
+            reader.forEach(sink);
+            return reader.size();
+        }
+    }
+
+    public Path getDirectory() { return directory; }
+}
@@ -0,0 +1,138 @@
+package com.airtribe.meditrack.persistence.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Writes entities to a versioned binary entity file.
+ *
+ * <p>File layout (big-endian):</p>
+ * <pre>
+ * header   [int magic][short version][byte type][byte 0][int recordSize][int 0]
+ *          [long count][long recordsOffset][long heapOffset][long heapLength][long indexOffset][long 0]
+ * records  count x recordSize bytes, in insertion order
+ * heap     UTF-8 string bytes referenced by the records
+ * index    count x [long id][int slot], sorted by id
+ * </pre>
+ *
+ * <p>Records are streamed through a direct buffer and strings spill to a temporary heap file
+ * that is appended afterwards, so only the id index is held in memory while writing.</p>
+ */
+public final class BinaryEntityWriter {
+
+    static final int MAGIC = 0x4D544245; // "MTBE"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int INDEX_ENTRY_BYTES = 12;
+
+    private BinaryEntityWriter() {}
+
+    /**
+     * Writes {@code entities} to {@code file} (via a temporary file and atomic rename).
+     *
+     * @return number of records written
+     */
+    public static <T> int write(Path file, RecordLayout<T> layout, Iterable<T> entities) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Path heapFile = Files.createTempFile(parent, file.getFileName().toString(), ".heap");
+
+        int recordSize = layout.recordSize();
+        long[] ids = new long[1024];
+        int count = 0;
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel heapChannel = FileChannel.open(heapFile, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+            StringHeap.Writer strings = new StringHeap.Writer(heapChannel);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(1 << 20, recordSize)).order(ByteOrder.BIG_ENDIAN);
+            out.position(HEADER_BYTES);
+
+            for (T entity : entities) {
+                if (buffer.remaining() < recordSize) {
+                    drain(out, buffer);
+                }
+                int start = buffer.position();
+                layout.write(entity, buffer, strings);
+                if (buffer.position() - start != recordSize) {
+                    throw new IllegalStateException("Layout wrote " + (buffer.position() - start)
+                            + " bytes, expected " + recordSize);
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = layout.idOf(entity);
+                if ((long) count * recordSize > Integer.MAX_VALUE) {
+                    throw new IOException("Record section exceeds 2 GiB");
+                }
+            }
+            drain(out, buffer);
+
+            // Append the spilled string heap
+            strings.flush();
+            long heapOffset = out.position();
+            long heapLength = strings.length();
+            for (long copied = 0; copied < heapLength; ) {
+                copied += heapChannel.transferTo(copied, heapLength - copied, out);
+            }
+            out.position(heapOffset + heapLength);
+
+            long indexOffset = out.position();
+            int[] slots = sortedSlots(ids, count);
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < INDEX_ENTRY_BYTES) {
+                    drain(out, buffer);
+                }
+                buffer.putLong(ids[slots[i]]).putInt(slots[i]);
+            }
+            drain(out, buffer);
+
+            buffer.putInt(MAGIC).putShort(VERSION).put(layout.type()).put((byte) 0)
+                    .putInt(recordSize).putInt(0)
+                    .putLong(count).putLong(HEADER_BYTES).putLong(heapOffset).putLong(heapLength)
+                    .putLong(indexOffset).putLong(0);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer, buffer.position());
+            }
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    // Slot numbers ordered by id; stable, so the first record wins among duplicate ids
+    private static int[] sortedSlots(long[] ids, int count) {
+        boolean sorted = true;
+        for (int i = 1; i < count && sorted; i++) {
+            sorted = ids[i - 1] <= ids[i];
+        }
+        int[] slots = new int[count];
+        if (sorted) {
+            Arrays.setAll(slots, i -> i);
+            return slots;
+        }
+        Integer[] order = new Integer[count];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingLong(i -> ids[i]));
+        for (int i = 0; i < count; i++) {
+            slots[i] = order[i];
+        }
+        return slots;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,211 @@
+package com.airtribe.meditrack.persistence.binary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Entity store that keeps the bulk of its records on disk.
+ *
+ * <p>The base file is a {@link BinaryEntityWriter} file opened through a {@link MappedEntityReader},
+ * so the id &rarr; record-offset index is the mapped, id-sorted index section and costs no heap.
+ * In memory are only a bounded LRU cache of recently read entities and the entities changed
+ * since the base file was last written (the dirty set), plus tombstones for removed ids.
+ * {@link #flush()} merges the changes into a new base file and empties the dirty set.</p>
+ *
+ * <p>Entities returned by {@link #get} may be evicted and decoded again later, so changes
+ * to them must be written back with {@link #put} to be kept.</p>
+ */
+public class DiskEntityStore<T> implements Closeable {
+
+    private final Path file;
+    private final RecordLayout<T> layout;
+    private final Map<Long, T> cache;
+    private final Map<Long, T> dirty = new LinkedHashMap<>();
+    private final Set<Long> deleted = new HashSet<>();
+    private MappedEntityReader<T> base;
+    private int size;
+    private long hits;
+    private long misses;
+
+    private DiskEntityStore(Path file, RecordLayout<T> layout, int cacheCapacity) throws IOException {
+        this.file = file;
+        this.layout = layout;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+        if (!Files.exists(file)) {
+            BinaryEntityWriter.write(file, layout, Collections.emptyList());
+        }
+        this.base = MappedEntityReader.open(file, layout);
+        this.size = base.size();
+    }
+
+    /**
+     * Opens (or creates) the store backed by {@code file}.
+     *
+     * @param cacheCapacity maximum number of clean entities kept in memory
+     */
+    public static <T> DiskEntityStore<T> open(Path file, RecordLayout<T> layout, int cacheCapacity) throws IOException {
+        return new DiskEntityStore<>(file, layout, cacheCapacity);
+    }
+
+    /** The entity with this id, decoded from disk on a cache miss; null if absent. */
+    public synchronized T get(long id) {
+        T entity = dirty.get(id);
+        if (entity != null || deleted.contains(id)) {
+            return entity;
+        }
+        entity = cache.get(id);
+        if (entity != null) {
+            hits++;
+            return entity;
+        }
+        int slot = base.slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        misses++;
+        entity = base.get(slot);
+        cache.put(id, entity);
+        return entity;
+    }
+
+    /**
+     * Looks up many ids under one lock acquisition. Cache misses are decoded in slot order,
+     * so a batch reads the mapped file front to back instead of jumping around it.
+     *
+     * @return the entities found, keyed by id; absent ids are left out
+     */
+    public synchronized Map<Long, T> getAll(Collection<Long> ids) {
+        Map<Long, T> found = new HashMap<>(ids.size() * 2);
+        List<long[]> toDecode = new ArrayList<>();
+        for (long id : ids) {
+            T entity = dirty.get(id);
+            if (entity != null || deleted.contains(id)) {
+                if (entity != null) {
+                    found.put(id, entity);
+                }
+                continue;
+            }
+            entity = cache.get(id);
+            if (entity != null) {
+                hits++;
+                found.put(id, entity);
+                continue;
+            }
+            int slot = base.slotOf(id);
+            if (slot >= 0) {
+                toDecode.add(new long[] {slot, id});
+            }
+        }
+        toDecode.sort(Comparator.comparingLong(miss -> miss[0]));
+        for (long[] miss : toDecode) {
+            misses++;
+            T entity = base.get((int) miss[0]);
+            cache.put(miss[1], entity);
+            found.put(miss[1], entity);
+        }
+        return found;
+    }
+
+    public synchronized boolean contains(long id) {
+        return dirty.containsKey(id) || (!deleted.contains(id) && base.slotOf(id) >= 0);
+    }
+
+    /** Inserts or replaces an entity. It stays in memory until the next {@link #flush()}. */
+    public synchronized void put(T entity) {
+        long id = layout.idOf(entity);
+        if (!contains(id)) {
+            size++;
+        }
+        cache.remove(id);
+        deleted.remove(id);
+        dirty.put(id, entity);
+    }
+
+    public synchronized boolean remove(long id) {
+        if (!contains(id)) {
+            return false;
+        }
+        size--;
+        cache.remove(id);
+        dirty.remove(id);
+        if (base.slotOf(id) >= 0) {
+            deleted.add(id);
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Streams every entity: base records in file order, with changed ones replaced and
+     * removed ones skipped, followed by entities added since the last flush. Cold records
+     * are decoded as the stream advances and are not added to the cache.
+     */
+    public Stream<T> stream() {
+        MappedEntityReader<T> reader;
+        Map<Long, T> changed;
+        Set<Long> removed;
+        synchronized (this) {
+            reader = base;
+            changed = new LinkedHashMap<>(dirty);
+            removed = new HashSet<>(deleted);
+        }
+        Stream<T> stored = IntStream.range(0, reader.size())
+                .mapToObj(slot -> {
+                    long id = reader.idOfSlot(slot);
+                    if (removed.contains(id)) {
+                        return null;
+                    }
+                    T entity = changed.get(id);
+                    return entity != null ? entity : reader.get(slot);
+                })
+                .filter(Objects::nonNull);
+        Stream<T> added = changed.entrySet().stream()
+                .filter(e -> reader.slotOf(e.getKey()) < 0)
+                .map(Map.Entry::getValue);
+        return Stream.concat(stored, added);
+    }
+
+    /**
+     * Writes all entities to a new base file and clears the dirty set and tombstones.
+     *
+     * @return number of records in the new base file
+     */
+    public synchronized int flush() throws IOException {
+        if (dirty.isEmpty() && deleted.isEmpty()) {
+            return base.size();
+        }
+        // Streams from the current mapping into a temporary file, then atomically replaces the base
+        Stream<T> merged = stream();
+        int written = BinaryEntityWriter.write(file, layout, merged::iterator);
+        MappedEntityReader<T> previous = base;
+        base = MappedEntityReader.open(file, layout);
+        previous.close();
+        dirty.clear();
+        deleted.clear();
+        return written;
+    }
+
+    public Path getFile() { return file; }
+    public synchronized int getCachedCount() { return cache.size(); }
+    public synchronized int getDirtyCount() { return dirty.size() + deleted.size(); }
+    public synchronized long getCacheHits() { return hits; }
+    public synchronized long getCacheMisses() { return misses; }
+
+    @Override
+    public synchronized void close() throws IOException {
+        base.close();
+    }
+}
@@ -0,0 +1,210 @@
+package com.airtribe.meditrack.persistence.binary;
+
+import com.airtribe.meditrack.constants.AppointmentStatus;
+import com.airtribe.meditrack.constants.BillStatus;
+import com.airtribe.meditrack.constants.Specialization;
+import com.airtribe.meditrack.entity.*;
+import com.airtribe.meditrack.persistence.EntityCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.LongFunction;
+
+/**
+ * Version 1 record layouts of the entities.
+ *
+ * <p>Fields are encoded with the {@link EntityCodec} helpers: enums as ordinal bytes, timestamps as UTC
+ * epoch second + nanos (nanos -1 for null), times as second of day, days of week as a bit
+ * mask and references to other entities as ids (-1 for none). The {@link Person} of a
+ * patient is stored inline in the patient record.</p>
+ */
+public final class EntityLayouts {
+
+    public static final byte DOCTOR = 1;
+    public static final byte PATIENT = 2;
+    public static final byte APPOINTMENT = 3;
+    public static final byte BILL = 4;
+
+    private static final long NO_REF = -1L;
+    private static final int DATE_TIME_BYTES = EntityCodec.DATE_TIME_BYTES;
+    private static final int REF = StringHeap.REF_BYTES;
+
+    private EntityLayouts() {}
+
+    public static RecordLayout<Doctor> doctor() {
+        return DOCTOR_LAYOUT;
+    }
+
+    /** @param doctors resolves a patient's assigned doctor id on read */
+    public static RecordLayout<Patient> patient(LongFunction<Doctor> doctors) {
+        return new PatientLayout(doctors);
+    }
+
+    /** @param patients resolves an appointment's patient id on read */
+    public static RecordLayout<Appointment> appointment(LongFunction<Patient> patients) {
+        return new AppointmentLayout(patients);
+    }
+
+    /** @param appointments resolves a bill's appointment id on read */
+    public static RecordLayout<Bill> bill(LongFunction<Appointment> appointments) {
+        return new BillLayout(appointments);
+    }
+
+    // ---------------- Doctor ----------------
+
+    private static final RecordLayout<Doctor> DOCTOR_LAYOUT = new RecordLayout<>() {
+        @Override public byte type() { return DOCTOR; }
+        @Override public int recordSize() { return 8 + REF + 4 + 1 + 1 + DATE_TIME_BYTES + 4 + 4; }
+        @Override public long idOf(Doctor doctor) { return doctor.getId(); }
+
+        @Override
+        public void write(Doctor doctor, ByteBuffer out, StringHeap.Writer strings) throws IOException {
+            out.putLong(doctor.getId());
+            strings.put(out, doctor.getName());
+            out.putInt(doctor.getExperience());
+            EntityCodec.putEnum(out, doctor.getSpecialization());
+            EntityCodec.putDays(out, doctor.getAvailableDays());
+            EntityCodec.putDateTime(out, doctor.getCreatedAt());
+            EntityCodec.putTime(out, doctor.getAvailableFrom());
+            EntityCodec.putTime(out, doctor.getAvailableTo());
+        }
+
+        @Override
+        public Doctor read(ByteBuffer in, StringHeap.Reader strings) {
+            Doctor doctor = new Doctor();
+            doctor.setId(in.getLong());
+            doctor.setName(strings.get(in));
+            doctor.setExperience(in.getInt());
+            doctor.setSpecialization(EntityCodec.getEnum(in, Specialization.values()));
+            doctor.setAvailableDays(EntityCodec.getDays(in));
+            doctor.setCreatedAt(EntityCodec.getDateTime(in));
+            doctor.setAvailableFrom(EntityCodec.getTime(in));
+            doctor.setAvailableTo(EntityCodec.getTime(in));
+            return doctor;
+        }
+    };
+
+    // ---------------- Patient / Person ----------------
+
+    private static final class PatientLayout implements RecordLayout<Patient> {
+        private final LongFunction<Doctor> doctors;
+
+        PatientLayout(LongFunction<Doctor> doctors) {
+            this.doctors = doctors;
+        }
+
+        @Override public byte type() { return PATIENT; }
+        @Override public int recordSize() { return 8 + DATE_TIME_BYTES + 1 + 1 + 8 + REF + 4 + REF + DATE_TIME_BYTES + 8 + REF; }
+        @Override public long idOf(Patient patient) { return patient.getId(); }
+
+        @Override
+        public void write(Patient patient, ByteBuffer out, StringHeap.Writer strings) throws IOException {
+            out.putLong(patient.getId());
+            EntityCodec.putDateTime(out, patient.getRegistrationDate());
+            out.put((byte) (patient.isActive() ? 1 : 0));
+            Person person = patient.getPerson();
+            out.put((byte) (person != null ? 1 : 0));
+            out.putLong(person != null ? person.getId() : 0);
+            strings.put(out, person != null ? person.getName() : null);
+            out.putInt(person != null ? person.getAge() : 0);
+            strings.put(out, person != null ? person.getMobileNo() : null);
+            EntityCodec.putDateTime(out, person != null ? person.getCreatedAt() : null);
+            out.putLong(patient.getAssignedDoctors() != null ? patient.getAssignedDoctors().getId() : NO_REF);
+            strings.put(out, patient.getMedicalRecordNumber());
+        }
+
+        @Override
+        public Patient read(ByteBuffer in, StringHeap.Reader strings) {
+            Patient patient = new Patient();
+            patient.setId(in.getLong());
+            patient.setRegistrationDate(EntityCodec.getDateTime(in));
+            patient.setActive(in.get() == 1);
+            boolean hasPerson = in.get() == 1;
+            Person person = new Person();
+            person.setId(in.getLong());
+            person.setName(strings.get(in));
+            person.setAge(in.getInt());
+            person.setMobileNo(strings.get(in));
+            person.setCreatedAt(EntityCodec.getDateTime(in));
+            patient.setPerson(hasPerson ? person : null);
+            long doctorId = in.getLong();
+            patient.setAssignedDoctors(doctorId != NO_REF ? doctors.apply(doctorId) : null);
+            patient.setMedicalRecordNumber(strings.get(in));
+            return patient;
+        }
+    }
+
+    // ---------------- Appointment ----------------
+
+    private static final class AppointmentLayout implements RecordLayout<Appointment> {
+        private final LongFunction<Patient> patients;
+
+        AppointmentLayout(LongFunction<Patient> patients) {
+            this.patients = patients;
+        }
+
+        @Override public byte type() { return APPOINTMENT; }
+        @Override public int recordSize() { return 8 + 8 + DATE_TIME_BYTES + 1 + REF; }
+        @Override public long idOf(Appointment appointment) { return appointment.getId(); }
+
+        @Override
+        public void write(Appointment appointment, ByteBuffer out, StringHeap.Writer strings) throws IOException {
+            out.putLong(appointment.getId());
+            out.putLong(appointment.getPatient() != null ? appointment.getPatient().getId() : NO_REF);
+            EntityCodec.putDateTime(out, appointment.getAppointmentDateTime());
+            EntityCodec.putEnum(out, appointment.getStatus());
+            strings.put(out, appointment.getNotes());
+        }
+
+        @Override
+        public Appointment read(ByteBuffer in, StringHeap.Reader strings) {
+            Appointment appointment = new Appointment();
+            appointment.setId(in.getLong());
+            long patientId = in.getLong();
+            appointment.setPatient(patientId != NO_REF ? patients.apply(patientId) : null);
+            appointment.setAppointmentDateTime(EntityCodec.getDateTime(in));
+            appointment.setStatus(EntityCodec.getEnum(in, AppointmentStatus.values()));
+            appointment.setNotes(strings.get(in));
+            return appointment;
+        }
+    }
+
+    // ---------------- Bill ----------------
+
+    private static final class BillLayout implements RecordLayout<Bill> {
+        private final LongFunction<Appointment> appointments;
+
+        BillLayout(LongFunction<Appointment> appointments) {
+            this.appointments = appointments;
+        }
+
+        @Override public byte type() { return BILL; }
+        @Override public int recordSize() { return 8 + 8 + 8 + 1 + DATE_TIME_BYTES + DATE_TIME_BYTES + REF; }
+        @Override public long idOf(Bill bill) { return bill.getId(); }
+
+        @Override
+        public void write(Bill bill, ByteBuffer out, StringHeap.Writer strings) throws IOException {
+            out.putLong(bill.getId());
+            out.putLong(bill.getAppointment() != null ? bill.getAppointment().getId() : NO_REF);
+            out.putDouble(bill.getAmount());
+            EntityCodec.putEnum(out, bill.getStatus());
+            EntityCodec.putDateTime(out, bill.getCreatedAt());
+            EntityCodec.putDateTime(out, bill.getPaymentDate());
+            strings.put(out, bill.getNotes());
+        }
+
+        @Override
+        public Bill read(ByteBuffer in, StringHeap.Reader strings) {
+            Bill bill = new Bill();
+            bill.setId(in.getLong());
+            long appointmentId = in.getLong();
+            bill.setAppointment(appointmentId != NO_REF ? appointments.apply(appointmentId) : null);
+            bill.setAmount(in.getDouble());
+            bill.setStatus(EntityCodec.getEnum(in, BillStatus.values()));
+            bill.setCreatedAt(EntityCodec.getDateTime(in));
+            bill.setPaymentDate(EntityCodec.getDateTime(in));
+            bill.setNotes(strings.get(in));
+            return bill;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.airtribe.meditrack.persistence.binary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Random-access reader for files written by {@link BinaryEntityWriter}.
+ *
+ * <p>The record, heap and index sections are memory-mapped read-only; nothing is decoded
+ * until a record is requested. {@link #findById} binary-searches the sorted on-disk index
+ * and decodes the one record it points to.</p>
+ *
+ * <p>Files written with a newer schema version are accepted as long as their records start
+ * with the fields this version knows about: the stored record size is used as the stride,
+ * so fields appended by later versions are skipped.</p>
+ */
+public final class MappedEntityReader<T> implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final RecordLayout<T> layout;
+    private final int version;
+    private final int recordSize;
+    private final int count;
+    private final MappedByteBuffer records;
+    private final MappedByteBuffer index;
+    private final StringHeap.Reader strings;
+
+    private MappedEntityReader(Path file, RecordLayout<T> layout) throws IOException {
+        this.file = file;
+        this.layout = layout;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(BinaryEntityWriter.HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < BinaryEntityWriter.HEADER_BYTES || header.getInt() != BinaryEntityWriter.MAGIC) {
+                throw new IOException("Not a MediTrack entity file: " + file);
+            }
+            this.version = header.getShort();
+            byte type = header.get();
+            header.get();
+            this.recordSize = header.getInt();
+            header.getInt();
+            long recordCount = header.getLong();
+            long recordsOffset = header.getLong();
+            long heapOffset = header.getLong();
+            long heapLength = header.getLong();
+            long indexOffset = header.getLong();
+
+            if (type != layout.type()) {
+                throw new IOException("Entity type " + type + " does not match layout " + layout.type() + ": " + file);
+            }
+            if (version < 1 || recordSize < layout.recordSize()) {
+                throw new IOException("Unsupported entity file version " + version + ": " + file);
+            }
+            this.count = Math.toIntExact(recordCount);
+            this.records = map(recordsOffset, (long) count * recordSize);
+            this.strings = new StringHeap.Reader(map(heapOffset, heapLength));
+            this.index = map(indexOffset, (long) count * BinaryEntityWriter.INDEX_ENTRY_BYTES);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static <T> MappedEntityReader<T> open(Path file, RecordLayout<T> layout) throws IOException {
+        return new MappedEntityReader<>(file, layout);
+    }
+
+    private MappedByteBuffer map(long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE || offset + length > channel.size()) {
+            throw new IOException("Corrupt section at offset " + offset + " in " + file);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    public int size() { return count; }
+    public int getVersion() { return version; }
+    public Path getFile() { return file; }
+
+    /** Decodes the record stored in {@code slot} (insertion order). */
+    public T get(int slot) {
+        return layout.read(records.slice(slot * recordSize, recordSize), strings);
+    }
+
+    /** Id of the record in {@code slot}, read without decoding the rest of it. */
+    public long idOfSlot(int slot) {
+        // Every layout starts with the entity id
+        return records.getLong(slot * recordSize);
+    }
+
+    /** Slot of the first record with this id, or -1. */
+    public int slotOf(long id) {
+        int low = 0;
+        int high = count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = index.getLong(mid * BinaryEntityWriter.INDEX_ENTRY_BYTES);
+            if (midId < id) {
+                low = mid + 1;
+            } else {
+                if (midId == id) {
+                    found = mid;
+                }
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? -1 : index.getInt(found * BinaryEntityWriter.INDEX_ENTRY_BYTES + 8);
+    }
+
+    public Optional<T> findById(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? Optional.empty() : Optional.of(get(slot));
+    }
+
+    /** Id stored at {@code position} of the sorted index. */
+    public long idAt(int position) {
+        return index.getLong(position * BinaryEntityWriter.INDEX_ENTRY_BYTES);
+    }
+
+    /** Slot stored at {@code position} of the sorted index. */
+    public int slotAt(int position) {
+        return index.getInt(position * BinaryEntityWriter.INDEX_ENTRY_BYTES + 8);
+    }
+
+    /** Decodes every record in insertion order. */
+    public void forEach(Consumer<? super T> action) {
+        for (int slot = 0; slot < count; slot++) {
+            action.accept(get(slot));
+        }
+    }
+
+    /** Lazily decoding stream over all records in insertion order. */
+    public Stream<T> stream() {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(count,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL) {
+            private int slot;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (slot >= count) {
+                    return false;
+                }
+                action.accept(get(slot++));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
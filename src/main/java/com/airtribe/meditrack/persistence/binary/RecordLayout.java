@@ -0,0 +1,29 @@
+package com.airtribe.meditrack.persistence.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary record layout for one entity type.
+ *
+ * <p>Every record occupies exactly {@link #recordSize()} bytes; strings are written to the
+ * file's string heap and the record holds only their offset and length.</p>
+ *
+ * @param <T> entity type
+ */
+public interface RecordLayout<T> {
+
+    /** Entity type code stored in the file header. */
+    byte type();
+
+    /** Bytes per record in the current schema version. */
+    int recordSize();
+
+    long idOf(T entity);
+
+    /** Writes exactly {@link #recordSize()} bytes at the buffer's position. */
+    void write(T entity, ByteBuffer record, StringHeap.Writer strings) throws IOException;
+
+    /** Decodes one record; {@code record} is positioned at the record start. */
+    T read(ByteBuffer record, StringHeap.Reader strings);
+}
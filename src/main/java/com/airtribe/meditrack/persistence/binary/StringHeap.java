@@ -0,0 +1,89 @@
+package com.airtribe.meditrack.persistence.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * String heap of a binary entity file: UTF-8 bytes stored back to back after the records.
+ * A record refers to a string as {@code [int offset][int length]}, with length -1 for null.
+ */
+public final class StringHeap {
+
+    /** Bytes a string reference takes inside a record. */
+    public static final int REF_BYTES = 8;
+
+    private StringHeap() {}
+
+    /** Appends strings to a spill channel through a small buffer, so heap size does not affect memory. */
+    public static final class Writer {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+        private long length;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        public void put(ByteBuffer record, String value) throws IOException {
+            if (value == null) {
+                record.putInt(-1).putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (length + bytes.length > Integer.MAX_VALUE) {
+                throw new IOException("String heap exceeds 2 GiB");
+            }
+            record.putInt((int) length).putInt(bytes.length);
+            length += bytes.length;
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        long length() {
+            return length;
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /** Decodes string references against a mapped heap. */
+    public static final class Reader {
+
+        private final ByteBuffer heap;
+
+        Reader(ByteBuffer heap) {
+            this.heap = heap;
+        }
+
+        public String get(ByteBuffer record) {
+            int offset = record.getInt();
+            int length = record.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            heap.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
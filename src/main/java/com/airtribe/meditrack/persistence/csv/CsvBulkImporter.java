@@ -0,0 +1,256 @@
+package com.airtribe.meditrack.persistence.csv;
+
+import com.airtribe.meditrack.constants.Specialization;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.entity.Person;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+import com.airtribe.meditrack.utils.Validator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Bulk-loads doctors and patients from CSV files.
+ *
+ * <p>The calling thread frames records and cuts them into chunks; a fixed pool splits,
+ * parses and validates each chunk in parallel. Validated chunks are inserted through the
+ * services' batch methods on the calling thread, in file order, so the services themselves
+ * are never used concurrently. At most two chunks per worker are in flight, which bounds
+ * memory on files of any size.</p>
+ *
+ * <p>Rows that fail to parse, fail {@link Validator} or clash with an existing id or
+ * medical record number are written to a rejects file ({@code line,reason,record}), which
+ * is only created when there is something to reject.</p>
+ *
+ * <p>Doctor columns: {@code id,name,experience,specialization,availableDays,availableFrom,availableTo}
+ * with days separated by {@code ;} (or a quoted comma list). Patient columns:
+ * {@code id,personId,name,age,mobileNo,medicalRecordNumber[,doctorId]}. A first row whose
+ * first field is {@code id} is treated as a header.</p>
+ */
+public class CsvBulkImporter {
+
+    public static final int DEFAULT_CHUNK_ROWS = 5_000;
+
+    /** Outcome of one import. */
+    public record ImportReport(long rows, long imported, long rejected, long millis) {
+
+        public double rowsPerSecond() {
+            return rows * 1000.0 / Math.max(1, millis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d row(s): %d imported, %d rejected in %d ms (%.0f rows/s)",
+                    rows, imported, rejected, millis, rowsPerSecond());
+        }
+    }
+
+    /** Turns the fields of one row into a validated entity, throwing on bad data. */
+    @FunctionalInterface
+    interface RowParser<T> {
+        T parse(List<String> fields);
+    }
+
+    /** Inserts one validated batch, reporting entities it could not add. */
+    @FunctionalInterface
+    interface BatchSink<T> {
+        int insert(List<T> batch, BiConsumer<T, String> onReject);
+    }
+
+    private record Reject(long line, String reason, String raw) {}
+
+    private record Chunk<T>(List<T> valid, List<CsvRecordReader.CsvRecord> sources, List<Reject> rejects) {}
+
+    private final int threads;
+    private final int chunkRows;
+
+    public CsvBulkImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_ROWS);
+    }
+
+    public CsvBulkImporter(int threads, int chunkRows) {
+        if (threads < 1 || chunkRows < 1) {
+            throw new IllegalArgumentException("threads and chunkRows must be positive");
+        }
+        this.threads = threads;
+        this.chunkRows = chunkRows;
+    }
+
+    public ImportReport importDoctors(Path csv, Path rejectsFile, DoctorService doctorService) throws IOException {
+        return run(csv, rejectsFile, CsvBulkImporter::parseDoctor, doctorService::addDoctors);
+    }
+
+    /**
+     * Imports patients; a {@code doctorId} column assigns an existing doctor. Doctors are
+     * looked up from the worker threads, so they must not be modified during the import.
+     */
+    public ImportReport importPatients(Path csv, Path rejectsFile, PatientService patientService,
+                                       DoctorService doctorService) throws IOException {
+        LongFunction<Doctor> doctors = id -> doctorService.findById(id).orElse(null);
+        return run(csv, rejectsFile, fields -> parsePatient(fields, doctors), patientService::addPatients);
+    }
+
+    <T> ImportReport run(Path csv, Path rejectsFile, RowParser<T> parser, BatchSink<T> sink) throws IOException {
+        long start = System.nanoTime();
+        long[] counts = new long[3]; // rows, imported, rejected
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<Chunk<T>>> inFlight = new ArrayDeque<>();
+        BufferedWriter[] rejects = new BufferedWriter[1];
+        try (CsvRecordReader reader = new CsvRecordReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8))) {
+            List<CsvRecordReader.CsvRecord> batch = new ArrayList<>(chunkRows);
+            boolean first = true;
+            for (CsvRecordReader.CsvRecord record; (record = reader.next()) != null; ) {
+                if (first) {
+                    first = false;
+                    if (CsvRecordReader.split(record.raw()).get(0).equalsIgnoreCase("id")) {
+                        continue;
+                    }
+                }
+                batch.add(record);
+                if (batch.size() == chunkRows) {
+                    List<CsvRecordReader.CsvRecord> records = batch;
+                    inFlight.add(pool.submit(() -> parseChunk(records, parser)));
+                    batch = new ArrayList<>(chunkRows);
+                    while (inFlight.size() >= threads * 2) {
+                        insert(inFlight.poll(), sink, counts, rejects, rejectsFile);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                List<CsvRecordReader.CsvRecord> records = batch;
+                inFlight.add(pool.submit(() -> parseChunk(records, parser)));
+            }
+            while (!inFlight.isEmpty()) {
+                insert(inFlight.poll(), sink, counts, rejects, rejectsFile);
+            }
+        } finally {
+            pool.shutdownNow();
+            if (rejects[0] != null) {
+                rejects[0].close();
+            }
+        }
+        return new ImportReport(counts[0], counts[1], counts[2], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static <T> Chunk<T> parseChunk(List<CsvRecordReader.CsvRecord> records, RowParser<T> parser) {
+        List<T> valid = new ArrayList<>(records.size());
+        List<CsvRecordReader.CsvRecord> sources = new ArrayList<>(records.size());
+        List<Reject> rejects = new ArrayList<>();
+        for (CsvRecordReader.CsvRecord record : records) {
+            try {
+                valid.add(parser.parse(CsvRecordReader.split(record.raw())));
+                sources.add(record);
+            } catch (RuntimeException e) {
+                String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                rejects.add(new Reject(record.line(), reason, record.raw()));
+            }
+        }
+        return new Chunk<>(valid, sources, rejects);
+    }
+
+    private <T> void insert(Future<Chunk<T>> pending, BatchSink<T> sink, long[] counts,
+                            BufferedWriter[] rejects, Path rejectsFile) throws IOException {
+        Chunk<T> chunk;
+        try {
+            chunk = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("CSV import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("CSV import failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        List<Reject> failed = new ArrayList<>(chunk.rejects());
+        // Map rejected entities back to their rows by identity
+        Map<T, CsvRecordReader.CsvRecord> sourceOf = new IdentityHashMap<>();
+        for (int i = 0; i < chunk.valid().size(); i++) {
+            sourceOf.put(chunk.valid().get(i), chunk.sources().get(i));
+        }
+        counts[1] += sink.insert(chunk.valid(), (entity, reason) -> {
+            CsvRecordReader.CsvRecord source = sourceOf.get(entity);
+            failed.add(new Reject(source.line(), reason, source.raw()));
+        });
+        counts[0] += chunk.valid().size() + chunk.rejects().size();
+        counts[2] += failed.size();
+
+        if (!failed.isEmpty()) {
+            if (rejects[0] == null) {
+                rejects[0] = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8);
+                rejects[0].write("line,reason,record");
+                rejects[0].newLine();
+            }
+            failed.sort(Comparator.comparingLong(Reject::line));
+            for (Reject reject : failed) {
+                rejects[0].write(reject.line() + "," + CsvRecordReader.escape(reject.reason())
+                        + "," + CsvRecordReader.escape(reject.raw()));
+                rejects[0].newLine();
+            }
+        }
+    }
+
+    /**
+     * Builds and validates a doctor from fields in the doctor column order; shared with the
+     * scripted batch runner. Throws on bad data.
+     */
+    public static Doctor parseDoctor(List<String> fields) {
+        requireColumns(fields, 7);
+        Specialization specialization = Arrays.stream(Specialization.values())
+                .filter(spec -> spec.name().equalsIgnoreCase(fields.get(3).replace(" ", "_")))
+                .findFirst()
+                .orElseThrow(() -> new InvalidDataException("Invalid specialization: " + fields.get(3)));
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String day : fields.get(4).split("[;,|]")) {
+            if (!day.isBlank()) {
+                days.add(DayOfWeek.valueOf(day.trim().toUpperCase()));
+            }
+        }
+        Doctor doctor = new Doctor(Long.parseLong(fields.get(0)), fields.get(1), Integer.parseInt(fields.get(2)),
+                specialization, days, LocalDateTime.now(),
+                LocalTime.parse(fields.get(5)), LocalTime.parse(fields.get(6)));
+        Validator.validateDoctor(doctor);
+        return doctor;
+    }
+
+    /**
+     * Builds and validates a patient from fields in the patient column order; shared with the
+     * Excel roster importer and the batch runner. Throws on bad data.
+     */
+    public static Patient parsePatient(List<String> fields, LongFunction<Doctor> doctors) {
+        requireColumns(fields, 6);
+        Person person = new Person(Long.parseLong(fields.get(1)), fields.get(2),
+                Integer.parseInt(fields.get(3)), fields.get(4));
+        Patient patient = new Patient(Long.parseLong(fields.get(0)), person, fields.get(5));
+        Validator.validatePatient(patient);
+        if (fields.size() > 6 && !fields.get(6).isEmpty()) {
+            long doctorId = Long.parseLong(fields.get(6));
+            Doctor doctor = doctors.apply(doctorId);
+            if (doctor == null) {
+                throw new InvalidDataException("Unknown doctor id: " + doctorId);
+            }
+            patient.setAssignedDoctors(doctor);
+        }
+        return patient;
+    }
+
+    private static void requireColumns(List<String> fields, int columns) {
+        if (fields.size() < columns) {
+            throw new InvalidDataException("Expected " + columns + " columns but found " + fields.size());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.airtribe.meditrack.persistence.csv;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 style CSV: comma-separated fields, optionally double-quoted, with
+ * {@code ""} as an escaped quote. A quoted field may span lines.
+ *
+ * <p>{@link #next()} only frames records (it tracks quote balance to join continuation
+ * lines); splitting into fields is left to {@link #split(String)} so that it can run on
+ * worker threads.</p>
+ */
+public class CsvRecordReader implements Closeable {
+
+    /** One raw CSV record; {@code line} is the 1-based line it starts on. */
+    public record CsvRecord(long line, String raw) {}
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+    }
+
+    /** The next non-blank record, or null at end of input. */
+    public CsvRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        long start = lineNumber;
+        if (quoteCount(line) % 2 == 0) {
+            return new CsvRecord(start, line);
+        }
+        // An odd number of quotes leaves a quoted field open: it continues on the next line
+        StringBuilder raw = new StringBuilder(line);
+        int quotes = quoteCount(line);
+        while (quotes % 2 != 0) {
+            String more = reader.readLine();
+            if (more == null) {
+                throw new IOException("Unterminated quoted field starting on line " + start);
+            }
+            lineNumber++;
+            raw.append('\n').append(more);
+            quotes += quoteCount(more);
+        }
+        return new CsvRecord(start, raw.toString());
+    }
+
+    private static int quoteCount(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Splits one record into its unquoted field values. */
+    public static List<String> split(String raw) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < raw.length() && raw.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /** Quotes a value for output if it contains a comma, quote or line break. */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,225 @@
+package com.airtribe.meditrack.persistence.excel;
+
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.persistence.csv.CsvBulkImporter;
+import com.airtribe.meditrack.persistence.csv.CsvRecordReader;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.LongFunction;
+
+/**
+ * Imports a patient roster from the first sheet of an {@code .xlsx} workbook.
+ *
+ * <p>Uses POI's event API: {@link XSSFReader} streams the sheet XML through a SAX
+ * {@link XSSFSheetXMLHandler}, so only the current row and the pending batch are held in
+ * memory (plus the workbook's shared-string table), unlike {@code XSSFWorkbook}, which
+ * builds the whole sheet as objects. Patients are inserted with
+ * {@link PatientService#addPatients} every {@link #BATCH_SIZE} rows.</p>
+ *
+ * <p>The first row is a header. Columns are matched by name, ignoring case, spaces and
+ * underscores: {@code id}/{@code patientId}, {@code personId} (defaults to the patient id),
+ * {@code name}, {@code age}, {@code mobile}/{@code mobileNo}/{@code phone},
+ * {@code mrn}/{@code medicalRecordNumber} and optionally {@code doctorId}. Rejected rows are
+ * written to a CSV file ({@code row,reason,record}) like {@link CsvBulkImporter} does.</p>
+ */
+public class ExcelRosterImporter {
+
+    public static final int BATCH_SIZE = 1_000;
+
+    // Canonical column order expected by CsvBulkImporter.parsePatient
+    private static final Map<String, Integer> COLUMNS = Map.ofEntries(
+            Map.entry("id", 0), Map.entry("patientid", 0),
+            Map.entry("personid", 1),
+            Map.entry("name", 2), Map.entry("patientname", 2),
+            Map.entry("age", 3),
+            Map.entry("mobile", 4), Map.entry("mobileno", 4), Map.entry("mobilenumber", 4), Map.entry("phone", 4),
+            Map.entry("mrn", 5), Map.entry("medicalrecordnumber", 5),
+            Map.entry("doctorid", 6));
+
+    private final int batchSize;
+
+    public ExcelRosterImporter() {
+        this(BATCH_SIZE);
+    }
+
+    public ExcelRosterImporter(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public CsvBulkImporter.ImportReport importPatients(Path workbook, Path rejectsFile, PatientService patientService,
+                                                       DoctorService doctorService) throws IOException {
+        long start = System.nanoTime();
+        RosterHandler handler = new RosterHandler(rejectsFile, patientService,
+                id -> doctorService.findById(id).orElse(null));
+        try (OPCPackage pkg = OPCPackage.open(workbook.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new InvalidDataException("Workbook has no sheets: " + workbook);
+            }
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, handler, new DataFormatter(), false));
+            try (InputStream sheet = sheets.next()) {
+                parser.parse(new InputSource(sheet));
+            }
+            handler.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Cannot read workbook " + workbook + ": " + e.getMessage(), e);
+        } finally {
+            handler.closeRejects();
+        }
+        return new CsvBulkImporter.ImportReport(handler.rows, handler.imported, handler.rejected,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private record Source(long row, String text) {}
+
+    private final class RosterHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Path rejectsFile;
+        private final PatientService patientService;
+        private final LongFunction<Doctor> doctors;
+        private final List<Patient> batch = new ArrayList<>(batchSize);
+        // Sheet row and cell values of each patient in the batch, for reject reports
+        private final Map<Patient, Source> sources = new IdentityHashMap<>();
+        private final String[] values = new String[7];
+        // Header: sheet column -> canonical column; columnOf is built from it once the header ends
+        private final Map<Integer, Integer> headerColumns = new HashMap<>();
+        private int[] columnOf;
+        private BufferedWriter rejects;
+        private int rowNum;
+        private long rows;
+        private long imported;
+        private long rejected;
+
+        RosterHandler(Path rejectsFile, PatientService patientService, LongFunction<Doctor> doctors) {
+            this.rejectsFile = rejectsFile;
+            this.patientService = patientService;
+            this.doctors = doctors;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            this.rowNum = rowNum;
+            Arrays.fill(values, "");
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = new CellReference(cellReference).getCol();
+            String value = formattedValue == null ? "" : formattedValue.trim();
+            if (columnOf == null) {
+                header(column, value);
+                return;
+            }
+            if (column < columnOf.length && columnOf[column] >= 0) {
+                // Whole numbers stored as decimals ("40.0") in some exports
+                values[columnOf[column]] = value.matches("\\d+\\.0+") ? value.substring(0, value.indexOf('.')) : value;
+            }
+        }
+
+        private void header(int column, String name) {
+            Integer target = COLUMNS.get(name.toLowerCase(Locale.ROOT).replaceAll("[\\s_]", ""));
+            if (target != null) {
+                headerColumns.put(column, target);
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (columnOf == null) {
+                columnOf = new int[headerColumns.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1];
+                Arrays.fill(columnOf, -1);
+                headerColumns.forEach((column, target) -> columnOf[column] = target);
+                for (int required : new int[] {0, 2, 3, 4, 5}) {
+                    if (!headerColumns.containsValue(required)) {
+                        throw new InvalidDataException("Roster header is missing a required column (id, name, age, mobile, mrn)");
+                    }
+                }
+                return;
+            }
+            if (Arrays.stream(values).allMatch(String::isEmpty)) {
+                return;
+            }
+            rows++;
+            if (values[1].isEmpty()) {
+                values[1] = values[0];
+            }
+            String source = String.join(",", Arrays.stream(values).map(CsvRecordReader::escape).toList());
+            try {
+                Patient patient = CsvBulkImporter.parsePatient(Arrays.asList(values.clone()), doctors);
+                batch.add(patient);
+                sources.put(patient, new Source(rowNum + 1, source));
+            } catch (RuntimeException e) {
+                reject(rowNum + 1, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(), source);
+            }
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            imported += patientService.addPatients(batch, (patient, reason) -> {
+                Source source = sources.get(patient);
+                reject(source.row(), reason, source.text());
+            });
+            batch.clear();
+            sources.clear();
+        }
+
+        private void reject(long row, String reason, String source) {
+            rejected++;
+            try {
+                if (rejects == null) {
+                    rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8);
+                    rejects.write("row,reason,record");
+                    rejects.newLine();
+                }
+                rejects.write(row + "," + CsvRecordReader.escape(reason) + "," + CsvRecordReader.escape(source));
+                rejects.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void closeRejects() throws IOException {
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.airtribe.meditrack.persistence.invoice;
+
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.BiConsumer;
+
+/**
+ * Placeholders available in an {@link InvoiceTemplate}, written as {@code {{name}}}.
+ * Each field appends its value to a reused {@link StringBuilder} rather than building a string.
+ */
+public enum InvoiceField {
+    BILL_ID("billId", (bill, out) -> out.append(bill.getId())),
+    CREATED_AT("createdAt", (bill, out) -> dateTime(bill.getCreatedAt(), out)),
+    STATUS("status", (bill, out) -> out.append(bill.getStatus())),
+    PAYMENT_DATE("paymentDate", (bill, out) -> dateTime(bill.getPaymentDate(), out)),
+    APPOINTMENT_ID("appointmentId", (bill, out) -> {
+        if (bill.getAppointment() != null) {
+            out.append(bill.getAppointment().getId());
+        }
+    }),
+    APPOINTMENT_DATE("appointmentDate", (bill, out) -> {
+        Appointment appointment = bill.getAppointment();
+        dateTime(appointment != null ? appointment.getAppointmentDateTime() : null, out);
+    }),
+    PATIENT_ID("patientId", (bill, out) -> {
+        Patient patient = patientOf(bill);
+        if (patient != null) {
+            out.append(patient.getId());
+        }
+    }),
+    PATIENT_NAME("patientName", (bill, out) -> {
+        Patient patient = patientOf(bill);
+        text(patient != null && patient.getPerson() != null ? patient.getPerson().getName() : null, out);
+    }),
+    MEDICAL_RECORD_NUMBER("medicalRecordNumber", (bill, out) -> {
+        Patient patient = patientOf(bill);
+        text(patient != null ? patient.getMedicalRecordNumber() : null, out);
+    }),
+    DOCTOR_NAME("doctorName", (bill, out) -> {
+        Doctor doctor = doctorOf(bill);
+        text(doctor != null ? doctor.getName() : null, out);
+    }),
+    SPECIALIZATION("specialization", (bill, out) -> {
+        Doctor doctor = doctorOf(bill);
+        if (doctor != null && doctor.getSpecialization() != null) {
+            out.append(doctor.getSpecialization());
+        }
+    }),
+    AMOUNT("amount", (bill, out) -> money(bill.getAmount(), out)),
+    TAX("tax", (bill, out) -> money(bill.getAmount() * Constants.TAX_RATE, out)),
+    TOTAL("total", (bill, out) -> money(bill.getAmount() * (1 + Constants.TAX_RATE), out)),
+    NOTES("notes", (bill, out) -> text(bill.getNotes(), out));
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern(Constants.DATE_TIME_FORMAT);
+
+    private final String placeholder;
+    private final BiConsumer<Bill, StringBuilder> writer;
+
+    InvoiceField(String placeholder, BiConsumer<Bill, StringBuilder> writer) {
+        this.placeholder = placeholder;
+        this.writer = writer;
+    }
+
+    public String placeholder() {
+        return placeholder;
+    }
+
+    void appendTo(Bill bill, StringBuilder out) {
+        writer.accept(bill, out);
+    }
+
+    static InvoiceField forPlaceholder(String name) {
+        for (InvoiceField field : values()) {
+            if (field.placeholder.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static Patient patientOf(Bill bill) {
+        return bill.getAppointment() != null ? bill.getAppointment().getPatient() : null;
+    }
+
+    private static Doctor doctorOf(Bill bill) {
+        Patient patient = patientOf(bill);
+        return patient != null ? patient.getAssignedDoctors() : null;
+    }
+
+    private static void text(String value, StringBuilder out) {
+        if (value != null) {
+            out.append(value);
+        }
+    }
+
+    private static void dateTime(LocalDateTime value, StringBuilder out) {
+        if (value != null) {
+            DATE_TIME.formatTo(value, out);
+        }
+    }
+
+    // Two decimals without going through String.format
+    private static void money(double value, StringBuilder out) {
+        long cents = Math.round(value * 100);
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,225 @@
+package com.airtribe.meditrack.persistence.invoice;
+
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.entity.Bill;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes one invoice file per bill ({@code invoice-<billId>.txt}) into an output directory,
+ * by default {@link Constants#BILL_OUTPUT_PATH}.
+ *
+ * <p>Bills are rendered in chunks on a fixed pool of I/O threads with a bounded queue;
+ * when the queue is full the submitting thread renders the chunk itself, which throttles
+ * submission instead of queueing the whole run. Each thread owns its scratch state (text
+ * builder, char buffer, encoder, a direct value buffer and the gather array), so rendering
+ * an invoice allocates next to nothing: the field values are encoded into the value buffer
+ * and written together with the template's pre-encoded literals in one gathering
+ * {@link FileChannel#write(ByteBuffer[])}.</p>
+ *
+ * <p>Bills are only read; they should not be modified while a run is in progress.</p>
+ */
+public class InvoiceRenderer implements Closeable {
+
+    public static final int CHUNK_SIZE = 256;
+
+    /** Outcome of one {@link #renderAll} run. */
+    public record RenderReport(long invoices, long bytes, long failed, long millis, String firstError) {
+
+        public double invoicesPerSecond() {
+            return invoices * 1000.0 / Math.max(1, millis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d invoice(s), %d KB in %d ms (%.0f/s)%s", invoices, bytes / 1024, millis,
+                    invoicesPerSecond(), failed == 0 ? "" : ", " + failed + " failed: " + firstError);
+        }
+    }
+
+    private final Path directory;
+    private final InvoiceTemplate template;
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Scratch> scratch;
+
+    public InvoiceRenderer() {
+        this(Path.of(Constants.BILL_OUTPUT_PATH), InvoiceTemplate.defaultTemplate(),
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param ioThreads number of threads writing invoice files
+     */
+    public InvoiceRenderer(Path directory, InvoiceTemplate template, int ioThreads) {
+        this.directory = directory;
+        this.template = template;
+        this.executor = new ThreadPoolExecutor(ioThreads, ioThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ioThreads * 2), r -> {
+                    Thread thread = new Thread(r, "invoice-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.scratch = ThreadLocal.withInitial(Scratch::new);
+    }
+
+    /** Renders a single invoice on the calling thread; returns the file written. */
+    public Path render(Bill bill) throws IOException {
+        Files.createDirectories(directory);
+        Path file = fileFor(bill);
+        scratch.get().write(bill, file);
+        return file;
+    }
+
+    /** Renders invoices for all bills in parallel and waits for the run to finish. */
+    public RenderReport renderAll(Collection<Bill> bills) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        LongAdder written = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        LongAdder failed = new LongAdder();
+        AtomicReference<String> firstError = new AtomicReference<>();
+
+        List<Future<?>> chunks = new ArrayList<>(bills.size() / CHUNK_SIZE + 1);
+        List<Bill> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (Bill bill : bills) {
+            chunk.add(bill);
+            if (chunk.size() == CHUNK_SIZE) {
+                chunks.add(submit(chunk, written, bytes, failed, firstError));
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(submit(chunk, written, bytes, failed, firstError));
+        }
+        for (Future<?> pending : chunks) {
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Invoice rendering interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Invoice rendering failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return new RenderReport(written.sum(), bytes.sum(), failed.sum(),
+                (System.nanoTime() - start) / 1_000_000, firstError.get());
+    }
+
+    private Future<?> submit(List<Bill> chunk, LongAdder written, LongAdder bytes, LongAdder failed,
+                             AtomicReference<String> firstError) {
+        return executor.submit(() -> {
+            Scratch local = scratch.get();
+            for (Bill bill : chunk) {
+                try {
+                    bytes.add(local.write(bill, fileFor(bill)));
+                    written.increment();
+                } catch (IOException | RuntimeException e) {
+                    failed.increment();
+                    firstError.compareAndSet(null, "bill " + bill.getId() + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Path fileFor(Bill bill) {
+        return directory.resolve("invoice-" + bill.getId() + ".txt");
+    }
+
+    public Path getDirectory() { return directory; }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /** Per-thread buffers reused for every invoice the thread renders. */
+    private final class Scratch {
+        private final StringBuilder text = new StringBuilder(128);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final int slots = template.slotCount();
+        // literal 0, value 0, literal 1, value 1, ..., literal n
+        private final ByteBuffer[] gather = new ByteBuffer[slots * 2 + 1];
+        private final int[] valueStart = new int[slots];
+        private final int[] valueEnd = new int[slots];
+        private CharBuffer chars = CharBuffer.allocate(256);
+        private ByteBuffer values;
+
+        Scratch() {
+            encoder.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            for (int i = 0; i <= slots; i++) {
+                gather[i * 2] = template.literalView(i);
+            }
+            allocateValues(8 * 1024);
+        }
+
+        private void allocateValues(int capacity) {
+            values = ByteBuffer.allocateDirect(capacity);
+            for (int i = 0; i < slots; i++) {
+                gather[i * 2 + 1] = values.duplicate();
+            }
+        }
+
+        /** @return bytes written */
+        long write(Bill bill, Path file) throws IOException {
+            while (!encodeValues(bill)) {
+                allocateValues(values.capacity() * 2);
+            }
+            long total = 0;
+            for (int i = 0; i <= slots; i++) {
+                total += gather[i * 2].clear().remaining();
+            }
+            for (int i = 0; i < slots; i++) {
+                ByteBuffer view = gather[i * 2 + 1];
+                view.clear().position(valueStart[i]).limit(valueEnd[i]);
+                total += view.remaining();
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long remaining = total;
+                while (remaining > 0) {
+                    remaining -= channel.write(gather);
+                }
+            }
+            return total;
+        }
+
+        // Encodes every field value back to back into `values`; false if it did not fit
+        private boolean encodeValues(Bill bill) {
+            values.clear();
+            for (int i = 0; i < slots; i++) {
+                text.setLength(0);
+                template.slot(i).appendTo(bill, text);
+                if (chars.capacity() < text.length()) {
+                    chars = CharBuffer.allocate(Math.max(text.length(), chars.capacity() * 2));
+                }
+                chars.clear();
+                chars.append(text).flip();
+                valueStart[i] = values.position();
+                encoder.reset();
+                CoderResult result = encoder.encode(chars, values, true);
+                if (result.isOverflow() || encoder.flush(values).isOverflow()) {
+                    return false;
+                }
+                valueEnd[i] = values.position();
+            }
+            return true;
+        }
+    }
+}
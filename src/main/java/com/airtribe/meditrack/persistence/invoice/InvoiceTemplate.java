@@ -0,0 +1,96 @@
+package com.airtribe.meditrack.persistence.invoice;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An invoice layout compiled once into alternating literal text and {@link InvoiceField} slots.
+ *
+ * <p>Literal text is encoded to UTF-8 at compile time and kept in read-only direct buffers;
+ * rendering only encodes the field values and hands literals and values to a single
+ * gathering write. A compiled template is immutable and shared by all rendering threads.</p>
+ */
+public final class InvoiceTemplate {
+
+    public static final String DEFAULT_TEXT = """
+            ==========================================
+                        MEDITRACK INVOICE
+            ==========================================
+            Invoice #:        {{billId}}
+            Issued:           {{createdAt}}
+            Status:           {{status}}
+            Paid on:          {{paymentDate}}
+            ------------------------------------------
+            Patient:          {{patientName}} (ID {{patientId}})
+            Medical record:   {{medicalRecordNumber}}
+            Doctor:           {{doctorName}} ({{specialization}})
+            Appointment:      #{{appointmentId}} on {{appointmentDate}}
+            ------------------------------------------
+            Consultation:     {{amount}}
+            Tax:              {{tax}}
+            TOTAL:            {{total}}
+            ------------------------------------------
+            Notes: {{notes}}
+            """;
+
+    private final ByteBuffer[] literals;
+    private final InvoiceField[] slots;
+
+    private InvoiceTemplate(ByteBuffer[] literals, InvoiceField[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Parses {@code {{placeholder}}} tokens.
+     *
+     * @throws IllegalArgumentException for an unknown placeholder or an unclosed token
+     */
+    public static InvoiceTemplate compile(String text) {
+        List<ByteBuffer> literals = new ArrayList<>();
+        List<InvoiceField> slots = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = text.indexOf("{{", position)) >= 0) {
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at " + open);
+            }
+            String name = text.substring(open + 2, close).trim();
+            InvoiceField field = InvoiceField.forPlaceholder(name);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown invoice placeholder: " + name);
+            }
+            literals.add(literal(text.substring(position, open)));
+            slots.add(field);
+            position = close + 2;
+        }
+        literals.add(literal(text.substring(position)));
+        return new InvoiceTemplate(literals.toArray(new ByteBuffer[0]), slots.toArray(new InvoiceField[0]));
+    }
+
+    public static InvoiceTemplate defaultTemplate() {
+        return compile(DEFAULT_TEXT);
+    }
+
+    private static ByteBuffer literal(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().asReadOnlyBuffer();
+    }
+
+    /** Number of field slots; literals number one more. */
+    int slotCount() {
+        return slots.length;
+    }
+
+    InvoiceField slot(int index) {
+        return slots[index];
+    }
+
+    /** A private view of literal {@code index}, so threads do not share buffer positions. */
+    ByteBuffer literalView(int index) {
+        return literals[index].duplicate();
+    }
+}
@@ -0,0 +1,323 @@
+package com.airtribe.meditrack.persistence.json;
+
+import com.airtribe.meditrack.constants.AppointmentStatus;
+import com.airtribe.meditrack.constants.Constants;
+import com.airtribe.meditrack.constants.Specialization;
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.entity.Person;
+import com.airtribe.meditrack.service.AppointmentService;
+import com.airtribe.meditrack.service.DoctorService;
+import com.airtribe.meditrack.service.PatientService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Saves and loads doctors, patients and appointments as JSON arrays, one entity per line.
+ *
+ * <p>Entities are streamed: each one is written straight to a buffered file channel and each
+ * one is parsed straight from tokens into an entity and handed to the service, so neither
+ * side ever holds the document in memory. References are stored as ids ({@code doctorId},
+ * {@code patientId}), so doctors must be loaded before patients and patients before
+ * appointments. Loading goes through the {@code restore*} methods, which upsert by id.</p>
+ */
+public class JsonDataStore {
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    @FunctionalInterface
+    private interface EntityWriter<T> {
+        void write(JsonWriter json, T entity) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface EntityReader<T> {
+        T read(JsonReader json) throws IOException;
+    }
+
+    private final Path doctorFile;
+    private final Path patientFile;
+    private final Path appointmentFile;
+
+    /** Uses the file locations from {@link Constants}. */
+    public JsonDataStore() {
+        this(Path.of(Constants.DOCTOR_DATA_FILE), Path.of(Constants.PATIENT_DATA_FILE),
+                Path.of(Constants.APPOINTMENT_DATA_FILE));
+    }
+
+    public JsonDataStore(Path doctorFile, Path patientFile, Path appointmentFile) {
+        this.doctorFile = doctorFile;
+        this.patientFile = patientFile;
+        this.appointmentFile = appointmentFile;
+    }
+
+    // ---------------- Save ----------------
+
+    public long saveDoctors(Iterable<Doctor> doctors) throws IOException {
+        return save(doctorFile, doctors, JsonDataStore::writeDoctor);
+    }
+
+    public long savePatients(Iterable<Patient> patients) throws IOException {
+        return save(patientFile, patients, JsonDataStore::writePatient);
+    }
+
+    public long saveAppointments(Iterable<Appointment> appointments) throws IOException {
+        return save(appointmentFile, appointments, JsonDataStore::writeAppointment);
+    }
+
+    public void saveAll(DoctorService doctorService, PatientService patientService,
+                        AppointmentService appointmentService) throws IOException {
+        saveDoctors(doctorService.getAllDoctors());
+        savePatients(patientService.getAllPatients());
+        saveAppointments(appointmentService.getAllAppointments());
+    }
+
+    // Writes to a temporary file and renames it, so a crash never leaves a half-written file behind
+    private static <T> long save(Path file, Iterable<T> entities, EntityWriter<T> writer) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             JsonWriter json = new JsonWriter(new BufferedWriter(
+                     Channels.newWriter(channel, StandardCharsets.UTF_8), WRITE_BUFFER))) {
+            json.beginArray();
+            for (T entity : entities) {
+                writer.write(json, entity);
+                count++;
+            }
+            json.endArray();
+            json.flush();
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private static void writeDoctor(JsonWriter json, Doctor doctor) throws IOException {
+        json.beginObject();
+        json.name("id").value(doctor.getId());
+        json.name("name").value(doctor.getName());
+        json.name("experience").value(doctor.getExperience());
+        json.name("specialization").value(doctor.getSpecialization());
+        json.name("availableDays");
+        if (doctor.getAvailableDays() == null) {
+            json.nullValue();
+        } else {
+            json.beginArray();
+            for (DayOfWeek day : doctor.getAvailableDays()) {
+                json.value(day.name());
+            }
+            json.endArray();
+        }
+        json.name("createdAt").value(doctor.getCreatedAt());
+        json.name("availableFrom").value(doctor.getAvailableFrom());
+        json.name("availableTo").value(doctor.getAvailableTo());
+        json.endObject();
+    }
+
+    private static void writePatient(JsonWriter json, Patient patient) throws IOException {
+        json.beginObject();
+        json.name("id").value(patient.getId());
+        json.name("medicalRecordNumber").value(patient.getMedicalRecordNumber());
+        json.name("registrationDate").value(patient.getRegistrationDate());
+        json.name("active").value(patient.isActive());
+        json.name("doctorId");
+        if (patient.getAssignedDoctors() != null) {
+            json.value(patient.getAssignedDoctors().getId());
+        } else {
+            json.nullValue();
+        }
+        json.name("person");
+        Person person = patient.getPerson();
+        if (person == null) {
+            json.nullValue();
+        } else {
+            json.beginObject();
+            json.name("id").value(person.getId());
+            json.name("name").value(person.getName());
+            json.name("age").value(person.getAge());
+            json.name("mobileNo").value(person.getMobileNo());
+            json.name("createdAt").value(person.getCreatedAt());
+            json.endObject();
+        }
+        json.endObject();
+    }
+
+    private static void writeAppointment(JsonWriter json, Appointment appointment) throws IOException {
+        json.beginObject();
+        json.name("id").value(appointment.getId());
+        json.name("patientId");
+        if (appointment.getPatient() != null) {
+            json.value(appointment.getPatient().getId());
+        } else {
+            json.nullValue();
+        }
+        json.name("appointmentDateTime").value(appointment.getAppointmentDateTime());
+        json.name("status").value(appointment.getStatus());
+        json.name("notes").value(appointment.getNotes());
+        json.endObject();
+    }
+
+    // ---------------- Load ----------------
+
+    /** Loads doctors into the service. A missing file loads nothing. */
+    public long loadDoctors(DoctorService doctorService) throws IOException {
+        return load(doctorFile, JsonDataStore::readDoctor, doctorService::restoreDoctor);
+    }
+
+    /** Loads patients; assigned doctors are resolved through {@code doctorService}. */
+    public long loadPatients(PatientService patientService, DoctorService doctorService) throws IOException {
+        return load(patientFile, json -> readPatient(json, doctorService), patientService::restorePatient);
+    }
+
+    /** Loads appointments; patients are resolved through {@code patientService}. */
+    public long loadAppointments(AppointmentService appointmentService, PatientService patientService) throws IOException {
+        return load(appointmentFile, json -> readAppointment(json, patientService), appointmentService::restoreAppointment);
+    }
+
+    public void loadAll(DoctorService doctorService, PatientService patientService,
+                        AppointmentService appointmentService) throws IOException {
+        loadDoctors(doctorService);
+        loadPatients(patientService, doctorService);
+        loadAppointments(appointmentService, patientService);
+    }
+
+    private static <T> long load(Path file, EntityReader<T> reader, Consumer<T> sink) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             JsonReader json = new JsonReader(Channels.newReader(channel, StandardCharsets.UTF_8))) {
+            json.beginArray();
+            while (json.hasNext()) {
+                sink.accept(reader.read(json));
+                count++;
+            }
+            json.endArray();
+        }
+        return count;
+    }
+
+    private static Doctor readDoctor(JsonReader json) throws IOException {
+        Doctor doctor = new Doctor();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> doctor.setId(json.nextLong());
+                case "name" -> doctor.setName(json.nextString());
+                case "experience" -> doctor.setExperience(json.nextInt());
+                case "specialization" -> doctor.setSpecialization(enumValue(json.nextString(), Specialization.class));
+                case "availableDays" -> doctor.setAvailableDays(readDays(json));
+                case "createdAt" -> doctor.setCreatedAt(dateTime(json.nextString()));
+                case "availableFrom" -> doctor.setAvailableFrom(time(json.nextString()));
+                case "availableTo" -> doctor.setAvailableTo(time(json.nextString()));
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return doctor;
+    }
+
+    private static Set<DayOfWeek> readDays(JsonReader json) throws IOException {
+        if (json.nextNull()) {
+            return null;
+        }
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        json.beginArray();
+        while (json.hasNext()) {
+            days.add(DayOfWeek.valueOf(json.nextString()));
+        }
+        json.endArray();
+        return days;
+    }
+
+    private static Patient readPatient(JsonReader json, DoctorService doctorService) throws IOException {
+        Patient patient = new Patient();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> patient.setId(json.nextLong());
+                case "medicalRecordNumber" -> patient.setMedicalRecordNumber(json.nextString());
+                case "registrationDate" -> patient.setRegistrationDate(dateTime(json.nextString()));
+                case "active" -> patient.setActive(json.nextBoolean());
+                case "doctorId" -> patient.setAssignedDoctors(json.nextNull()
+                        ? null : doctorService.findById(json.nextLong()).orElse(null));
+                case "person" -> patient.setPerson(readPerson(json));
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return patient;
+    }
+
+    private static Person readPerson(JsonReader json) throws IOException {
+        if (json.nextNull()) {
+            return null;
+        }
+        Person person = new Person();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> person.setId(json.nextLong());
+                case "name" -> person.setName(json.nextString());
+                case "age" -> person.setAge(json.nextInt());
+                case "mobileNo" -> person.setMobileNo(json.nextString());
+                case "createdAt" -> person.setCreatedAt(dateTime(json.nextString()));
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return person;
+    }
+
+    private static Appointment readAppointment(JsonReader json, PatientService patientService) throws IOException {
+        Appointment appointment = new Appointment();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> appointment.setId(json.nextLong());
+                case "patientId" -> appointment.setPatient(json.nextNull()
+                        ? null : patientService.findById(json.nextLong()).orElse(null));
+                case "appointmentDateTime" -> appointment.setAppointmentDateTime(dateTime(json.nextString()));
+                case "status" -> appointment.setStatus(enumValue(json.nextString(), AppointmentStatus.class));
+                case "notes" -> appointment.setNotes(json.nextString());
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return appointment;
+    }
+
+    private static LocalDateTime dateTime(String value) {
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+
+    private static LocalTime time(String value) {
+        return value != null ? LocalTime.parse(value) : null;
+    }
+
+    private static <E extends Enum<E>> E enumValue(String value, Class<E> type) {
+        return value != null ? Enum.valueOf(type, value) : null;
+    }
+
+    public Path getDoctorFile() { return doctorFile; }
+    public Path getPatientFile() { return patientFile; }
+    public Path getAppointmentFile() { return appointmentFile; }
+}
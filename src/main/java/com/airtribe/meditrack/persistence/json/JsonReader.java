@@ -0,0 +1,312 @@
+package com.airtribe.meditrack.persistence.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull-based JSON tokenizer. Reads through a fixed-size character buffer, so
+ * memory use does not depend on the size of the document; only the current string or
+ * number token is materialised.
+ */
+public class JsonReader implements Closeable {
+
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END }
+
+    private static final int MAX_DEPTH = 32;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+    private long consumed;
+
+    // Per open container: true once the first element (or name/value pair) has been read
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private final boolean[] inObject = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean expectValue;
+    private Token peeked;
+    private final StringBuilder text = new StringBuilder();
+
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Type of the next token without consuming it. */
+    public Token peek() throws IOException {
+        if (peeked == null) {
+            peeked = advance();
+        }
+        return peeked;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+    }
+
+    /** True while the current object or array has more elements. */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return text.toString();
+    }
+
+    /** Next string value, or null for a JSON null. */
+    public String nextString() throws IOException {
+        if (peek() == Token.NULL) {
+            peeked = null;
+            return null;
+        }
+        expect(Token.STRING);
+        return text.toString();
+    }
+
+    public long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        try {
+            return Long.parseLong(text, 0, text.length(), 10);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + text);
+        }
+    }
+
+    public int nextInt() throws IOException {
+        return Math.toIntExact(nextLong());
+    }
+
+    public double nextDouble() throws IOException {
+        expect(Token.NUMBER);
+        return Double.parseDouble(text.toString());
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return text.charAt(0) == 't';
+    }
+
+    /** Consumes a JSON null and returns true, or returns false without consuming anything. */
+    public boolean nextNull() throws IOException {
+        if (peek() == Token.NULL) {
+            peeked = null;
+            return true;
+        }
+        return false;
+    }
+
+    /** Skips the next value, including nested objects and arrays. Used for unknown fields. */
+    public void skipValue() throws IOException {
+        int nested = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+                nested++;
+            } else if (token == Token.END_OBJECT || token == Token.END_ARRAY) {
+                nested--;
+            } else if (token == Token.END) {
+                throw syntaxError("Unexpected end of input");
+            }
+        } while (nested > 0);
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private Token advance() throws IOException {
+        int c = nextNonWhitespace();
+        if (depth > 0 && !expectValue) {
+            // Between elements: close the container or consume the separator
+            char close = inObject[depth - 1] ? '}' : ']';
+            if (c == close) {
+                depth--;
+                return close == '}' ? Token.END_OBJECT : Token.END_ARRAY;
+            }
+            if (hasElements[depth - 1]) {
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or '" + close + "'");
+                }
+                c = nextNonWhitespace();
+            }
+            hasElements[depth - 1] = true;
+            if (inObject[depth - 1]) {
+                if (c != '"') {
+                    throw syntaxError("Expected a field name");
+                }
+                readString();
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                expectValue = true;
+                return Token.NAME;
+            }
+        }
+        expectValue = false;
+        switch (c) {
+            case -1:
+                if (depth > 0) {
+                    throw syntaxError("Unexpected end of input");
+                }
+                return Token.END;
+            case '{':
+            case '[':
+                if (depth == MAX_DEPTH) {
+                    throw syntaxError("Nesting too deep");
+                }
+                inObject[depth] = c == '{';
+                hasElements[depth++] = false;
+                return c == '{' ? Token.BEGIN_OBJECT : Token.BEGIN_ARRAY;
+            case '"':
+                readString();
+                return Token.STRING;
+            case 't':
+                readLiteral("true");
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral("false");
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral("null");
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber((char) c);
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            text.append(buffer, start, pos - start);
+            if (pos == limit) {
+                if (!fill()) {
+                    throw syntaxError("Unterminated string");
+                }
+                continue;
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            }
+            text.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void readNumber(char first) throws IOException {
+        text.setLength(0);
+        text.append(first);
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 1; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+        text.setLength(0);
+        text.append(literal);
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at character " + (consumed + pos));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
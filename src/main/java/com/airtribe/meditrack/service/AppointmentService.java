@@ -3,98 +3,379 @@ package com.airtribe.meditrack.service;
 import com.airtribe.meditrack.constants.AppointmentStatus;
 import com.airtribe.meditrack.entity.Appointment;
 import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Page;
 import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.event.EventBus;
+import com.airtribe.meditrack.event.EventType;
 import com.airtribe.meditrack.exception.AppointmentNotFoundException;
+import com.airtribe.meditrack.exception.ConcurrentUpdateException;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.interfaces.MutationLog;
 import com.airtribe.meditrack.interfaces.Searchable;
+import com.airtribe.meditrack.persistence.AppointmentArchive;
+import com.airtribe.meditrack.store.EntityStore;
 import com.airtribe.meditrack.utils.Validator;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class AppointmentService implements Searchable<Appointment> {
 
-    private final List<Appointment> appointments = new ArrayList<>();
+    private final EntityStore<Appointment> appointments = new EntityStore<>(Appointment::getId, Appointment::new);
+
+    // Appointment ids per patient id; written together with the store under the service lock
+    private final Map<Long, Set<Long>> idsByPatient = new ConcurrentHashMap<>();
+
+    // Answers which patients a doctor has now; null falls back to each appointment's patient
+    private PatientService patientService;
+
+    private MutationLog mutationLog = MutationLog.NONE;
+
+    // Cold tier for closed appointments; null keeps everything in memory
+    private AppointmentArchive archive;
+
+    // Receives booked and canceled events; null publishes nothing
+    private EventBus eventBus;
+
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog != null ? mutationLog : MutationLog.NONE;
+    }
+
+    public void setEventBus(EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    public void setArchive(AppointmentArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Looks up a doctor's appointments through the patient service's doctor-to-patient index,
+     * so they follow the patients' current assignments.
+     */
+    public void setPatientService(PatientService patientService) {
+        this.patientService = patientService;
+    }
+
+    public Optional<AppointmentArchive> getArchive() {
+        return Optional.ofNullable(archive);
+    }
+
+    /**
+     * Moves COMPLETED and CANCELED appointments dated before {@code cutoff} into the archive.
+     * They are written and synced to their segments before leaving the working set, and each
+     * move is logged so recovery does not bring them back.
+     *
+     * @return number of appointments moved out of memory
+     */
+    public int archiveClosedAppointments(LocalDateTime cutoff) throws IOException {
+        Set<Long> archived;
+        synchronized (this) {
+            if (archive == null) {
+                throw new IllegalStateException("No appointment archive configured");
+            }
+            List<Appointment> closed = appointments.stream()
+                    .filter(a -> a.getStatus() != AppointmentStatus.SCHEDULED)
+                    .filter(a -> a.getAppointmentDateTime() != null && a.getAppointmentDateTime().isBefore(cutoff))
+                    .collect(Collectors.toList());
+            if (closed.isEmpty()) {
+                return 0;
+            }
+            archived = archive.append(closed);
+            appointments.removeIf(a -> archived.contains(a.getId()));
+            closed.stream().filter(a -> archived.contains(a.getId())).forEach(this::unindex);
+            for (Long id : archived) {
+                mutationLog.appointmentArchived(id);
+            }
+        }
+        mutationLog.awaitDurable();
+        return archived.size();
+    }
+
+    // Recovery: drop an appointment that has moved to the archive, without logging
+    public synchronized void evictAppointment(long appointmentId) {
+        Appointment evicted = appointments.remove(appointmentId);
+        if (evicted != null) {
+            unindex(evicted);
+        }
+    }
+
+    /** Looks only at the in-memory working set, never at the archive. */
+    public Optional<Appointment> findInWorkingSet(long id) {
+        return appointments.find(id);
+    }
 
     public void bookAppointment(Appointment appointment) {
-        Validator.validateAppointment(appointment);
-        appointments.add(appointment);
+        synchronized (this) {
+            Validator.validateAppointment(appointment);
+            if (!appointments.insert(appointment)) {
+                throw new InvalidDataException("Duplicate appointment id: " + appointment.getId());
+            }
+            index(appointment);
+            mutationLog.appointmentBooked(appointment);
+        }
+        mutationLog.awaitDurable();
+        publish(EventType.APPOINTMENT_BOOKED, appointment);
+    }
+
+    // Recovery: insert or replace a stored appointment without validation or logging
+    public synchronized void restoreAppointment(Appointment appointment) {
+        Appointment previous = appointments.put(appointment);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(appointment);
+    }
+
+    private void index(Appointment appointment) {
+        if (appointment.getPatient() != null) {
+            idsByPatient.computeIfAbsent(appointment.getPatient().getId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(appointment.getId());
+        }
+    }
+
+    private void unindex(Appointment appointment) {
+        if (appointment.getPatient() != null) {
+            long patientId = appointment.getPatient().getId();
+            Set<Long> ids = idsByPatient.get(patientId);
+            if (ids != null && ids.remove(appointment.getId()) && ids.isEmpty()) {
+                idsByPatient.remove(patientId);
+            }
+        }
     }
 
     public void cancelAppointment(long appointmentId) {
-        Appointment appointment = findById(appointmentId)
-                .orElseThrow(() ->
-                        new AppointmentNotFoundException(
-                                "Appointment not found with ID: " + appointmentId));
+        Appointment canceled;
+        synchronized (this) {
+            EntityStore.Revisioned<Appointment> current = appointments.getRevisioned(appointmentId);
+            if (current == null) {
+                throw new AppointmentNotFoundException("Appointment not found with ID: " + appointmentId);
+            }
+            canceled = markCanceled(current);
+            mutationLog.appointmentCanceled(appointmentId);
+        }
+        mutationLog.awaitDurable();
+        publish(EventType.APPOINTMENT_CANCELED, canceled);
+    }
 
-        appointment.setStatus(AppointmentStatus.CANCELED);
+    // Recovery: re-applies a logged cancellation without logging; ids no longer in memory are ignored
+    public synchronized void applyCanceled(long appointmentId) {
+        EntityStore.Revisioned<Appointment> current = appointments.getRevisioned(appointmentId);
+        if (current != null) {
+            markCanceled(current);
+        }
+    }
+
+    // Replaces the stored appointment with a canceled copy, based on the revision just read
+    private Appointment markCanceled(EntityStore.Revisioned<Appointment> current) {
+        Appointment canceled = new Appointment(current.value());
+        canceled.setStatus(AppointmentStatus.CANCELED);
+        appointments.compareAndReplace(canceled.getId(), current.revision(), canceled);
+        return canceled;
+    }
+
+    // Called after the service lock is released and the change is durable
+    private void publish(EventType type, Appointment appointment) {
+        if (eventBus != null) {
+            Patient patient = appointment.getPatient();
+            eventBus.publish(type, appointment.getId(), patient != null ? patient.getId() : 0, 0);
+        }
     }
 
     public void updateAppointment(long appointmentId,
                                   LocalDateTime newDateTime,
                                   String newNotes) {
+        updateAppointment(appointmentId, newDateTime, newNotes, EntityStore.ANY_REVISION);
+    }
 
-        Appointment appointment = findById(appointmentId)
-                .orElseThrow(() ->
-                        new AppointmentNotFoundException(
-                                "Cannot update. Appointment not found with ID: " + appointmentId));
+    /**
+     * Reschedules the appointment only if it is still at {@code expectedRevision}, as read
+     * through {@link #findRevisionedById(long)}. The stored appointment is replaced by an
+     * updated copy instead of being changed in place, so readers see either the old or the
+     * new appointment, never half of each.
+     *
+     * @return the appointment's new revision
+     * @throws AppointmentNotFoundException if it is not in the working set
+     * @throws ConcurrentUpdateException if it was changed after that revision
+     */
+    public long updateAppointment(long appointmentId,
+                                  LocalDateTime newDateTime,
+                                  String newNotes,
+                                  long expectedRevision) {
+        long revision;
+        synchronized (this) {
+            Appointment current = findInWorkingSet(appointmentId)
+                    .orElseThrow(() ->
+                            new AppointmentNotFoundException(
+                                    "Cannot update. Appointment not found with ID: " + appointmentId));
+
+            revision = appointments.compareAndReplace(appointmentId, expectedRevision,
+                    rescheduled(current, newDateTime, newNotes));
+            mutationLog.appointmentUpdated(appointmentId, newDateTime, newNotes);
+        }
+        mutationLog.awaitDurable();
+        return revision;
+    }
 
-        appointment.setAppointmentDateTime(newDateTime);
-        appointment.setNotes(newNotes);
+    // Recovery: re-applies a logged reschedule without logging; ids no longer in memory are ignored
+    public synchronized void applyUpdated(long appointmentId, LocalDateTime newDateTime, String newNotes) {
+        findInWorkingSet(appointmentId).ifPresent(current -> appointments.compareAndReplace(appointmentId,
+                EntityStore.ANY_REVISION, rescheduled(current, newDateTime, newNotes)));
     }
 
+    private static Appointment rescheduled(Appointment current, LocalDateTime newDateTime, String newNotes) {
+        Appointment updated = new Appointment(current);
+        updated.setAppointmentDateTime(newDateTime);
+        updated.setNotes(newNotes);
+        return updated;
+    }
+
+    /** The appointment with the revision a conditional update must be based on; working set only. */
+    public Optional<EntityStore.Revisioned<Appointment>> findRevisionedById(long appointmentId) {
+        return Optional.ofNullable(appointments.getRevisioned(appointmentId));
+    }
+
+    // Falls back to the archive, so ids of archived appointments keep resolving
     @Override
     public Optional<Appointment> findById(long id) {
-        return appointments.stream()
-                .filter(a -> a.getId() == id)
-                .findFirst();
+        Appointment appointment = appointments.get(id);
+        if (appointment != null || archive == null) {
+            return Optional.ofNullable(appointment);
+        }
+        return archive.findById(id);
     }
 
+    // Includes archived appointments, like the paged and streamed variants
     @Override
     public List<Appointment> findByName(String patientName) {
-        return appointments.stream()
-                .filter(a -> a.getPatient() != null)
-                .filter(a -> a.getPatient().getPerson().getName()
-                        .equalsIgnoreCase(patientName))
-                .collect(Collectors.toList());
+        return withArchived(appointments.stream(), archive == null ? null : archive::streamAll, named(patientName));
+    }
+
+    @Override
+    public Stream<Appointment> streamByName(String patientName) {
+        return streamWithArchived(named(patientName));
+    }
+
+    private static Predicate<Appointment> named(String patientName) {
+        return a -> a.getPatient() != null && a.getPatient().getPerson() != null
+                && a.getPatient().getPerson().getName().equalsIgnoreCase(patientName);
     }
 
+    // Includes archived history for the patient
     public List<Appointment> getAppointmentsByPatient(Patient patient) {
-        return appointments.stream()
-                .filter(a -> a.getPatient().getId() == patient.getId())
-                .collect(Collectors.toList());
+        return withArchived(appointments.stream(), archive == null ? null : archive::streamAll,
+                a -> a.getPatient() != null && a.getPatient().getId() == patient.getId());
     }
 
+    // Includes archived history of the doctor's current patients, in id order
     public List<Appointment> getAppointmentsByDoctor(Doctor doctor) {
-        return appointments.stream()
-                .filter(a -> a.getPatient().getAssignedDoctors().getId() == doctor.getId())
+        List<Appointment> result = withArchived(streamByDoctor(doctor.getId()),
+                archive == null ? null : archive::streamAll, ofDoctor(doctor.getId()));
+        result.sort(Comparator.comparingLong(Appointment::getId));
+        return result;
+    }
+
+    // Upcoming SCHEDULED appointments with the doctor, earliest first (a doctor's day view)
+    public List<Appointment> getDoctorSchedule(long doctorId) {
+        LocalDateTime now = LocalDateTime.now();
+        return streamByDoctor(doctorId)
+                .filter(a -> a.getStatus() == AppointmentStatus.SCHEDULED)
+                .filter(a -> a.getAppointmentDateTime().isAfter(now))
+                .sorted(Comparator.comparing(Appointment::getAppointmentDateTime))
                 .collect(Collectors.toList());
     }
 
+    // Only closed statuses are archived, so SCHEDULED never touches the archive
     public List<Appointment> getAppointmentsByStatus(AppointmentStatus status) {
-        return appointments.stream()
-                .filter(a -> a.getStatus() == status)
-                .collect(Collectors.toList());
+        boolean historical = archive != null && status != AppointmentStatus.SCHEDULED;
+        return withArchived(appointments.stream(), historical ? archive::streamAll : null,
+                a -> a.getStatus() == status);
     }
 
+    // Working set only: this is what checkpoints copy, and archived appointments are already on disk
     public List<Appointment> getAllAppointments() {
-        return new ArrayList<>(appointments);
+        return appointments.snapshot();
     }
 
-    // Advanced Java 8: Find appointments by predicate
+    // Advanced Java 8: Find appointments by predicate (archived ones included)
     public List<Appointment> findAppointmentsByPredicate(Predicate<Appointment> predicate) {
-        return appointments.stream()
-                .filter(predicate)
-                .collect(Collectors.toList());
+        return withArchived(appointments.stream(), archive == null ? null : archive::streamAll, predicate);
+    }
+
+    // Working set only, like getAllAppointments
+    public Stream<Appointment> streamAppointments() {
+        return appointments.stream();
+    }
+
+    public Stream<Appointment> streamAppointmentsByPredicate(Predicate<Appointment> predicate) {
+        return streamWithArchived(predicate);
+    }
+
+    // Working set only, like getAllAppointments
+    public Page<Appointment> getAppointments(int offset, int limit) {
+        return Page.of(streamAppointments(), offset, limit);
+    }
+
+    public Page<Appointment> findAppointmentsByPredicate(Predicate<Appointment> predicate, int offset, int limit) {
+        return Page.of(streamAppointmentsByPredicate(predicate), offset, limit);
     }
 
-    // Advanced Java 8: Get appointments for specific date
+    // Advanced Java 8: Get appointments for specific date (reads only that month's archive segment)
     public List<Appointment> getAppointmentsByDate(LocalDate date) {
-        return appointments.stream()
-                .filter(a -> a.getAppointmentDateTime().toLocalDate().equals(date))
-                .collect(Collectors.toList());
+        return getAppointmentsBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /** Appointments dated in {@code [from, to)}, from memory and the overlapping archive segments. */
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        return withArchived(appointments.stream(), archive == null ? null : () -> archive.stream(from, to),
+                a -> !a.getAppointmentDateTime().isBefore(from) && a.getAppointmentDateTime().isBefore(to));
+    }
+
+    // Working-set appointments of the doctor's patients: one index lookup per patient, no scan
+    private Stream<Appointment> streamByDoctor(long doctorId) {
+        if (patientService == null) {
+            return appointments.stream().filter(ofDoctor(doctorId));
+        }
+        return patientService.getPatientIdsByDoctor(doctorId).stream()
+                .flatMap(patientId -> idsByPatient.getOrDefault(patientId, Set.of()).stream())
+                .map(appointments::get)
+                .filter(Objects::nonNull);
+    }
+
+    private Predicate<Appointment> ofDoctor(long doctorId) {
+        if (patientService != null) {
+            Set<Long> patientIds = patientService.getPatientIdsByDoctor(doctorId);
+            return a -> a.getPatient() != null && patientIds.contains(a.getPatient().getId());
+        }
+        return a -> a.getPatient() != null && a.getPatient().getAssignedDoctors() != null
+                && a.getPatient().getAssignedDoctors().getId() == doctorId;
+    }
+
+    // Lazy: archive segments are read only as far as the stream is consumed. Closing the stream
+    // releases the segment being read, which Page.of does
+    private Stream<Appointment> streamWithArchived(Predicate<Appointment> filter) {
+        Stream<Appointment> hot = appointments.stream().filter(filter);
+        return archive == null ? hot : Stream.concat(hot, archive.streamAll().filter(filter));
+    }
+
+    // Hot matches first, then archived ones; the archive stream is closed after collecting
+    private List<Appointment> withArchived(Stream<Appointment> hot,
+                                           Supplier<Stream<Appointment>> cold,
+                                           Predicate<Appointment> filter) {
+        List<Appointment> result = hot.filter(filter).collect(Collectors.toList());
+        if (cold != null) {
+            try (Stream<Appointment> archived = cold.get()) {
+                archived.filter(filter).forEach(result::add);
+            }
+        }
+        return result;
     }
 
     // Advanced Java 8: Get upcoming appointments
@@ -106,35 +387,53 @@ public class AppointmentService implements Searchable<Appointment> {
                 .collect(Collectors.toList());
     }
 
-    // Advanced Java 8: Count appointments by status
+    // Advanced Java 8: Count appointments by status (archived counts come from the archive manifest)
     public Map<AppointmentStatus, Long> countAppointmentsByStatus() {
-        return appointments.stream()
-                .collect(Collectors.groupingBy(
-                        Appointment::getStatus,
-                        Collectors.counting()
-                ));
+        Map<AppointmentStatus, Long> archived = new EnumMap<>(AppointmentStatus.class);
+        Map<AppointmentStatus, Long> counts;
+        try (EntityStore.Snapshot<Appointment> snapshot = openSnapshotWithArchived(archived)) {
+            counts = snapshot.stream()
+                    .collect(Collectors.groupingBy(
+                            Appointment::getStatus,
+                            Collectors.counting()
+                    ));
+        }
+        archived.forEach((status, count) -> counts.merge(status, count, Long::sum));
+        return counts;
     }
 
-    // Advanced Java 8: Group appointments by date
+    // Advanced Java 8: Group appointments by date (reads every archive segment)
     public Map<LocalDate, List<Appointment>> groupAppointmentsByDate() {
-        return appointments.stream()
+        return withArchived(appointments.stream(), archive == null ? null : archive::streamAll, a -> true).stream()
                 .collect(Collectors.groupingBy(
                         a -> a.getAppointmentDateTime().toLocalDate()
                 ));
     }
 
-    // Advanced Java 8: Get appointment statistics
+    // Advanced Java 8: Get appointment statistics; every pass reads the same snapshot
     public Map<String, Long> getAppointmentStatistics() {
-        long total = appointments.size();
-        long scheduled = appointments.stream()
-                .filter(a -> a.getStatus() == AppointmentStatus.SCHEDULED)
-                .count();
-        long completed = appointments.stream()
-                .filter(a -> a.getStatus() == AppointmentStatus.COMPLETED)
-                .count();
-        long canceled = appointments.stream()
-                .filter(a -> a.getStatus() == AppointmentStatus.CANCELED)
-                .count();
+        long total;
+        long scheduled;
+        long completed;
+        long canceled;
+        Map<AppointmentStatus, Long> archived = new EnumMap<>(AppointmentStatus.class);
+        try (EntityStore.Snapshot<Appointment> snapshot = openSnapshotWithArchived(archived)) {
+            total = snapshot.stream().count();
+            scheduled = snapshot.stream()
+                    .filter(a -> a.getStatus() == AppointmentStatus.SCHEDULED)
+                    .count();
+            completed = snapshot.stream()
+                    .filter(a -> a.getStatus() == AppointmentStatus.COMPLETED)
+                    .count();
+            canceled = snapshot.stream()
+                    .filter(a -> a.getStatus() == AppointmentStatus.CANCELED)
+                    .count();
+        }
+
+        // Only closed appointments are archived
+        completed += archived.getOrDefault(AppointmentStatus.COMPLETED, 0L);
+        canceled += archived.getOrDefault(AppointmentStatus.CANCELED, 0L);
+        total += archived.values().stream().mapToLong(Long::longValue).sum();
 
         Map<String, Long> stats = new HashMap<>();
         stats.put("total", total);
@@ -144,12 +443,25 @@ public class AppointmentService implements Searchable<Appointment> {
         return stats;
     }
 
+    /**
+     * Pins the working set and puts the archive's counts per status into {@code archived}, both
+     * under the service lock that archiving holds while it moves appointments out of memory, so
+     * no appointment is counted twice or missed.
+     */
+    private EntityStore.Snapshot<Appointment> openSnapshotWithArchived(Map<AppointmentStatus, Long> archived) {
+        synchronized (this) {
+            if (archive != null) {
+                archived.putAll(archive.countByStatus());
+            }
+            return appointments.openSnapshot();
+        }
+    }
+
     // Advanced Java 8: Check for appointment conflicts
     public boolean hasConflictingAppointment(Doctor doctor, LocalDateTime dateTime, long durationMinutes) {
         LocalDateTime endTime = dateTime.plusMinutes(durationMinutes);
         
-        return appointments.stream()
-                .filter(a -> a.getPatient().getAssignedDoctors().getId() == doctor.getId())
+        return streamByDoctor(doctor.getId())
                 .filter(a -> a.getStatus() == AppointmentStatus.SCHEDULED)
                 .anyMatch(a -> {
                     LocalDateTime existingStart = a.getAppointmentDateTime();
@@ -1,47 +1,151 @@
 package com.airtribe.meditrack.service;
 
 import com.airtribe.meditrack.constants.BillStatus;
+import com.airtribe.meditrack.entity.Appointment;
 import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Page;
+import com.airtribe.meditrack.event.EventBus;
+import com.airtribe.meditrack.event.EventType;
 import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.interfaces.MutationLog;
+import com.airtribe.meditrack.store.EntityStore;
 import com.airtribe.meditrack.utils.Validator;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class BillService {
 
-    private final List<Bill> bills = new ArrayList<>();
+    private final EntityStore<Bill> bills = new EntityStore<>(Bill::getId, Bill::new);
+
+    private MutationLog mutationLog = MutationLog.NONE;
+
+    // Receives created and paid events; null publishes nothing
+    private EventBus eventBus;
+
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog != null ? mutationLog : MutationLog.NONE;
+    }
+
+    public void setEventBus(EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
 
     public void createBill(Bill bill) {
-        Validator.validateBill(bill);
-        bills.add(bill);
+        synchronized (this) {
+            Validator.validateBill(bill);
+            if (!bills.insert(bill)) {
+                throw new InvalidDataException("Duplicate bill id: " + bill.getId());
+            }
+            mutationLog.billCreated(bill);
+        }
+        mutationLog.awaitDurable();
+        publish(EventType.BILL_CREATED, bill);
+    }
+
+    // Recovery: insert or replace a stored bill without validation or logging
+    public synchronized void restoreBill(Bill bill) {
+        bills.put(bill);
     }
 
     public Optional<Bill> findById(long billId) {
-        return bills.stream()
-                .filter(b -> b.getId() == billId)
-                .findFirst();
+        return bills.find(billId);
     }
 
     public List<Bill> getAllBills() {
-        return new ArrayList<>(bills);
+        return bills.snapshot();
+    }
+
+    /**
+     * Pins the bills as they are now, for reports that make several passes or run long.
+     * Writers are not blocked; close the snapshot when done.
+     */
+    public EntityStore.Snapshot<Bill> openSnapshot() {
+        return bills.openSnapshot();
     }
 
     public void payBill(long billId) {
-        Bill bill = findById(billId)
-                .orElseThrow(() ->
-                        new InvalidDataException("Bill not found with ID: " + billId));
+        pay(billId, Bill::pay);
+    }
+
+    /** Pays the bill like {@link #payBill} without the bill's console message, for callers with their own output. */
+    public void markBillPaid(long billId) {
+        pay(billId, Bill::markPaid);
+    }
+
+    private void pay(long billId, Consumer<Bill> payment) {
+        Bill paid;
+        boolean changed;
+        synchronized (this) {
+            EntityStore.Revisioned<Bill> current = requireRevisioned(billId);
+            paid = new Bill(current.value());
+            payment.accept(paid);
+            changed = !current.value().isPaid() && paid.isPaid();
+            if (changed) {
+                bills.compareAndReplace(billId, current.revision(), paid);
+                mutationLog.billPaid(billId, paid.getPaymentDate());
+            }
+        }
+        mutationLog.awaitDurable();
+        if (changed) {
+            publish(EventType.BILL_PAID, paid);
+        }
+    }
+
+    // Recovery: re-applies a logged payment with its original date, without logging
+    public synchronized void applyPaid(long billId, LocalDateTime paymentDate) {
+        EntityStore.Revisioned<Bill> current = bills.getRevisioned(billId);
+        if (current != null) {
+            Bill paid = new Bill(current.value());
+            paid.setStatus(BillStatus.PAID);
+            paid.setPaymentDate(paymentDate);
+            bills.compareAndReplace(billId, current.revision(), paid);
+        }
+    }
 
-        bill.pay();
+    // Called after the service lock is released and the change is durable
+    private void publish(EventType type, Bill bill) {
+        if (eventBus != null) {
+            Appointment appointment = bill.getAppointment();
+            eventBus.publish(type, bill.getId(), appointment != null ? appointment.getId() : 0, bill.getAmount());
+        }
     }
 
     public void cancelPayment(long billId) {
-        Bill bill = findById(billId)
-                .orElseThrow(() ->
-                        new InvalidDataException("Bill not found with ID: " + billId));
+        synchronized (this) {
+            EntityStore.Revisioned<Bill> current = requireRevisioned(billId);
+            Bill pending = new Bill(current.value());
+            pending.cancelPayment();
+            if (current.value().isPaid() && !pending.isPaid()) {
+                bills.compareAndReplace(billId, current.revision(), pending);
+                mutationLog.billPaymentCanceled(billId);
+            }
+        }
+        mutationLog.awaitDurable();
+    }
 
-        bill.cancelPayment();
+    // Recovery: re-applies a logged payment cancellation without logging
+    public synchronized void applyPaymentCanceled(long billId) {
+        EntityStore.Revisioned<Bill> current = bills.getRevisioned(billId);
+        if (current != null) {
+            Bill pending = new Bill(current.value());
+            pending.setStatus(BillStatus.PENDING);
+            pending.setPaymentDate(null);
+            bills.compareAndReplace(billId, current.revision(), pending);
+        }
+    }
+
+    // Bills are replaced by updated copies, based on the revision read here
+    private EntityStore.Revisioned<Bill> requireRevisioned(long billId) {
+        EntityStore.Revisioned<Bill> current = bills.getRevisioned(billId);
+        if (current == null) {
+            throw new InvalidDataException("Bill not found with ID: " + billId);
+        }
+        return current;
     }
 
     public boolean isBillPaid(long billId) {
@@ -65,14 +169,23 @@ public class BillService {
                 .sum();
     }
 
-    // Advanced Java 8: Get bill statistics
+    // Advanced Java 8: Get bill statistics; every pass reads the same snapshot
     public Map<String, Double> getBillStatistics() {
-        return Map.of(
-                "total", bills.stream().mapToDouble(Bill::getAmount).sum(),
-                "paid", getTotalAmountByStatus(BillStatus.PAID),
-                "pending", getTotalAmountByStatus(BillStatus.PENDING),
-                "average", bills.stream().mapToDouble(Bill::getAmount).average().orElse(0.0)
-        );
+        try (EntityStore.Snapshot<Bill> snapshot = bills.openSnapshot()) {
+            return Map.of(
+                    "total", snapshot.stream().mapToDouble(Bill::getAmount).sum(),
+                    "paid", totalAmount(snapshot, BillStatus.PAID),
+                    "pending", totalAmount(snapshot, BillStatus.PENDING),
+                    "average", snapshot.stream().mapToDouble(Bill::getAmount).average().orElse(0.0)
+            );
+        }
+    }
+
+    private static double totalAmount(EntityStore.Snapshot<Bill> snapshot, BillStatus status) {
+        return snapshot.stream()
+                .filter(bill -> bill.getStatus() == status)
+                .mapToDouble(Bill::getAmount)
+                .sum();
     }
 
     // Advanced Java 8: Find bills by predicate
@@ -82,6 +195,22 @@ public class BillService {
                 .collect(Collectors.toList());
     }
 
+    public Stream<Bill> streamBills() {
+        return bills.stream();
+    }
+
+    public Stream<Bill> streamBillsByPredicate(Predicate<Bill> predicate) {
+        return bills.stream().filter(predicate);
+    }
+
+    public Page<Bill> getBills(int offset, int limit) {
+        return Page.of(streamBills(), offset, limit);
+    }
+
+    public Page<Bill> findBillsByPredicate(Predicate<Bill> predicate, int offset, int limit) {
+        return Page.of(streamBillsByPredicate(predicate), offset, limit);
+    }
+
     // Advanced Java 8: Group bills by status
     public Map<BillStatus, List<Bill>> groupBillsByStatus() {
         return bills.stream()
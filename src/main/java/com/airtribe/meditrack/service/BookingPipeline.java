@@ -0,0 +1,161 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.exception.BookingRejectedException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of {@link AppointmentService#bookAppointment(Appointment)} for
+ * booking bursts.
+ *
+ * <p>At most {@code maxConcurrent} bookings run at once; the rest wait in line. Each doctor's
+ * line holds at most {@code maxQueuePerDoctor} bookings (running ones included), so one
+ * popular doctor cannot fill the whole system. A booking is turned away with a
+ * {@link BookingRejectedException} instead of waiting when its doctor's line is full, when
+ * the line ahead of it would already take longer than the deadline at the recent booking
+ * rate, or when the deadline passes while it waits. Rejections are immediate and cheap, so
+ * under overload the admitted bookings keep a short, stable wait instead of everyone timing out.</p>
+ */
+public class BookingPipeline {
+
+    private static final int WAIT_SAMPLES = 1024;
+    // Weight of the newest sample in the moving average of booking time, in 1/8ths
+    private static final int EWMA_SHIFT = 3;
+
+    /** Point-in-time counters; wait percentiles cover the last {@value #WAIT_SAMPLES} admitted bookings. */
+    public record Metrics(int queued, int running, long admitted, long completed,
+                          long rejectedQueueFull, long rejectedDeadline,
+                          double p50WaitMillis, double p99WaitMillis, double avgBookingMillis) {}
+
+    private final AppointmentService appointmentService;
+    private final int maxConcurrent;
+    private final int maxQueuePerDoctor;
+    private final long deadlineNanos;
+    private final Semaphore permits;
+    private final Map<Long, AtomicInteger> depthByDoctor = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedDeadline = new LongAdder();
+    private volatile long bookingNanosAverage;
+    private final AtomicLongArray waitSamples = new AtomicLongArray(WAIT_SAMPLES);
+    private final AtomicLong waitSampleCount = new AtomicLong();
+
+    public BookingPipeline(AppointmentService appointmentService, int maxConcurrent,
+                           int maxQueuePerDoctor, Duration deadline) {
+        if (maxConcurrent < 1 || maxQueuePerDoctor < 1 || deadline.isNegative() || deadline.isZero()) {
+            throw new IllegalArgumentException("Limits and deadline must be positive");
+        }
+        this.appointmentService = appointmentService;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueuePerDoctor = maxQueuePerDoctor;
+        this.deadlineNanos = deadline.toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Books the appointment once admitted, within the deadline.
+     *
+     * @throws BookingRejectedException if it was not admitted; nothing was booked
+     */
+    public void book(Appointment appointment) {
+        long start = System.nanoTime();
+        long doctorId = doctorIdOf(appointment);
+        AtomicInteger depth = depthByDoctor.computeIfAbsent(doctorId, id -> new AtomicInteger());
+        try {
+            if (depth.incrementAndGet() > maxQueuePerDoctor) {
+                rejectedQueueFull.increment();
+                throw new BookingRejectedException("Booking queue full for doctor " + doctorId + "; try again later");
+            }
+            admit(start);
+            try {
+                long bookingStart = System.nanoTime();
+                appointmentService.bookAppointment(appointment);
+                recordBookingTime(System.nanoTime() - bookingStart);
+                completed.increment();
+            } finally {
+                permits.release();
+            }
+        } finally {
+            depth.decrementAndGet();
+        }
+    }
+
+    public Metrics getMetrics() {
+        long count = Math.min(waitSampleCount.get(), WAIT_SAMPLES);
+        long[] waits = new long[(int) count];
+        for (int i = 0; i < waits.length; i++) {
+            waits[i] = waitSamples.get(i);
+        }
+        Arrays.sort(waits);
+        return new Metrics(waiting.get(), maxConcurrent - permits.availablePermits(),
+                admitted.sum(), completed.sum(), rejectedQueueFull.sum(), rejectedDeadline.sum(),
+                percentileMillis(waits, 0.50), percentileMillis(waits, 0.99), bookingNanosAverage / 1e6);
+    }
+
+    /** Current line length for one doctor, running bookings included. */
+    public int getQueueDepth(long doctorId) {
+        AtomicInteger depth = depthByDoctor.get(doctorId);
+        return depth != null ? depth.get() : 0;
+    }
+
+    // Takes a permit within the deadline, or rejects
+    private void admit(long start) {
+        int ahead = waiting.getAndIncrement();
+        try {
+            // Fast rejection: the bookings already waiting would use up the deadline
+            if ((long) ahead * bookingNanosAverage / maxConcurrent > deadlineNanos) {
+                rejectedDeadline.increment();
+                throw new BookingRejectedException("Booking would miss its deadline; try again later");
+            }
+            long remaining = deadlineNanos - (System.nanoTime() - start);
+            if (!permits.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                rejectedDeadline.increment();
+                throw new BookingRejectedException("Booking deadline of "
+                        + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + " ms passed while waiting");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingRejectedException("Interrupted while waiting to book", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        admitted.increment();
+        long slot = waitSampleCount.getAndIncrement() % WAIT_SAMPLES;
+        waitSamples.set((int) slot, System.nanoTime() - start);
+    }
+
+    // Racy by design: an occasional lost sample does not matter for an estimate
+    private void recordBookingTime(long nanos) {
+        long average = bookingNanosAverage;
+        bookingNanosAverage = average == 0 ? nanos : average + ((nanos - average) >> EWMA_SHIFT);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // Unassigned patients share line -1; validation rejects them once admitted
+    private static long doctorIdOf(Appointment appointment) {
+        Patient patient = appointment.getPatient();
+        Doctor doctor = patient != null ? patient.getAssignedDoctors() : null;
+        return doctor != null ? doctor.getId() : -1L;
+    }
+}
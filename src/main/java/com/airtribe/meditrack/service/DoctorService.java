@@ -2,54 +2,175 @@ package com.airtribe.meditrack.service;
 
 import com.airtribe.meditrack.constants.Specialization;
 import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Page;
+import com.airtribe.meditrack.exception.ConcurrentUpdateException;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.index.TrigramIndex;
+import com.airtribe.meditrack.interfaces.MutationLog;
 import com.airtribe.meditrack.interfaces.Searchable;
+import com.airtribe.meditrack.store.EntityStore;
 import com.airtribe.meditrack.utils.Validator;
 
 import java.time.DayOfWeek;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class DoctorService implements Searchable<Doctor> {
 
-    private final List<Doctor> doctors = new ArrayList<>();
+    // Written together with the name index under the service lock
+    private final EntityStore<Doctor> doctors = new EntityStore<>(Doctor::getId);
+
+    private final TrigramIndex nameIndex = new TrigramIndex();
+
+    private MutationLog mutationLog = MutationLog.NONE;
+
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog != null ? mutationLog : MutationLog.NONE;
+    }
 
     public void addDoctor(Doctor doctor) {
-        Validator.validateDoctor(doctor);
-        doctors.add(doctor);
+        synchronized (this) {
+            Validator.validateDoctor(doctor);
+            if (doctors.contains(doctor.getId())) {
+                throw new InvalidDataException("Duplicate doctor id: " + doctor.getId());
+            }
+            insertDoctor(doctor);
+            mutationLog.doctorAdded(doctor);
+        }
+        mutationLog.awaitDurable();
+    }
+
+    /**
+     * Bulk insert of already validated doctors. Doctors whose id is taken are handed to
+     * {@code onReject} instead of being added.
+     *
+     * @return number of doctors added
+     */
+    public int addDoctors(Collection<Doctor> batch, BiConsumer<Doctor, String> onReject) {
+        int added = 0;
+        synchronized (this) {
+            for (Doctor doctor : batch) {
+                if (doctors.contains(doctor.getId())) {
+                    onReject.accept(doctor, "Duplicate doctor id: " + doctor.getId());
+                    continue;
+                }
+                insertDoctor(doctor);
+                mutationLog.doctorAdded(doctor);
+                added++;
+            }
+        }
+        mutationLog.awaitDurable();
+        return added;
+    }
+
+    // Recovery: insert or replace a stored doctor without validation or logging
+    public synchronized void restoreDoctor(Doctor doctor) {
+        if (doctors.contains(doctor.getId())) {
+            replaceDoctor(doctor.getId(), doctor);
+        } else {
+            insertDoctor(doctor);
+        }
     }
 
 
     public boolean removeDoctor(long doctorId) {
-        return doctors.removeIf(d -> d.getId() == doctorId);
+        synchronized (this) {
+            if (doctors.remove(doctorId) == null) {
+                return false;
+            }
+            nameIndex.remove(doctorId);
+            mutationLog.doctorRemoved(doctorId);
+        }
+        mutationLog.awaitDurable();
+        return true;
     }
 
     public boolean updateDoctor(long doctorId, Doctor updatedDoctor) {
-        boolean exists = doctors.stream().anyMatch(d -> d.getId() == doctorId);
-        if (exists) {
-            doctors.replaceAll(d -> d.getId() == doctorId ? updatedDoctor : d);
+        boolean exists;
+        synchronized (this) {
+            exists = doctors.contains(doctorId);
+            if (exists) {
+                replaceDoctor(doctorId, updatedDoctor);
+                mutationLog.doctorUpdated(doctorId, updatedDoctor);
+            }
         }
+        mutationLog.awaitDurable();
         return exists;
     }
 
+    /**
+     * Replaces the doctor only if it is still at {@code expectedRevision}, as read through
+     * {@link #findRevisionedById(long)}.
+     *
+     * @return the doctor's new revision
+     * @throws InvalidDataException if there is no such doctor
+     * @throws ConcurrentUpdateException if the doctor was changed after that revision
+     */
+    public long updateDoctor(long doctorId, Doctor updatedDoctor, long expectedRevision) {
+        long revision;
+        synchronized (this) {
+            revision = doctors.compareAndReplace(doctorId, expectedRevision, updatedDoctor);
+            if (revision < 0) {
+                throw new InvalidDataException("Doctor not found with ID: " + doctorId);
+            }
+            nameIndex.put(doctorId, updatedDoctor.getName());
+            mutationLog.doctorUpdated(doctorId, updatedDoctor);
+        }
+        mutationLog.awaitDurable();
+        return revision;
+    }
+
+    private void insertDoctor(Doctor doctor) {
+        if (doctors.insert(doctor)) {
+            nameIndex.put(doctor.getId(), doctor.getName());
+        }
+    }
+
+    private void replaceDoctor(long doctorId, Doctor updatedDoctor) {
+        doctors.replace(doctorId, updatedDoctor);
+        nameIndex.put(doctorId, updatedDoctor.getName());
+    }
+
     public List<Doctor> getAllDoctors() {
-        return new ArrayList<>(doctors);
+        return doctors.snapshot();
     }
 
     @Override
     public Optional<Doctor> findById(long id) {
-        return doctors.stream()
-                .filter(d -> d.getId() == id)
-                .findFirst();
+        return doctors.find(id);
+    }
+
+    /** The doctor with the revision a conditional update must be based on. */
+    public Optional<EntityStore.Revisioned<Doctor>> findRevisionedById(long id) {
+        return Optional.ofNullable(doctors.getRevisioned(id));
+    }
+
+    /** Batched lookup: the doctors found for {@code ids}, keyed by id. */
+    public Map<Long, Doctor> findAllById(Collection<Long> ids) {
+        return doctors.getAll(ids);
     }
 
     @Override
     public List<Doctor> findByName(String name) {
+        return streamByName(name).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Doctor> streamByName(String name) {
         return doctors.stream()
-                .filter(d -> d.getName().equalsIgnoreCase(name))
-                .collect(Collectors.toList());
+                .filter(d -> d.getName().equalsIgnoreCase(name));
     }
 
+    @Override
+    public List<Doctor> searchByName(String query, int limit) {
+        return nameIndex.search(query, limit).stream()
+                .map(match -> doctors.get(match.id()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
     public List<Doctor> findDoctorsBySpecialization(Specialization specialization) {
         return doctors.stream()
@@ -71,6 +192,22 @@ public class DoctorService implements Searchable<Doctor> {
                 .collect(Collectors.toList());
     }
 
+    public Stream<Doctor> streamDoctors() {
+        return doctors.stream();
+    }
+
+    public Stream<Doctor> streamDoctorsByPredicate(Predicate<Doctor> predicate) {
+        return doctors.stream().filter(predicate);
+    }
+
+    public Page<Doctor> getDoctors(int offset, int limit) {
+        return Page.of(streamDoctors(), offset, limit);
+    }
+
+    public Page<Doctor> findDoctorsByPredicate(Predicate<Doctor> predicate, int offset, int limit) {
+        return Page.of(streamDoctorsByPredicate(predicate), offset, limit);
+    }
+
     // Advanced Java 8: Get average experience
     public OptionalDouble getAverageExperience() {
         return doctors.stream()
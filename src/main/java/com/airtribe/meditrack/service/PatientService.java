@@ -1,80 +1,434 @@
 package com.airtribe.meditrack.service;
 
 import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Page;
 import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.exception.ConcurrentUpdateException;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.index.MobileNumberIndex;
+import com.airtribe.meditrack.index.TrigramIndex;
+import com.airtribe.meditrack.interfaces.MutationLog;
 import com.airtribe.meditrack.interfaces.Searchable;
+import com.airtribe.meditrack.persistence.binary.DiskEntityStore;
+import com.airtribe.meditrack.persistence.binary.EntityLayouts;
+import com.airtribe.meditrack.store.EntityStore;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.LongFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class PatientService implements Searchable<Patient> {
 
-    private List<Patient> patients = new ArrayList<>();
+    // Written together with the MRN, mobile and name indexes under the service lock
+    private final EntityStore<Patient> patients = new EntityStore<>(Patient::getId, Patient::new);
+
+    // Unique index: normalized medical record number -> patient id
+    private final Map<String, Long> patientsByMrn = new ConcurrentHashMap<>();
+
+    // Normalized 10-digit mobile number -> patient ids, used for dedup at registration
+    private final MobileNumberIndex mobileIndex = new MobileNumberIndex();
+
+    // Reverse index: doctor id -> ids of the patients assigned to that doctor
+    private final Map<Long, Set<Long>> patientIdsByDoctor = new ConcurrentHashMap<>();
+
+    private final TrigramIndex nameIndex = new TrigramIndex();
+
+    private MutationLog mutationLog = MutationLog.NONE;
+
+    // Disk-backed mode: patients live in this store instead of `patients`
+    private final DiskEntityStore<Patient> diskStore;
+
+    public PatientService() {
+        this.diskStore = null;
+    }
+
+    private PatientService(DiskEntityStore<Patient> diskStore) {
+        this.diskStore = diskStore;
+        // One sequential pass builds the id-based secondary indexes; the patients are not kept
+        diskStore.stream().forEach(this::indexPatient);
+    }
+
+    /**
+     * Opens a disk-backed patient service on a binary patient file (created if missing).
+     *
+     * <p>Only the secondary indexes, a bounded cache of recently used patients and the
+     * patients changed since the last {@link #flush()} are held in memory; other patients are
+     * decoded from the memory-mapped file on demand. Doctors are resolved through
+     * {@code doctors}, so they must be loaded first.</p>
+     *
+     * <p>The patient file is the only persistence of this mode, so it is not offered by
+     * {@code Main}: durable recovery would restore every patient into the unflushed changes
+     * and hold the whole registry in memory again.</p>
+     *
+     * @param cacheCapacity maximum number of unchanged patients kept in memory
+     */
+    public static PatientService openDiskBacked(Path file, int cacheCapacity, LongFunction<Doctor> doctors) throws IOException {
+        return new PatientService(DiskEntityStore.open(file, EntityLayouts.patient(doctors), cacheCapacity));
+    }
+
+    public boolean isDiskBacked() {
+        return diskStore != null;
+    }
+
+    /** Disk-backed mode only: the underlying store, e.g. for cache statistics. */
+    public Optional<DiskEntityStore<Patient>> getDiskStore() {
+        return Optional.ofNullable(diskStore);
+    }
+
+    /** Disk-backed mode: writes changed patients into the patient file. No-op in memory. */
+    public void flush() throws IOException {
+        if (diskStore != null) {
+            diskStore.flush();
+        }
+    }
+
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog != null ? mutationLog : MutationLog.NONE;
+    }
 
     public void addPatient(Patient patient) {
-        patients.add(patient);
+        synchronized (this) {
+            insertPatient(patient);
+            mutationLog.patientAdded(patient);
+        }
+        mutationLog.awaitDurable();
+    }
+
+    /**
+     * Bulk insert of already validated patients. Patients whose id or medical record number
+     * is taken are handed to {@code onReject} instead of being added.
+     *
+     * @return number of patients added
+     */
+    public int addPatients(Collection<Patient> batch, BiConsumer<Patient, String> onReject) {
+        int added = 0;
+        synchronized (this) {
+            for (Patient patient : batch) {
+                if (exists(patient.getId())) {
+                    onReject.accept(patient, "Duplicate patient id: " + patient.getId());
+                    continue;
+                }
+                try {
+                    insertPatient(patient);
+                } catch (InvalidDataException e) {
+                    onReject.accept(patient, e.getMessage());
+                    continue;
+                }
+                mutationLog.patientAdded(patient);
+                added++;
+            }
+        }
+        mutationLog.awaitDurable();
+        return added;
+    }
+
+    // Recovery: insert or replace a stored patient without logging
+    public synchronized void restorePatient(Patient patient) {
+        if (exists(patient.getId())) {
+            replacePatient(patient.getId(), patient);
+        } else {
+            insertPatient(patient);
+        }
+    }
+
+    private void insertPatient(Patient patient) {
+        if (exists(patient.getId())) {
+            throw new InvalidDataException("Duplicate patient id: " + patient.getId());
+        }
+        String mrn = normalizeMrn(patient.getMedicalRecordNumber());
+        if (mrn != null && patientsByMrn.containsKey(mrn)) {
+            throw new InvalidDataException("Duplicate medical record number: " + patient.getMedicalRecordNumber());
+        }
+        if (diskStore != null) {
+            diskStore.put(patient);
+        } else {
+            patients.insert(patient);
+        }
+        indexPatient(patient);
+    }
+
+    private void indexPatient(Patient patient) {
+        mobileIndex.add(mobileOf(patient), patient.getId());
+        indexDoctor(patient);
+        nameIndex.put(patient.getId(), nameOf(patient));
+        String mrn = normalizeMrn(patient.getMedicalRecordNumber());
+        if (mrn != null) {
+            patientsByMrn.put(mrn, patient.getId());
+        }
     }
 
     public boolean removePatient(long patientId) {
-        return patients.removeIf(p -> p.getId() == patientId);
+        boolean removed;
+        synchronized (this) {
+            Patient existing = lookup(patientId);
+            if (existing != null) {
+                unindexMrn(existing);
+                mobileIndex.remove(mobileOf(existing), patientId);
+                unindexDoctor(existing);
+                nameIndex.remove(patientId);
+            }
+            if (diskStore != null) {
+                removed = diskStore.remove(patientId);
+            } else {
+                removed = patients.remove(patientId) != null;
+            }
+            if (removed) {
+                mutationLog.patientRemoved(patientId);
+            }
+        }
+        mutationLog.awaitDurable();
+        return removed;
     }
 
     public boolean updatePatient(long patientId, Patient updatedPatient) {
-        boolean exists = patients.stream().anyMatch(p -> p.getId() == patientId);
-        if (exists) {
-            patients.replaceAll(p -> p.getId() == patientId ? updatedPatient : p);
+        boolean exists;
+        synchronized (this) {
+            exists = exists(patientId);
+            if (exists) {
+                replacePatient(patientId, updatedPatient);
+                mutationLog.patientUpdated(patientId, updatedPatient);
+            }
         }
+        mutationLog.awaitDurable();
         return exists;
     }
 
+    /**
+     * Replaces the patient only if it is still at {@code expectedRevision}, as read through
+     * {@link #findRevisionedById(long)}. Revisions are kept in memory mode only.
+     *
+     * @return the patient's new revision
+     * @throws InvalidDataException if there is no such patient or the MRN belongs to another
+     * @throws ConcurrentUpdateException if the patient was changed after that revision
+     */
+    public long updatePatient(long patientId, Patient updatedPatient, long expectedRevision) {
+        long revision;
+        synchronized (this) {
+            requireMemoryMode();
+            checkMrnOwner(patientId, updatedPatient);
+            Patient previous = patients.get(patientId);
+            revision = patients.compareAndReplace(patientId, expectedRevision, updatedPatient);
+            if (revision < 0) {
+                throw new InvalidDataException("Patient not found with ID: " + patientId);
+            }
+            unindexForReplace(previous);
+            indexPatient(updatedPatient);
+            mutationLog.patientUpdated(patientId, updatedPatient);
+        }
+        mutationLog.awaitDurable();
+        return revision;
+    }
+
+    private void replacePatient(long patientId, Patient updatedPatient) {
+        checkMrnOwner(patientId, updatedPatient);
+        unindexForReplace(lookup(patientId));
+        if (diskStore != null) {
+            diskStore.put(updatedPatient);
+        } else {
+            patients.replace(patientId, updatedPatient);
+        }
+        indexPatient(updatedPatient);
+    }
+
+    private void checkMrnOwner(long patientId, Patient updatedPatient) {
+        String mrn = normalizeMrn(updatedPatient.getMedicalRecordNumber());
+        Long owner = mrn != null ? patientsByMrn.get(mrn) : null;
+        if (owner != null && owner != patientId) {
+            throw new InvalidDataException("Duplicate medical record number: " + updatedPatient.getMedicalRecordNumber());
+        }
+    }
+
+    // The name index entry is overwritten by indexPatient, so it is left alone here
+    private void unindexForReplace(Patient previous) {
+        if (previous != null) {
+            unindexMrn(previous);
+            mobileIndex.remove(mobileOf(previous), previous.getId());
+            unindexDoctor(previous);
+        }
+    }
+
+    private void requireMemoryMode() {
+        if (diskStore != null) {
+            throw new IllegalStateException("Patient revisions are only kept in memory mode");
+        }
+    }
+
+    public Optional<Patient> findByMedicalRecordNumber(String medicalRecordNumber) {
+        String mrn = normalizeMrn(medicalRecordNumber);
+        Long patientId = mrn != null ? patientsByMrn.get(mrn) : null;
+        return patientId == null ? Optional.empty() : Optional.ofNullable(lookup(patientId));
+    }
+
+    public boolean isMedicalRecordNumberTaken(String medicalRecordNumber) {
+        String mrn = normalizeMrn(medicalRecordNumber);
+        return mrn != null && patientsByMrn.containsKey(mrn);
+    }
+
+    public List<Patient> findPatientsByMobileNumber(String mobileNo) {
+        return Arrays.stream(mobileIndex.get(mobileNo))
+                .mapToObj(this::lookup)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Duplicate check for registration: true if any patient already uses this number
+    public boolean isMobileNumberRegistered(String mobileNo) {
+        return mobileIndex.contains(mobileNo);
+    }
+
+    // In disk-backed mode this materialises every patient; prefer streamPatients()
     public List<Patient> getAllPatients() {
-        return patients;
+        if (diskStore != null) {
+            return Collections.unmodifiableList(diskStore.stream().collect(Collectors.toList()));
+        }
+        return patients.snapshot();
     }
 
     public boolean assignDoctorToPatient(long patientId, Doctor doctor) {
-        Optional<Patient> patientOpt = findById(patientId);
-        if (patientOpt.isPresent()) {
-            Patient patient = patientOpt.get();
-            // If you keep Set<Doctor> in Patient
-            patient.setAssignedDoctors(doctor);
+        boolean assigned;
+        synchronized (this) {
+            assigned = applyDoctorAssigned(patientId, doctor);
+            if (assigned) {
+                mutationLog.doctorAssigned(patientId, doctor != null ? doctor.getId() : -1L);
+            }
+        }
+        mutationLog.awaitDurable();
+        return assigned;
+    }
+
+    // Recovery: re-applies a logged assignment without logging
+    public synchronized boolean applyDoctorAssigned(long patientId, Doctor doctor) {
+        if (diskStore != null) {
+            Patient current = diskStore.get(patientId);
+            if (current == null) {
+                return false;
+            }
+            // Keep the change: a cached patient may be evicted and decoded again
+            diskStore.put(reassigned(current, doctor));
             return true;
         }
-        return false;
+        EntityStore.Revisioned<Patient> current = patients.getRevisioned(patientId);
+        if (current == null) {
+            return false;
+        }
+        patients.compareAndReplace(patientId, current.revision(), reassigned(current.value(), doctor));
+        return true;
+    }
+
+    // An updated copy replaces the stored patient, so readers never see it half changed
+    private Patient reassigned(Patient current, Doctor doctor) {
+        Patient updated = new Patient(current);
+        updated.setAssignedDoctors(doctor);
+        unindexDoctor(current);
+        indexDoctor(updated);
+        return updated;
+    }
+
+    // Caseload queries backed by the doctor -> patients reverse index
+    public List<Patient> getPatientsByDoctor(long doctorId) {
+        return patientIdsByDoctor.getOrDefault(doctorId, Collections.emptySet()).stream()
+                .map(this::lookup)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public Set<Long> getPatientIdsByDoctor(long doctorId) {
+        return Collections.unmodifiableSet(patientIdsByDoctor.getOrDefault(doctorId, Collections.emptySet()));
+    }
+
+    public int countPatientsByDoctor(long doctorId) {
+        return patientIdsByDoctor.getOrDefault(doctorId, Collections.emptySet()).size();
+    }
+
+    public Map<Long, Integer> getCaseloadByDoctor() {
+        return patientIdsByDoctor.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().size()));
     }
 
     @Override
     public Optional<Patient> findById(long patientId) {
-        return patients.stream()
-                .filter(p -> p.getId() == patientId)
-                .findFirst();
+        return Optional.ofNullable(lookup(patientId));
+    }
+
+    /** The patient with the revision a conditional update must be based on; memory mode only. */
+    public Optional<EntityStore.Revisioned<Patient>> findRevisionedById(long patientId) {
+        requireMemoryMode();
+        return Optional.ofNullable(patients.getRevisioned(patientId));
+    }
+
+    /** Batched lookup: the patients found for {@code ids}, keyed by id; one disk pass in disk-backed mode. */
+    public Map<Long, Patient> findAllById(Collection<Long> ids) {
+        return diskStore != null ? diskStore.getAll(ids) : patients.getAll(ids);
     }
 
     @Override
     public List<Patient> findByName(String name) {
-        return patients.stream()
-                .filter(p -> p.getPerson().getName().equalsIgnoreCase(name))
+        return streamByName(name).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Patient> streamByName(String name) {
+        return allPatients()
+                .filter(p -> p.getPerson().getName().equalsIgnoreCase(name));
+    }
+
+    @Override
+    public List<Patient> searchByName(String query, int limit) {
+        return nameIndex.search(query, limit).stream()
+                .map(match -> lookup(match.id()))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     // Advanced Java 8: Find patients by predicate
     public List<Patient> findPatientsByPredicate(Predicate<Patient> predicate) {
-        return patients.stream()
+        return allPatients()
                 .filter(predicate)
                 .collect(Collectors.toList());
     }
 
+    public Stream<Patient> streamPatients() {
+        return allPatients();
+    }
+
+    public Stream<Patient> streamPatientsByPredicate(Predicate<Patient> predicate) {
+        return allPatients().filter(predicate);
+    }
+
+    public Page<Patient> getPatients(int offset, int limit) {
+        return Page.of(streamPatients(), offset, limit);
+    }
+
+    public Page<Patient> findPatientsByPredicate(Predicate<Patient> predicate, int offset, int limit) {
+        return Page.of(streamPatientsByPredicate(predicate), offset, limit);
+    }
+
     // Advanced Java 8: Find active patients
     public List<Patient> findActivePatients() {
-        return patients.stream()
+        return allPatients()
                 .filter(Patient::isActive)
                 .collect(Collectors.toList());
     }
 
-    // Advanced Java 8: Get patient statistics
+    // Advanced Java 8: Get patient statistics; in memory, both passes read the same snapshot
     public Map<String, Long> getPatientStatistics() {
-        long totalPatients = patients.size();
-        long activePatients = patients.stream().filter(Patient::isActive).count();
+        long totalPatients;
+        long activePatients;
+        if (diskStore != null) {
+            totalPatients = diskStore.size();
+            activePatients = diskStore.stream().filter(Patient::isActive).count();
+        } else {
+            try (EntityStore.Snapshot<Patient> snapshot = patients.openSnapshot()) {
+                totalPatients = snapshot.stream().count();
+                activePatients = snapshot.stream().filter(Patient::isActive).count();
+            }
+        }
         long inactivePatients = totalPatients - activePatients;
         
         Map<String, Long> stats = new HashMap<>();
@@ -86,8 +440,61 @@ public class PatientService implements Searchable<Patient> {
 
     // Advanced Java 8: Find patients by age range
     public List<Patient> findPatientsByAgeRange(int minAge, int maxAge) {
-        return patients.stream()
+        return allPatients()
                 .filter(p -> p.getPerson().getAge() >= minAge && p.getPerson().getAge() <= maxAge)
                 .collect(Collectors.toList());
     }
+
+    private Patient lookup(long patientId) {
+        return diskStore != null ? diskStore.get(patientId) : patients.get(patientId);
+    }
+
+    private boolean exists(long patientId) {
+        return diskStore != null ? diskStore.contains(patientId) : patients.contains(patientId);
+    }
+
+    private Stream<Patient> allPatients() {
+        return diskStore != null ? diskStore.stream() : patients.stream();
+    }
+
+    private void unindexMrn(Patient patient) {
+        String mrn = normalizeMrn(patient.getMedicalRecordNumber());
+        if (mrn != null) {
+            patientsByMrn.remove(mrn, patient.getId());
+        }
+    }
+
+    private void indexDoctor(Patient patient) {
+        if (patient.getAssignedDoctors() != null) {
+            patientIdsByDoctor
+                    .computeIfAbsent(patient.getAssignedDoctors().getId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(patient.getId());
+        }
+    }
+
+    private void unindexDoctor(Patient patient) {
+        if (patient.getAssignedDoctors() != null) {
+            long doctorId = patient.getAssignedDoctors().getId();
+            Set<Long> ids = patientIdsByDoctor.get(doctorId);
+            if (ids != null && ids.remove(patient.getId()) && ids.isEmpty()) {
+                patientIdsByDoctor.remove(doctorId);
+            }
+        }
+    }
+
+    private static String nameOf(Patient patient) {
+        return patient.getPerson() != null ? patient.getPerson().getName() : null;
+    }
+
+    private static String mobileOf(Patient patient) {
+        return patient.getPerson() != null ? patient.getPerson().getMobileNo() : null;
+    }
+
+    // MRNs are matched case-insensitively and ignoring surrounding whitespace
+    private static String normalizeMrn(String medicalRecordNumber) {
+        if (medicalRecordNumber == null || medicalRecordNumber.trim().isEmpty()) {
+            return null;
+        }
+        return medicalRecordNumber.trim().toUpperCase(Locale.ROOT);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.constants.AppointmentStatus;
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Doctor;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.event.EventBus;
+import com.airtribe.meditrack.exception.AppointmentNotFoundException;
+import com.airtribe.meditrack.exception.InvalidDataException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Appointments hash-partitioned by doctor over independent {@link AppointmentService} shards,
+ * each with its own lock and store.
+ *
+ * <p>An appointment is booked into the shard of the doctor its patient is assigned to at
+ * booking time and stays there, so bookings for different doctors take different locks and
+ * proceed in parallel. Lookups by id go straight to the owning shard. Queries across doctors
+ * run on all shards at once and merge the results; each shard answers from its own state, so
+ * a merged report is consistent per shard, not across shards. There is no archive tier.</p>
+ *
+ * <p>This is a library API for embedding callers; the CLI, batch mode and HTTP API keep the
+ * single {@link AppointmentService}. Shards are in memory only and take no mutation log:
+ * snapshots, recovery and log shipping work on one unsharded service and could not route
+ * records back to a shard, so a sharded setup loses its state on exit.</p>
+ */
+public class ShardedAppointmentService {
+
+    private final Shards<AppointmentService> shards;
+
+    /** One shard per available processor. */
+    public ShardedAppointmentService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedAppointmentService(int shardCount) {
+        this.shards = new Shards<>(shardCount, AppointmentService::new);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /** The shard bookings for this doctor go to. */
+    public int shardOf(long doctorId) {
+        return shards.indexFor(doctorId);
+    }
+
+    public void setEventBus(EventBus eventBus) {
+        shards.forEach(shard -> shard.setEventBus(eventBus));
+    }
+
+    // Only the doctor's shard is locked; the id is reserved first so it stays unique across shards
+    public void bookAppointment(Appointment appointment) {
+        if (appointment == null) {
+            throw new InvalidDataException("Appointment cannot be null");
+        }
+        AppointmentService shard = shards.forKey(doctorIdOf(appointment));
+        if (!shards.claim(appointment.getId(), shard)) {
+            throw new InvalidDataException("Duplicate appointment id: " + appointment.getId());
+        }
+        try {
+            shard.bookAppointment(appointment);
+        } catch (RuntimeException e) {
+            shards.release(appointment.getId());
+            throw e;
+        }
+    }
+
+    public void cancelAppointment(long appointmentId) {
+        owner(appointmentId).cancelAppointment(appointmentId);
+    }
+
+    public void updateAppointment(long appointmentId, LocalDateTime newDateTime, String newNotes) {
+        owner(appointmentId).updateAppointment(appointmentId, newDateTime, newNotes);
+    }
+
+    public Optional<Appointment> findById(long id) {
+        return shards.owner(id).flatMap(shard -> shard.findById(id));
+    }
+
+    public List<Appointment> getAllAppointments() {
+        return concat(shards.gather(AppointmentService::getAllAppointments));
+    }
+
+    public List<Appointment> getAppointmentsByPatient(Patient patient) {
+        return concat(shards.gather(shard -> shard.getAppointmentsByPatient(patient)));
+    }
+
+    // Gathered from every shard: a patient may have been reassigned since booking
+    public List<Appointment> getAppointmentsByDoctor(Doctor doctor) {
+        return concat(shards.gather(shard -> shard.getAppointmentsByDoctor(doctor)));
+    }
+
+    public List<Appointment> getAppointmentsByStatus(AppointmentStatus status) {
+        return concat(shards.gather(shard -> shard.getAppointmentsByStatus(status)));
+    }
+
+    public List<Appointment> getDoctorSchedule(long doctorId) {
+        return mergeByDateTime(shards.gather(shard -> shard.getDoctorSchedule(doctorId)), Integer.MAX_VALUE);
+    }
+
+    public List<Appointment> getUpcomingAppointments() {
+        return getUpcomingAppointments(Integer.MAX_VALUE);
+    }
+
+    /** The {@code limit} earliest upcoming appointments; each shard sends only its own first {@code limit}. */
+    public List<Appointment> getUpcomingAppointments(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return mergeByDateTime(shards.gather(shard -> shard.streamAppointments()
+                .filter(a -> a.getAppointmentDateTime().isAfter(now))
+                .filter(a -> a.getStatus() == AppointmentStatus.SCHEDULED)
+                .sorted(Comparator.comparing(Appointment::getAppointmentDateTime))
+                .limit(limit)
+                .collect(Collectors.toList())), limit);
+    }
+
+    // Advanced Java 8: Count appointments by status across shards
+    public Map<AppointmentStatus, Long> countAppointmentsByStatus() {
+        Map<AppointmentStatus, Long> counts = new EnumMap<>(AppointmentStatus.class);
+        shards.gather(AppointmentService::countAppointmentsByStatus)
+                .forEach(partial -> partial.forEach((status, count) -> counts.merge(status, count, Long::sum)));
+        return counts;
+    }
+
+    // Advanced Java 8: Group appointments by date across shards
+    public Map<LocalDate, List<Appointment>> groupAppointmentsByDate() {
+        Map<LocalDate, List<Appointment>> groups = new HashMap<>();
+        shards.gather(AppointmentService::groupAppointmentsByDate)
+                .forEach(partial -> partial.forEach((date, list) ->
+                        groups.computeIfAbsent(date, d -> new ArrayList<>()).addAll(list)));
+        return groups;
+    }
+
+    // Advanced Java 8: Sum each shard's statistics
+    public Map<String, Long> getAppointmentStatistics() {
+        Map<String, Long> stats = new HashMap<>();
+        shards.gather(AppointmentService::getAppointmentStatistics)
+                .forEach(partial -> partial.forEach((key, value) -> stats.merge(key, value, Long::sum)));
+        return stats;
+    }
+
+    private AppointmentService owner(long appointmentId) {
+        return shards.owner(appointmentId)
+                .orElseThrow(() -> new AppointmentNotFoundException(
+                        "Appointment not found with ID: " + appointmentId));
+    }
+
+    private static List<Appointment> concat(List<List<Appointment>> parts) {
+        return parts.stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Appointment> mergeByDateTime(List<List<Appointment>> parts, int limit) {
+        return parts.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Appointment::getAppointmentDateTime))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // Unassigned patients share key -1; validation rejects them in the shard
+    private static long doctorIdOf(Appointment appointment) {
+        Patient patient = appointment.getPatient();
+        Doctor doctor = patient != null ? patient.getAssignedDoctors() : null;
+        return doctor != null ? doctor.getId() : -1L;
+    }
+}
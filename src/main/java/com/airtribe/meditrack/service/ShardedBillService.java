@@ -0,0 +1,180 @@
+package com.airtribe.meditrack.service;
+
+import com.airtribe.meditrack.constants.BillStatus;
+import com.airtribe.meditrack.entity.Appointment;
+import com.airtribe.meditrack.entity.Bill;
+import com.airtribe.meditrack.entity.Patient;
+import com.airtribe.meditrack.event.EventBus;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.store.EntityStore;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bills hash-partitioned by patient over independent {@link BillService} shards, each with
+ * its own lock and store.
+ *
+ * <p>Bills for different patients take different locks, so creating and paying them runs in
+ * parallel. Lookups by id go straight to the owning shard; reports run on all shards at once
+ * and merge, each shard reading its own snapshot.</p>
+ *
+ * <p>Like {@link ShardedAppointmentService}, not wired into the CLI or HTTP API and not
+ * durable.</p>
+ */
+public class ShardedBillService {
+
+    // Per-shard sums from one snapshot, merged into the overall statistics
+    private record Totals(long count, double total, double paid, double pending) {}
+
+    private final Shards<BillService> shards;
+
+    /** One shard per available processor. */
+    public ShardedBillService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedBillService(int shardCount) {
+        this.shards = new Shards<>(shardCount, BillService::new);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /** The shard this patient's bills go to. */
+    public int shardOf(long patientId) {
+        return shards.indexFor(patientId);
+    }
+
+    public void setEventBus(EventBus eventBus) {
+        shards.forEach(shard -> shard.setEventBus(eventBus));
+    }
+
+    // Only the patient's shard is locked; the id is reserved first so it stays unique across shards
+    public void createBill(Bill bill) {
+        if (bill == null) {
+            throw new InvalidDataException("Bill cannot be null");
+        }
+        BillService shard = shards.forKey(patientIdOf(bill));
+        if (!shards.claim(bill.getId(), shard)) {
+            throw new InvalidDataException("Duplicate bill id: " + bill.getId());
+        }
+        try {
+            shard.createBill(bill);
+        } catch (RuntimeException e) {
+            shards.release(bill.getId());
+            throw e;
+        }
+    }
+
+    public Optional<Bill> findById(long billId) {
+        return shards.owner(billId).flatMap(shard -> shard.findById(billId));
+    }
+
+    public void payBill(long billId) {
+        owner(billId).payBill(billId);
+    }
+
+    public void cancelPayment(long billId) {
+        owner(billId).cancelPayment(billId);
+    }
+
+    public boolean isBillPaid(long billId) {
+        return findById(billId)
+                .map(Bill::isPaid)
+                .orElse(false);
+    }
+
+    public List<Bill> getAllBills() {
+        return concat(shards.gather(BillService::getAllBills));
+    }
+
+    public List<Bill> getBillsByStatus(BillStatus status) {
+        return concat(shards.gather(shard -> shard.getBillsByStatus(status)));
+    }
+
+    public double getTotalAmountByStatus(BillStatus status) {
+        return shards.gather(shard -> shard.getTotalAmountByStatus(status)).stream()
+                .mapToDouble(Double::doubleValue)
+                .sum();
+    }
+
+    // Advanced Java 8: Bill statistics from per-shard totals; the average is weighted by count
+    public Map<String, Double> getBillStatistics() {
+        List<Totals> parts = shards.gather(ShardedBillService::totalsOf);
+        long count = parts.stream().mapToLong(Totals::count).sum();
+        double total = parts.stream().mapToDouble(Totals::total).sum();
+        return Map.of(
+                "total", total,
+                "paid", parts.stream().mapToDouble(Totals::paid).sum(),
+                "pending", parts.stream().mapToDouble(Totals::pending).sum(),
+                "average", count == 0 ? 0.0 : total / count
+        );
+    }
+
+    // Advanced Java 8: Group bills by status across shards
+    public Map<BillStatus, List<Bill>> groupBillsByStatus() {
+        Map<BillStatus, List<Bill>> groups = new EnumMap<>(BillStatus.class);
+        shards.gather(BillService::groupBillsByStatus)
+                .forEach(partial -> partial.forEach((status, list) ->
+                        groups.computeIfAbsent(status, s -> new ArrayList<>()).addAll(list)));
+        return groups;
+    }
+
+    public List<Bill> getUnpaidBillsSortedByAmount() {
+        return getTopUnpaidBills(Integer.MAX_VALUE);
+    }
+
+    /** The {@code limit} largest unpaid bills; each shard sends only its own top {@code limit}. */
+    public List<Bill> getTopUnpaidBills(int limit) {
+        Comparator<Bill> largestFirst = Comparator.comparingDouble(Bill::getAmount).reversed();
+        return shards.gather(shard -> shard.streamBills()
+                        .filter(bill -> bill.getStatus() != BillStatus.PAID)
+                        .sorted(largestFirst)
+                        .limit(limit)
+                        .collect(Collectors.toList()))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(largestFirst)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private BillService owner(long billId) {
+        return shards.owner(billId)
+                .orElseThrow(() -> new InvalidDataException("Bill not found with ID: " + billId));
+    }
+
+    private static Totals totalsOf(BillService shard) {
+        try (EntityStore.Snapshot<Bill> snapshot = shard.openSnapshot()) {
+            long count = 0;
+            double total = 0;
+            double paid = 0;
+            double pending = 0;
+            for (Bill bill : snapshot.list()) {
+                count++;
+                total += bill.getAmount();
+                if (bill.getStatus() == BillStatus.PAID) {
+                    paid += bill.getAmount();
+                } else if (bill.getStatus() == BillStatus.PENDING) {
+                    pending += bill.getAmount();
+                }
+            }
+            return new Totals(count, total, paid, pending);
+        }
+    }
+
+    private static List<Bill> concat(List<List<Bill>> parts) {
+        return parts.stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    // Bills without an appointment or patient share key -1; validation rejects them in the shard
+    private static long patientIdOf(Bill bill) {
+        Appointment appointment = bill.getAppointment();
+        Patient patient = appointment != null ? appointment.getPatient() : null;
+        return patient != null ? patient.getId() : -1L;
+    }
+}
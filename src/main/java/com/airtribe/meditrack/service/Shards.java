@@ -0,0 +1,75 @@
+package com.airtribe.meditrack.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * A fixed set of independent service instances with hash routing, an id-to-shard index and
+ * parallel scatter-gather. Shared by the sharded services.
+ */
+final class Shards<S> {
+
+    private final S[] shards;
+    // Which shard owns each id; also what keeps ids unique across shards
+    private final Map<Long, S> ownerById = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    Shards(int count, Supplier<S> factory) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + count);
+        }
+        shards = (S[]) new Object[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = factory.get();
+        }
+    }
+
+    int size() {
+        return shards.length;
+    }
+
+    S get(int index) {
+        return shards[index];
+    }
+
+    int indexFor(long key) {
+        int hash = Long.hashCode(key);
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    S forKey(long key) {
+        return shards[indexFor(key)];
+    }
+
+    /** Reserves {@code id} for {@code shard}; false if some shard already owns it. */
+    boolean claim(long id, S shard) {
+        return ownerById.putIfAbsent(id, shard) == null;
+    }
+
+    void release(long id) {
+        ownerById.remove(id);
+    }
+
+    Optional<S> owner(long id) {
+        return Optional.ofNullable(ownerById.get(id));
+    }
+
+    void forEach(Consumer<S> action) {
+        Arrays.stream(shards).forEach(action);
+    }
+
+    // Runs the query on every shard at once, one result per shard in shard order
+    <R> List<R> gather(Function<S, R> query) {
+        return Arrays.stream(shards)
+                .parallel()
+                .map(query)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,634 @@
+package com.airtribe.meditrack.store;
+
+import com.airtribe.meditrack.exception.ConcurrentUpdateException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe, insertion-ordered entity storage keyed by id.
+ *
+ * <p>A {@link ConcurrentHashMap} maps each id to an entry holding the current version of
+ * the entity, and an array lists the entries in insertion order for scans. Updates swap
+ * the entity inside its entry and removals clear one array slot, so both are O(1); cleared
+ * slots are squeezed out once they outnumber live ones, which keeps removal amortized O(1)
+ * instead of shifting the array each time.</p>
+ *
+ * <p>Lookups by id never lock. Writers take the write lock of a {@link StampedLock}. Scans
+ * read the array and its length under an optimistic stamp and only fall back to the read
+ * lock if a writer got in between: {@link #snapshot()} returns a consistent copy, while
+ * {@link #stream()} is lazy and weakly consistent, like a {@code ConcurrentHashMap}
+ * iterator. Compaction and growth always build a new array, so a scan never sees slots move.</p>
+ *
+ * <p>A store created with a freeze function also keeps versions (multi-version concurrency
+ * control). Every write commits a new store version. {@link #openSnapshot()} pins the current
+ * version without copying anything, and every pass over the snapshot sees the entities exactly
+ * as of that version, however many writes land meanwhile. Only while a snapshot is open does a
+ * write record frozen copies, newest first in the entity's chain, next to the value it
+ * replaced; with nothing pinned the live value is the only version and writes copy nothing.
+ * Entities are therefore replaced with updated copies, never changed in place. Removed entities
+ * stay in the array until no snapshot can see them. Writers drop versions no pinned snapshot
+ * needs as they go, and closing a snapshot trims what it kept alive.</p>
+ *
+ * <p>Independently of that, every entry carries a revision: 1 when inserted, plus one for each
+ * replacement (or {@link #touch(long)} in a store without versions). {@link #compareAndReplace} only replaces an entity
+ * still at the revision the caller read, which turns lost updates into reported conflicts.</p>
+ *
+ * <p>Each service owns its stores and makes every write under its own monitor, so a store
+ * changes in step with that service's indexes and mutation log. Reads go straight to the
+ * store and never wait for those writers.</p>
+ */
+public class EntityStore<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Expected revision that matches any revision: an unconditional replace. */
+    public static final long ANY_REVISION = -1;
+
+    /** An entity together with the revision it was read at. */
+    public record Revisioned<T>(T value, long revision) {}
+
+    private static final class Entry<T> {
+        volatile T value;
+        // Per-entity version number; changed only under the write lock, after `value`
+        volatile long revision = 1;
+        int index;
+        // Frozen versions, newest first, while snapshots are open; null when `value` is the
+        // only version. Published before `value`, so readers read them the other way round
+        volatile Version<T> versions;
+
+        Entry(T value, int index) {
+            this.value = value;
+            this.index = index;
+        }
+    }
+
+    /** One committed version of an entity; a null value marks its removal. */
+    private static final class Version<T> {
+        final long number;
+        final T value;
+        volatile Version<T> older;
+
+        Version(long number, T value, Version<T> older) {
+            this.number = number;
+            this.value = value;
+            this.older = older;
+        }
+    }
+
+    private final ToLongFunction<T> idOf;
+    private final Map<Long, Entry<T>> byId = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
+    private Entry<T>[] entries = newArray(INITIAL_CAPACITY);
+    private int end;
+    private int live;
+
+    // Versioning; all null/unused when freeze is null
+    private final UnaryOperator<T> freeze;
+    private volatile long version;
+    private boolean uncommitted;
+    // Pinned version -> number of open snapshots on it
+    private final Map<Long, Integer> pins = new ConcurrentHashMap<>();
+    // Entries whose chain holds more than one version
+    private final Set<Entry<T>> withHistory = ConcurrentHashMap.newKeySet();
+
+    public EntityStore(ToLongFunction<T> idOf) {
+        this(idOf, null);
+    }
+
+    /**
+     * @param freeze returns a copy of an entity that later in-place changes do not affect;
+     *               null for a store without snapshots
+     */
+    public EntityStore(ToLongFunction<T> idOf, UnaryOperator<T> freeze) {
+        this.idOf = idOf;
+        this.freeze = freeze;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newArray(int capacity) {
+        return (Entry<T>[]) new Entry<?>[capacity];
+    }
+
+    public T get(long id) {
+        Entry<T> entry = byId.get(id);
+        return entry != null ? entry.value : null;
+    }
+
+    public Optional<T> find(long id) {
+        return Optional.ofNullable(get(id));
+    }
+
+    /** The entity under {@code id} with its current revision, or null if there is none. */
+    public Revisioned<T> getRevisioned(long id) {
+        Entry<T> entry = byId.get(id);
+        if (entry == null) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        long revision = entry.revision;
+        T value = entry.value;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                revision = entry.revision;
+                value = entry.value;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value != null ? new Revisioned<>(value, revision) : null;
+    }
+
+    /** Current revision of the entity under {@code id}, or -1 if there is none. */
+    public long revisionOf(long id) {
+        Entry<T> entry = byId.get(id);
+        return entry != null ? entry.revision : -1;
+    }
+
+    /** The entities stored under {@code ids}, keyed by id; absent ids are left out. */
+    public Map<Long, T> getAll(Collection<Long> ids) {
+        Map<Long, T> found = new HashMap<>(ids.size() * 2);
+        for (long id : ids) {
+            T entity = get(id);
+            if (entity != null) {
+                found.put(id, entity);
+            }
+        }
+        return found;
+    }
+
+    public boolean contains(long id) {
+        return byId.containsKey(id);
+    }
+
+    /** Adds the entity unless its id is already stored; returns whether it was added. */
+    public boolean insert(T entity) {
+        long id = idOf.applyAsLong(entity);
+        long stamp = lock.writeLock();
+        try {
+            if (byId.containsKey(id)) {
+                return false;
+            }
+            append(id, entity);
+            return true;
+        } finally {
+            commit();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Inserts or replaces; a replaced entity keeps its position. Returns the previous version. */
+    public T put(T entity) {
+        long id = idOf.applyAsLong(entity);
+        long stamp = lock.writeLock();
+        try {
+            Entry<T> entry = byId.get(id);
+            if (entry == null) {
+                append(id, entity);
+                return null;
+            }
+            T previous = entry.value;
+            set(entry, entity);
+            entry.revision++;
+            return previous;
+        } finally {
+            commit();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Replaces the entity stored under {@code id}; false if there is none. */
+    public boolean replace(long id, T entity) {
+        return compareAndReplace(id, ANY_REVISION, entity) >= 0;
+    }
+
+    /**
+     * Replaces the entity stored under {@code id} if it is still at {@code expectedRevision}
+     * (or unconditionally for {@link #ANY_REVISION}). One lookup, no scan.
+     *
+     * @return the new revision, or -1 if nothing is stored under {@code id}
+     * @throws ConcurrentUpdateException if the entity has moved on to another revision
+     */
+    public long compareAndReplace(long id, long expectedRevision, T entity) {
+        long stamp = lock.writeLock();
+        try {
+            Entry<T> entry = byId.get(id);
+            if (entry == null) {
+                return -1;
+            }
+            if (expectedRevision != ANY_REVISION && entry.revision != expectedRevision) {
+                throw new ConcurrentUpdateException("Stale update of id " + id + ": expected revision "
+                        + expectedRevision + ", current revision " + entry.revision);
+            }
+            set(entry, entity);
+            entry.revision++;
+            return entry.revision;
+        } finally {
+            commit();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Marks the entity stored under {@code id} as changed in place by bumping its revision.
+     *
+     * @throws IllegalStateException if the store keeps versions: snapshots may share the live
+     *                               entity, so it has to be replaced with an updated copy
+     */
+    public void touch(long id) {
+        if (freeze != null) {
+            throw new IllegalStateException("Versioned entities are replaced, not changed in place");
+        }
+        long stamp = lock.writeLock();
+        try {
+            Entry<T> entry = byId.get(id);
+            if (entry != null) {
+                entry.revision++;
+            }
+        } finally {
+            commit();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public T remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            Entry<T> entry = byId.remove(id);
+            if (entry == null) {
+                return null;
+            }
+            T previous = entry.value;
+            retire(entry);
+            live--;
+            compactIfSparse();
+            return previous;
+        } finally {
+            commit();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Removes every entity matching the filter; returns how many were removed. */
+    public int removeIf(Predicate<? super T> filter) {
+        long stamp = lock.writeLock();
+        try {
+            int removed = 0;
+            for (int i = 0; i < end; i++) {
+                Entry<T> entry = entries[i];
+                if (entry != null && entry.value != null && filter.test(entry.value)) {
+                    byId.remove(idOf.applyAsLong(entry.value));
+                    retire(entry);
+                    removed++;
+                }
+            }
+            live -= removed;
+            compactIfSparse();
+            return removed;
+        } finally {
+            commit();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            // Snapshots keep scanning the old array, where the removals are recorded
+            for (Entry<T> entry : byId.values()) {
+                set(entry, null);
+            }
+            byId.clear();
+            entries = newArray(INITIAL_CAPACITY);
+            end = 0;
+            live = 0;
+        } finally {
+            commit();
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = live;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = live;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** A consistent point-in-time copy in insertion order. */
+    public List<T> snapshot() {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            List<T> copy = copy(entries, end);
+            if (lock.validate(stamp)) {
+                return copy;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return copy(entries, end);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Lazy stream in insertion order. Weakly consistent: it reflects the store at some point
+     * at or after the call and never fails because of concurrent writes. Only the entries
+     * actually consumed are visited, so paging with skip and limit stops early.
+     */
+    public Stream<T> stream() {
+        Entry<T>[] array;
+        int length;
+        long stamp = lock.tryOptimisticRead();
+        array = entries;
+        length = end;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                array = entries;
+                length = end;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Arrays.stream(array, 0, length)
+                .filter(Objects::nonNull)
+                .map(entry -> entry.value)
+                .filter(Objects::nonNull);
+    }
+
+    private static <T> List<T> copy(Entry<T>[] array, int length) {
+        List<T> copy = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            Entry<T> entry = array[i];
+            if (entry != null && entry.value != null) {
+                copy.add(entry.value);
+            }
+        }
+        return copy;
+    }
+
+    // Callers hold the write lock
+    private void append(long id, T entity) {
+        if (end == entries.length) {
+            // Full of live entries: grow; mostly cleared slots: squeeze them out instead
+            entries = live * 2 > end ? Arrays.copyOf(entries, end * 2) : compacted(Math.max(INITIAL_CAPACITY, live * 2));
+        }
+        // Snapshots open now cannot reach the new slot, so it needs no version yet
+        Entry<T> entry = new Entry<>(entity, end);
+        if (freeze != null) {
+            uncommitted = true;
+        }
+        entries[end++] = entry;
+        byId.put(id, entry);
+        live++;
+    }
+
+    // Callers hold the write lock and have taken the entry out of byId
+    private void retire(Entry<T> entry) {
+        if (freeze == null) {
+            entries[entry.index] = null;
+        } else {
+            // Kept in place for the snapshots that can still see it; compaction drops it later
+            set(entry, null);
+        }
+    }
+
+    private void compactIfSparse() {
+        if (end > INITIAL_CAPACITY && live * 2 < end) {
+            entries = compacted(Math.max(INITIAL_CAPACITY, live * 2));
+        }
+    }
+
+    // New array so scans holding the old one are unaffected
+    private Entry<T>[] compacted(int capacity) {
+        long oldest = freeze != null ? oldestPinned() : version;
+        int kept = 0;
+        for (int i = 0; i < end; i++) {
+            if (isKept(entries[i], oldest)) {
+                kept++;
+            }
+        }
+        Entry<T>[] packed = newArray(Math.max(capacity, kept * 2));
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            Entry<T> entry = entries[i];
+            if (isKept(entry, oldest)) {
+                entry.index = n;
+                packed[n++] = entry;
+            }
+        }
+        end = n;
+        return packed;
+    }
+
+    // Live, or removed at a version some pinned snapshot predates
+    private static <T> boolean isKept(Entry<T> entry, long oldest) {
+        if (entry == null) {
+            return false;
+        }
+        if (entry.value != null) {
+            return true;
+        }
+        Version<T> head = entry.versions;
+        return head != null && head.number > oldest;
+    }
+
+    // ---------------- Versions ----------------
+
+    /**
+     * Pins the current version. Costs one counter update whatever the store size, and does
+     * not block writers unless one is inside its write lock at that very moment.
+     *
+     * @throws IllegalStateException if the store was created without a freeze function
+     */
+    public Snapshot<T> openSnapshot() {
+        if (freeze == null) {
+            throw new IllegalStateException("This store keeps no versions");
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long pinned = version;
+            pin(pinned);
+            Entry<T>[] array = entries;
+            int length = end;
+            if (lock.validate(stamp)) {
+                return new Snapshot<>(this, pinned, array, length);
+            }
+            unpin(pinned);
+        }
+        stamp = lock.readLock();
+        try {
+            long pinned = version;
+            pin(pinned);
+            return new Snapshot<>(this, pinned, entries, end);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Version committed by the latest write; 0 for a store without versions. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Number of entries currently holding older versions for open snapshots; 0 when none is open. */
+    public int getRetainedCount() {
+        return withHistory.size();
+    }
+
+    // Callers hold the write lock; becomes visible to new snapshots at commit(). A snapshot
+    // pinning concurrently fails validation against the write lock and retries after it
+    private void set(Entry<T> entry, T value) {
+        if (freeze != null) {
+            uncommitted = true;
+            if (pins.isEmpty()) {
+                if (entry.versions != null) {
+                    entry.versions = null;
+                    withHistory.remove(entry);
+                }
+            } else {
+                Version<T> older = entry.versions;
+                if (older == null) {
+                    // Every open snapshot sees the value being replaced
+                    older = new Version<>(0, entry.value != null ? freeze.apply(entry.value) : null, null);
+                }
+                entry.versions = new Version<>(version + 1, value != null ? freeze.apply(value) : null, older);
+                trim(entry, oldestPinned());
+                if (entry.versions.older != null) {
+                    withHistory.add(entry);
+                }
+            }
+        }
+        entry.value = value;
+    }
+
+    // Callers hold the write lock; one version per write, however many entities it touched
+    private void commit() {
+        if (uncommitted) {
+            uncommitted = false;
+            version = version + 1;
+        }
+    }
+
+    private void pin(long pinned) {
+        pins.merge(pinned, 1, Integer::sum);
+    }
+
+    private void unpin(long pinned) {
+        pins.computeIfPresent(pinned, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private long oldestPinned() {
+        long oldest = version;
+        for (long pinned : pins.keySet()) {
+            oldest = Math.min(oldest, pinned);
+        }
+        return oldest;
+    }
+
+    // Cuts the chain after the newest version the oldest snapshot can see
+    private static <T> void trim(Entry<T> entry, long oldest) {
+        Version<T> node = entry.versions;
+        while (node != null && node.number > oldest) {
+            node = node.older;
+        }
+        if (node != null) {
+            node.older = null;
+        }
+    }
+
+    // Runs without the lock: trimming only cuts versions no open or future snapshot can reach
+    private void reclaim() {
+        long oldest = oldestPinned();
+        for (Iterator<Entry<T>> it = withHistory.iterator(); it.hasNext(); ) {
+            Entry<T> entry = it.next();
+            trim(entry, oldest);
+            Version<T> head = entry.versions;
+            if (head == null || head.older == null) {
+                it.remove();
+                head = entry.versions;
+                if (head != null && head.older != null) {
+                    // A writer added a version in between
+                    withHistory.add(entry);
+                }
+            }
+        }
+    }
+
+    private static <T> T valueAt(Entry<T> entry, long pinned) {
+        T value = entry.value;
+        Version<T> node = entry.versions;
+        if (node == null) {
+            return value;
+        }
+        while (node != null && node.number > pinned) {
+            node = node.older;
+        }
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * The store as of one version. Every {@link #stream()} sees the same entities in insertion
+     * order; they are shared with the store or frozen copies and must not be modified. Close the snapshot
+     * when done so the versions it keeps alive can be reclaimed.
+     */
+    public static final class Snapshot<T> implements AutoCloseable {
+
+        private final EntityStore<T> store;
+        private final long version;
+        private final Entry<T>[] array;
+        private final int length;
+        private boolean closed;
+
+        private Snapshot(EntityStore<T> store, long version, Entry<T>[] array, int length) {
+            this.store = store;
+            this.version = version;
+            this.array = array;
+            this.length = length;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Stream<T> stream() {
+            return Arrays.stream(array, 0, length)
+                    .filter(Objects::nonNull)
+                    .map(entry -> valueAt(entry, version))
+                    .filter(Objects::nonNull);
+        }
+
+        public List<T> list() {
+            return stream().collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                store.unpin(version);
+                store.reclaim();
+            }
+        }
+    }
+}
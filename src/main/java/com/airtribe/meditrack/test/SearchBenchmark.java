@@ -0,0 +1,58 @@
+package com.airtribe.meditrack.test;
+
+import com.airtribe.meditrack.index.TrigramIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times fuzzy name search on a large {@link TrigramIndex}, where the common grams have
+ * posting lists covering most of the index. Kept out of {@link TestRunner} because its
+ * numbers depend on the machine; it only prints them.
+ *
+ * <p>Usage:
+ * <pre>
+ *     java com.airtribe.meditrack.test.SearchBenchmark [names] [threads]
+ * </pre>
+ * </p>
+ */
+public class SearchBenchmark {
+
+    private static final String[] SURNAMES = {"Sharma", "Patel", "Iyer", "Khan", "Reddy", "Nair", "Gupta"};
+    private static final int SEARCHES = 200;
+
+    public static void main(String[] args) throws InterruptedException {
+        int names = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        TrigramIndex index = new TrigramIndex();
+        long start = System.nanoTime();
+        for (int i = 1; i <= names; i++) {
+            index.put(i, "Patient " + SURNAMES[i % SURNAMES.length] + " " + i);
+        }
+        System.out.printf("Indexed %,d names in %d ms%n", names, (System.nanoTime() - start) / 1_000_000);
+
+        // Warm up before timing
+        search(index, SEARCHES);
+        start = System.nanoTime();
+        search(index, SEARCHES);
+        System.out.printf("1 thread: %.2f ms per search%n", (System.nanoTime() - start) / 1e6 / SEARCHES);
+
+        List<Thread> searchers = new ArrayList<>();
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            searchers.add(Thread.ofPlatform().start(() -> search(index, SEARCHES)));
+        }
+        for (Thread searcher : searchers) {
+            searcher.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d threads: %.0f searches per second%n", threads, threads * SEARCHES / seconds);
+    }
+
+    private static void search(TrigramIndex index, int count) {
+        for (int q = 0; q < count; q++) {
+            index.search("patient iyer " + (4202 + q), 5);
+        }
+    }
+}
@@ -1,12 +1,61 @@
 package com.airtribe.meditrack.test;
 
+import com.airtribe.meditrack.cli.BatchRunner;
 import com.airtribe.meditrack.constants.*;
 import com.airtribe.meditrack.entity.*;
+import com.airtribe.meditrack.event.EventBus;
+import com.airtribe.meditrack.exception.BookingRejectedException;
+import com.airtribe.meditrack.exception.ConcurrentUpdateException;
+import com.airtribe.meditrack.exception.InvalidDataException;
+import com.airtribe.meditrack.http.ApiServer;
+import com.airtribe.meditrack.http.BatchLoader;
+import com.airtribe.meditrack.http.SingleFlight;
+import com.airtribe.meditrack.index.TrigramIndex;
+import com.airtribe.meditrack.persistence.AppointmentArchive;
+import com.airtribe.meditrack.persistence.DurableStore;
+import com.airtribe.meditrack.persistence.EntityCodec;
+import com.airtribe.meditrack.persistence.LogFollower;
+import com.airtribe.meditrack.persistence.LogRecordType;
+import com.airtribe.meditrack.persistence.SnapshotStore;
+import com.airtribe.meditrack.persistence.WriteAheadLog;
+import com.airtribe.meditrack.persistence.binary.BinaryDataStore;
+import com.airtribe.meditrack.persistence.binary.BinaryEntityWriter;
+import com.airtribe.meditrack.persistence.binary.EntityLayouts;
+import com.airtribe.meditrack.persistence.binary.MappedEntityReader;
+import com.airtribe.meditrack.persistence.csv.CsvBulkImporter;
+import com.airtribe.meditrack.persistence.excel.ExcelRosterImporter;
+import com.airtribe.meditrack.persistence.invoice.InvoiceRenderer;
+import com.airtribe.meditrack.persistence.invoice.InvoiceTemplate;
+import com.airtribe.meditrack.persistence.json.JsonDataStore;
 import com.airtribe.meditrack.service.*;
+import com.airtribe.meditrack.store.EntityStore;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
  * Manual Test Runner for MediTrack Application.
@@ -46,6 +95,7 @@ public class TestRunner {
      *             --test=patients: Test patient functionality only
      *             --test=appointments: Test appointment functionality only
      *             --test=bills: Test billing functionality only
+     *             --test=persistence: Test durable storage only
      *             --verbose: Enable detailed output
      */
     public static void main(String[] args) {
@@ -76,11 +126,13 @@ public class TestRunner {
                 case "patients" -> testPatientFunctionality(verbose);
                 case "appointments" -> testAppointmentFunctionality(verbose);
                 case "bills" -> testBillFunctionality(verbose);
+                case "persistence" -> testPersistenceFunctionality(verbose);
                 case "all" -> {
                     testDoctorFunctionality(verbose);
                     testPatientFunctionality(verbose);
                     testAppointmentFunctionality(verbose);
                     testBillFunctionality(verbose);
+                    testPersistenceFunctionality(verbose);
                 }
                 default -> System.out.println("❌ Unknown test suite: " + testSuite);
             }
@@ -163,6 +215,116 @@ public class TestRunner {
             Doctor updated = createSampleDoctor(1L, "Dr. Smith Updated", 11, Specialization.CARDIOLOGY);
             return doctorService.updateDoctor(1L, updated);
         }, verbose);
+
+        // Test 11: Fuzzy Search Doctor by Name
+        test("Fuzzy Search Doctor by Name", () -> {
+            List<Doctor> doctors = doctorService.searchByName("dr smiht updatd", 5);
+            return !doctors.isEmpty() && doctors.get(0).getName().equals("Dr. Smith Updated");
+        }, verbose);
+        
+        // Test 12: Concurrent Writers and Readers
+        test("Concurrent Writers and Readers", () -> {
+            DoctorService shared = new DoctorService();
+            int writers = 4, perWriter = 500;
+            ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+            AtomicBoolean done = new AtomicBoolean();
+            List<Future<?>> tasks = new ArrayList<>();
+            try {
+                for (int w = 0; w < writers; w++) {
+                    long base = 10_000L * (w + 1);
+                    tasks.add(pool.submit(() -> {
+                        for (int i = 0; i < perWriter; i++) {
+                            shared.addDoctor(createSampleDoctor(base + i, "Dr. Load " + i, 5, Specialization.CARDIOLOGY));
+                            if (i % 2 == 1) {
+                                shared.removeDoctor(base + i - 1);
+                            }
+                        }
+                    }));
+                }
+                // Readers scan, page and look up while the writers run; any exception fails the test
+                for (int r = 0; r < 2; r++) {
+                    tasks.add(pool.submit(() -> {
+                        while (!done.get()) {
+                            shared.getAllDoctors().forEach(d -> Objects.requireNonNull(d.getName()));
+                            shared.getDoctors(0, 50);
+                            shared.findById(10_001L);
+                            shared.searchByName("dr load", 3);
+                        }
+                    }));
+                }
+                for (int w = 0; w < writers; w++) {
+                    tasks.get(w).get();
+                }
+                done.set(true);
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            int expected = writers * perWriter / 2;
+            return shared.getAllDoctors().size() == expected
+                    && shared.streamDoctors().count() == expected
+                    && shared.findById(10_001L).isPresent()
+                    && shared.findById(10_000L).isEmpty();
+        }, verbose);
+
+        // Test 13: Versioned Updates Report Conflicts
+        test("Versioned Updates Report Conflicts", () -> {
+            DoctorService shared = new DoctorService();
+            shared.addDoctor(createSampleDoctor(1L, "Dr. Versioned", 1, Specialization.CARDIOLOGY));
+            long first = shared.findRevisionedById(1L).orElseThrow().revision();
+            long second = shared.updateDoctor(1L, createSampleDoctor(1L, "Dr. Versioned", 1, Specialization.NEUROLOGY), first);
+            boolean staleRejected;
+            try {
+                shared.updateDoctor(1L, createSampleDoctor(1L, "Dr. Stale", 1, Specialization.CARDIOLOGY), first);
+                staleRejected = false;
+            } catch (ConcurrentUpdateException e) {
+                staleRejected = true;
+            }
+
+            // Read-modify-write with retry on conflict: no increment may be lost
+            int threads = 8, perThread = 50;
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(Thread.startVirtualThread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        while (true) {
+                            EntityStore.Revisioned<Doctor> read = shared.findRevisionedById(1L).orElseThrow();
+                            Doctor next = createSampleDoctor(1L, "Dr. Versioned", read.value().getExperience() + 1,
+                                    Specialization.NEUROLOGY);
+                            try {
+                                shared.updateDoctor(1L, next, read.revision());
+                                break;
+                            } catch (ConcurrentUpdateException e) {
+                                // Someone else got in first: read again and retry
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            EntityStore.Revisioned<Doctor> last = shared.findRevisionedById(1L).orElseThrow();
+
+            // Appointments are replaced by an updated copy, never changed in place
+            AppointmentService appointments = new AppointmentService();
+            Patient patient = createSamplePatient(900L, "Pat Versioned", 30, "9000000000");
+            patient.setAssignedDoctors(last.value());
+            Appointment booked = new Appointment(1L, patient, LocalDateTime.now().plusDays(2));
+            appointments.bookAppointment(booked);
+            LocalDateTime later = booked.getAppointmentDateTime().plusHours(1);
+            long rescheduled = appointments.updateAppointment(1L, later, "Moved", 1L);
+            Appointment current = appointments.findById(1L).orElseThrow();
+
+            return first == 1 && second == 2 && staleRejected
+                    && last.value().getExperience() == 1 + threads * perThread
+                    && last.revision() == 2 + threads * perThread
+                    && shared.findDoctorsBySpecialization(Specialization.NEUROLOGY).size() == 1
+                    && rescheduled == 2 && current != booked && booked.getNotes() == null
+                    && current.getAppointmentDateTime().equals(later) && "Moved".equals(current.getNotes());
+        }, verbose);
     }
 
     /**
@@ -224,6 +386,178 @@ public class TestRunner {
             Patient updated = createSamplePatient(1L, "John Doe Updated", 31, "1234567890");
             return patientService.updatePatient(1L, updated);
         }, verbose);
+        
+        // Test 9: Page Through Patients
+        test("Page Through Patients", () -> {
+            Page<Patient> first = patientService.getPatients(0, 2);
+            Page<Patient> second = patientService.getPatients(first.nextOffset(), 2);
+            return first.size() == 2 && first.hasMore() && second.size() >= 1
+                    && second.getItems().get(0).getId() != first.getItems().get(0).getId();
+        }, verbose);
+        
+        // Test 10: Fuzzy Search Patient by Partial Name
+        test("Fuzzy Search Patient by Partial Name", () -> {
+            List<Patient> patients = patientService.searchByName("Jane Smth", 3);
+
+            // Exact names rank first, a transposed pair of letters still finds the name, and
+            // a surname alone ranks the full matches above a longer near match
+            TrigramIndex index = new TrigramIndex();
+            index.put(1, "Priya Sharma");
+            index.put(2, "Priya Sharman");
+            index.put(3, "Rahul Sharma");
+            index.put(4, "Anita Iyer");
+            List<TrigramIndex.Match> exact = index.search("Priya Sharma", 5);
+            List<TrigramIndex.Match> typo = index.search("Pryia Sharma", 5);
+            List<TrigramIndex.Match> surname = index.search("sharma", 5);
+            boolean ranked = exact.size() == 3 && exact.get(0).id() == 1 && exact.get(0).score() == 1.0
+                    && exact.get(1).id() == 2 && exact.get(2).id() == 3
+                    && typo.get(0).id() == 1 && typo.get(0).score() < 1.0
+                    && surname.size() == 3 && surname.get(0).id() == 1 && surname.get(1).id() == 3
+                    && surname.get(2).id() == 2;
+
+            // Removing and renaming move other ids around in the shared posting lists
+            for (int i = 10; i < 1_010; i++) {
+                index.put(i, "Patient Sharma " + i);
+            }
+            for (int i = 10; i < 1_010; i += 2) {
+                index.remove(i);
+            }
+            index.remove(1);
+            index.put(2, "Neha Kapoor");
+            List<TrigramIndex.Match> renamed = index.search("Priya Sharma", 5);
+            List<TrigramIndex.Match> kept = index.search("Patient Sharma 507", 1);
+            List<TrigramIndex.Match> removed = index.search("Patient Sharma 508", 1);
+            return !patients.isEmpty() && patients.get(0).getId() == 2L && ranked
+                    && renamed.stream().noneMatch(m -> m.id() == 1 || m.id() == 2)
+                    && kept.get(0).id() == 507 && kept.get(0).score() == 1.0
+                    && removed.get(0).id() != 508 && index.size() == 503
+                    && index.search("Neha Kapur", 1).get(0).id() == 2;
+        }, verbose);
+        
+        // Test 11: Find by Medical Record Number
+        test("Find Patient by Medical Record Number", () -> {
+            Optional<Patient> patient = patientService.findByMedicalRecordNumber("mrn1");
+            return patient.isPresent() && patient.get().getId() == 1L;
+        }, verbose);
+        
+        // Test 12: Reject Duplicate Medical Record Number
+        test("Reject Duplicate Medical Record Number", () -> {
+            Patient duplicate = new Patient(99L, new Person(99L, "Dup Patient", 50, "1112223334"), "MRN2");
+            try {
+                patientService.addPatient(duplicate);
+                return false;
+            } catch (InvalidDataException e) {
+                return patientService.findById(99L).isEmpty();
+            }
+        }, verbose);
+        
+        // Test 13: Detect Registered Mobile Number
+        test("Detect Registered Mobile Number", () -> {
+            List<Patient> matches = patientService.findPatientsByMobileNumber("+91 98765-43210");
+            return patientService.isMobileNumberRegistered("09876543210")
+                    && matches.size() == 1 && matches.get(0).getId() == 2L
+                    && !patientService.isMobileNumberRegistered("1112223334");
+        }, verbose);
+        
+        // Test 14: Save and Load Patients as JSON
+        test("Save and Load Patients as JSON", () -> {
+            Path dir = Files.createTempDirectory("meditrack-json");
+            JsonDataStore store = new JsonDataStore(dir.resolve("doctors.json"),
+                    dir.resolve("patients.json"), dir.resolve("appointments.json"));
+            store.saveDoctors(doctorService.getAllDoctors());
+            store.savePatients(patientService.getAllPatients());
+
+            DoctorService loadedDoctors = new DoctorService();
+            PatientService loadedPatients = new PatientService();
+            store.loadDoctors(loadedDoctors);
+            long count = store.loadPatients(loadedPatients, loadedDoctors);
+            Optional<Patient> jane = loadedPatients.findById(2L);
+            return count == patientService.getAllPatients().size()
+                    && jane.isPresent() && jane.get().getPerson().getName().equals("Jane Smith")
+                    && loadedPatients.findByMedicalRecordNumber("MRN3").isPresent();
+        }, verbose);
+        
+        // Test 15: Disk-Backed Patient Service
+        test("Disk-Backed Patient Service", () -> {
+            Path file = Files.createTempDirectory("meditrack-disk").resolve("patients.mtb");
+            BinaryEntityWriter.write(file, EntityLayouts.patient(id -> null), patientService.getAllPatients());
+
+            PatientService disk = PatientService.openDiskBacked(file, 1, id -> doctorService.findById(id).orElse(null));
+            boolean lazy = disk.findById(2L).isPresent() && disk.findById(3L).isPresent()
+                    && disk.getDiskStore().get().getCachedCount() == 1;
+            disk.updatePatient(3L, createSamplePatient(3L, "Bob Johnson Jr", 41, "5555555555"));
+            disk.addPatient(createSamplePatient(50L, "Disk Patient", 60, "4445556667"));
+            disk.removePatient(2L);
+            disk.flush();
+
+            PatientService reopened = PatientService.openDiskBacked(file, 1, id -> null);
+            return lazy && reopened.findById(2L).isEmpty()
+                    && reopened.findById(3L).get().getPerson().getName().equals("Bob Johnson Jr")
+                    && reopened.findByMedicalRecordNumber("MRN50").isPresent()
+                    && reopened.getPatientStatistics().get("total") == patientService.getAllPatients().size();
+        }, verbose);
+
+        // Test 16: Bulk Import Patients from CSV
+        test("Bulk Import Patients from CSV", () -> {
+            Path dir = Files.createTempDirectory("meditrack-csv");
+            Path csv = dir.resolve("patients.csv");
+            StringBuilder rows = new StringBuilder("id,personId,name,age,mobileNo,medicalRecordNumber,doctorId\n");
+            for (int i = 1; i <= 250; i++) {
+                rows.append(i).append(',').append(i).append(",\"Bulk, Patient ").append(i).append("\",40,")
+                        .append(String.format("7%09d", i)).append(",BULK").append(i).append(i % 2 == 0 ? ",1" : ",").append('\n');
+            }
+            rows.append("251,251,Bad Mobile,40,12345,BULK251,\n");
+            rows.append("252,252,Duplicate Mrn,40,7000000252,BULK7,\n");
+            rows.append("253,253,Unknown Doctor,40,7000000253,BULK253,999\n");
+            Files.writeString(csv, rows);
+
+            PatientService imported = new PatientService();
+            CsvBulkImporter.ImportReport report = new CsvBulkImporter(4, 32)
+                    .importPatients(csv, dir.resolve("rejects.csv"), imported, doctorService);
+            List<String> rejects = Files.readAllLines(dir.resolve("rejects.csv"));
+            return report.rows() == 253 && report.imported() == 250 && report.rejected() == 3
+                    && rejects.size() == 4 && rejects.get(1).startsWith("252,") && rejects.get(3).startsWith("254,")
+                    && imported.findById(7L).get().getPerson().getName().equals("Bulk, Patient 7")
+                    && imported.countPatientsByDoctor(1L) == 125;
+        }, verbose);
+
+        // Test 17: Import Patient Roster from Excel
+        test("Import Patient Roster from Excel", () -> {
+            Path dir = Files.createTempDirectory("meditrack-xlsx");
+            Path roster = dir.resolve("roster.xlsx");
+            try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+                Sheet sheet = workbook.createSheet("Roster");
+                Row header = sheet.createRow(0);
+                String[] columns = {"MRN", "Patient Name", "Age", "Mobile No", "ID", "Doctor ID"};
+                for (int c = 0; c < columns.length; c++) {
+                    header.createCell(c).setCellValue(columns[c]);
+                }
+                for (int i = 1; i <= 30; i++) {
+                    Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("XL" + i);
+                    row.createCell(1).setCellValue("Roster Patient " + i);
+                    row.createCell(2).setCellValue(30 + i);
+                    row.createCell(3).setCellValue(i == 30 ? "bad" : String.format("6%09d", i));
+                    row.createCell(4).setCellValue(500 + i);
+                    if (i % 3 == 0) {
+                        row.createCell(5).setCellValue(1);
+                    }
+                }
+                try (var out = Files.newOutputStream(roster)) {
+                    workbook.write(out);
+                }
+            }
+
+            PatientService imported = new PatientService();
+            CsvBulkImporter.ImportReport report = new ExcelRosterImporter(8)
+                    .importPatients(roster, dir.resolve("rejects.csv"), imported, doctorService);
+            Patient first = imported.findById(501L).orElse(null);
+            return report.rows() == 30 && report.imported() == 29 && report.rejected() == 1
+                    && first != null && first.getPerson().getAge() == 31 && first.getPerson().getId() == 501
+                    && imported.findByMedicalRecordNumber("XL12").isPresent()
+                    && imported.countPatientsByDoctor(1L) == 9
+                    && Files.readAllLines(dir.resolve("rejects.csv")).get(1).startsWith("31,");
+        }, verbose);
     }
 
     /**
@@ -237,6 +571,7 @@ public class TestRunner {
         System.out.println("-".repeat(60));
         
         // Setup: Assign doctors to patients for valid appointments
+        appointmentService.setPatientService(patientService);
         Doctor doctor = doctorService.findById(1L).orElse(null);
         if (doctor != null) {
             patientService.assignDoctorToPatient(1L, doctor);
@@ -298,6 +633,313 @@ public class TestRunner {
             Appointment apt = appointmentService.findById(1L).orElse(null);
             return apt != null && apt.getStatus() == AppointmentStatus.CANCELED;
         }, verbose);
+
+        // Test 9: Doctor Caseload
+        test("Get Doctor Caseload", () -> {
+            List<Patient> caseload = patientService.getPatientsByDoctor(1L);
+            return caseload.size() == 2 && patientService.countPatientsByDoctor(1L) == 2
+                    && patientService.getCaseloadByDoctor().get(1L) == 2;
+        }, verbose);
+        
+        // Test 10: Archive Closed Appointments
+        test("Archive Closed Appointments", () -> {
+            Patient patient = patientService.findById(1L).orElse(null);
+            AppointmentService service = new AppointmentService();
+            service.setArchive(AppointmentArchive.open(Files.createTempDirectory("meditrack-archive"),
+                    id -> patientService.findById(id).orElse(null)));
+            LocalDateTime old = LocalDateTime.now().minusYears(1);
+            Appointment done = new Appointment(100L, patient, old);
+            done.setStatus(AppointmentStatus.COMPLETED);
+            Appointment dropped = new Appointment(101L, patient, old.minusMonths(2));
+            dropped.setStatus(AppointmentStatus.CANCELED);
+            service.restoreAppointment(done);
+            service.restoreAppointment(dropped);
+            service.restoreAppointment(new Appointment(102L, patient, old));
+            service.restoreAppointment(new Appointment(103L, patient, LocalDateTime.now().plusDays(3)));
+
+            int moved = service.archiveClosedAppointments(LocalDateTime.now().minusDays(30));
+            Appointment archived = service.findById(100L).orElse(null);
+            return moved == 2 && service.getAllAppointments().size() == 2
+                    && service.getArchive().get().getSegments().size() == 2
+                    && archived != null && archived.getPatient() == patient
+                    && service.getAppointmentsByDate(old.toLocalDate()).size() == 2
+                    && service.getAppointmentsByPatient(patient).size() == 4
+                    && service.getAppointmentStatistics().get("total") == 4
+                    && service.countAppointmentsByStatus().get(AppointmentStatus.CANCELED) == 1
+                    && service.archiveClosedAppointments(LocalDateTime.now()) == 0;
+        }, verbose);
+
+        // Test 11: Serve Booking and Billing over HTTP
+        test("Serve Booking and Billing over HTTP", () -> {
+            AppointmentService appointments = new AppointmentService();
+            BillService bills = new BillService();
+            try (ApiServer server = new ApiServer(new InetSocketAddress("127.0.0.1", 0),
+                    doctorService, patientService, appointments, bills)) {
+                server.start();
+                String base = "http://127.0.0.1:" + server.getPort() + "/api/";
+                HttpClient client = HttpClient.newHttpClient();
+                String booking = "{\"id\":200,\"patientId\":1,\"appointmentDateTime\":\""
+                        + LocalDateTime.now().plusDays(5).withNano(0) + "\",\"notes\":\"Follow-up\"}";
+                HttpResponse<String> booked = client.send(HttpRequest.newBuilder(URI.create(base + "appointments"))
+                        .POST(HttpRequest.BodyPublishers.ofString(booking)).build(), HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> duplicate = client.send(HttpRequest.newBuilder(URI.create(base + "appointments"))
+                        .POST(HttpRequest.BodyPublishers.ofString(booking)).build(), HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> billed = client.send(HttpRequest.newBuilder(URI.create(base + "bills"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"id\":300,\"appointmentId\":200}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> paid = client.send(HttpRequest.newBuilder(URI.create(base + "bills/300/pay"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> missing = client.send(HttpRequest.newBuilder(URI.create(base + "doctors/999")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+
+                List<CompletableFuture<HttpResponse<String>>> burst = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    burst.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + (i % 2 == 0 ? "stats" : "appointments/200"))).build(),
+                            HttpResponse.BodyHandlers.ofString()));
+                }
+                boolean allOk = burst.stream().allMatch(f -> f.join().statusCode() == 200);
+
+                return booked.statusCode() == 201 && booked.body().contains("\"notes\":\"Follow-up\"")
+                        && duplicate.statusCode() == 409
+                        && billed.statusCode() == 201 && bills.findById(300L).isPresent()
+                        && paid.statusCode() == 200 && paid.body().contains("\"status\":\"PAID\"")
+                        && missing.statusCode() == 404 && missing.body().contains("\"error\"")
+                        && allOk && server.getRequestCount() == 205;
+            }
+        }, verbose);
+
+        // Test 12: Coalesce Concurrent Lookups
+        test("Coalesce Concurrent Lookups", () -> {
+            CountDownLatch release = new CountDownLatch(1);
+            BatchLoader<Long, Doctor> loader = new BatchLoader<>(ids -> {
+                awaitQuietly(release);
+                return doctorService.findAllById(ids);
+            }, 64);
+            SingleFlight<Long, List<Appointment>> flight = new SingleFlight<>();
+
+            List<Thread> threads = new ArrayList<>();
+            List<Object> results = Collections.synchronizedList(new ArrayList<>());
+            threads.add(Thread.startVirtualThread(() -> results.add(loader.load(1L))));
+            while (loader.getBatchCount() == 0) {
+                Thread.onSpinWait();
+            }
+            // These arrive while the first batch is stuck, so they must form exactly one more batch
+            for (int i = 0; i < 40; i++) {
+                long id = i % 4;
+                threads.add(Thread.startVirtualThread(() -> results.add(loader.load(id))));
+            }
+            for (int i = 0; i < 20; i++) {
+                threads.add(Thread.startVirtualThread(() -> results.add(flight.get(1L, id -> {
+                    awaitQuietly(release);
+                    return appointmentService.getDoctorSchedule(id);
+                }))));
+            }
+            while (loader.getRequestCount() < 41 || flight.getSharedCount() < 19) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return loader.getBatchCount() == 2 && loader.getKeyCount() == 5
+                    && flight.getComputedCount() == 1
+                    && results.stream().filter(r -> r instanceof List).distinct().count() == 1
+                    && results.stream().filter(r -> r instanceof Doctor).count() == 31
+                    && results.stream().filter(Objects::isNull).count() == 10;
+        }, verbose);
+
+        // Test 13: Run Batch Script
+        test("Run Batch Script", () -> {
+            BatchRunner runner = new BatchRunner(new DoctorService(), new PatientService(),
+                    new AppointmentService(), new BillService());
+            String when = LocalDateTime.now().plusDays(3).withSecond(0).withNano(0).toString();
+            String script = String.join("\n",
+                    "# doctors first",
+                    "add-doctor 7 \"Dr. Batch\" 12 CARDIOLOGY MONDAY;FRIDAY 09:00 17:00",
+                    "add-patient 8 \"Pat Batch\" 41 9876500000 MRN-B8 7",
+                    "",
+                    "book 9 8 " + when + " \"Annual check\"",
+                    "book 9 8 " + when,
+                    "bill 10 9 750",
+                    "pay 10",
+                    "get-appointment 9",
+                    "get-bill 10",
+                    "frobnicate",
+                    "add-patient 11 \"Unclosed 40 9876500001 MRN-B11");
+            StringWriter out = new StringWriter();
+            // Nothing may reach the console: Bill.pay prints, so batch mode pays without it
+            ByteArrayOutputStream console = new ByteArrayOutputStream();
+            PrintStream stdout = System.out;
+            System.setOut(new PrintStream(console, true, StandardCharsets.UTF_8));
+            BatchRunner.Summary summary;
+            try {
+                summary = runner.run(new BufferedReader(new StringReader(script)), out);
+            } finally {
+                System.setOut(stdout);
+            }
+            String[] lines = out.toString().split("\n");
+            return console.size() == 0 && lines.length == 11
+                    && lines[0].equals("ok add-doctor 7")
+                    && lines[2].equals("ok book 9")
+                    && lines[3].startsWith("error 6: Duplicate appointment id")
+                    && lines[5].equals("ok pay 10")
+                    && lines[6].equals("appointment\t9\t8\t" + when + "\tSCHEDULED\tAnnual check")
+                    && lines[7].startsWith("bill\t10\t9\t750.0\tPAID\t")
+                    && lines[8].equals("error 11: Unknown command: frobnicate")
+                    && lines[9].startsWith("error 12: Unclosed quote")
+                    && lines[10].startsWith("# 10 command(s), 3 failed")
+                    && summary.commands() == 10 && summary.failed() == 3;
+        }, verbose);
+
+        // Test 14: Publish Domain Events with Backpressure
+        test("Publish Domain Events with Backpressure", () -> {
+            EventBus bus = new EventBus(8);
+            AppointmentService appointments = new AppointmentService();
+            BillService bills = new BillService();
+            appointments.setEventBus(bus);
+            bills.setEventBus(bus);
+            Patient patient = patientService.findById(1L).orElseThrow();
+            CountDownLatch release = new CountDownLatch(1);
+            List<String> seen = Collections.synchronizedList(new ArrayList<>());
+            try (EventBus.Subscription audit = bus.subscribe("audit", (event, sequence, endOfBatch) -> {
+                awaitQuietly(release);
+                seen.add(event.getType() + ":" + event.getEntityId() + ":" + event.getRelatedId());
+            })) {
+                Thread producer = Thread.startVirtualThread(() -> {
+                    for (long id = 1; id <= 20; id++) {
+                        appointments.bookAppointment(new Appointment(id, patient, LocalDateTime.now().plusDays(1)));
+                    }
+                    appointments.cancelAppointment(3L);
+                    bills.createBill(new Bill(50L, appointments.findById(1L).orElseThrow(), 400.0));
+                    bills.payBill(50L);
+                });
+                while (bus.getStallCount() == 0) {
+                    Thread.onSpinWait();
+                }
+                // The stuck subscriber holds publishing to one ring plus the waiting event
+                boolean heldBack = bus.getPublishedCount() == 9 && producer.isAlive();
+                release.countDown();
+                producer.join();
+                while (audit.getPosition() < bus.getPublishedCount() - 1) {
+                    Thread.onSpinWait();
+                }
+                return heldBack && seen.size() == 23 && audit.getErrorCount() == 0
+                        && seen.get(0).equals("APPOINTMENT_BOOKED:1:1")
+                        && seen.get(19).equals("APPOINTMENT_BOOKED:20:1")
+                        && seen.get(20).equals("APPOINTMENT_CANCELED:3:1")
+                        && seen.get(21).equals("BILL_CREATED:50:1")
+                        && seen.get(22).equals("BILL_PAID:50:1");
+            }
+        }, verbose);
+
+        // Test 15: Admission Control Under a Booking Burst
+        test("Admission Control Under a Booking Burst", () -> {
+            AppointmentService appointments = new AppointmentService();
+            BookingPipeline pipeline = new BookingPipeline(appointments, 1, 3, Duration.ofMillis(200));
+            Patient patient = createSamplePatient(901L, "Pat Burst", 30, "9000000001");
+            patient.setAssignedDoctors(createSampleDoctor(77L, "Dr. Burst", 5, Specialization.CARDIOLOGY));
+            List<Throwable> outcomes = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> bookers = new ArrayList<>();
+            Thread first;
+            // Holding the service's monitor stalls the one admitted booking, so the rest pile up
+            synchronized (appointments) {
+                first = startBooking(pipeline, new Appointment(1L, patient, LocalDateTime.now().plusDays(1)), outcomes);
+                while (pipeline.getMetrics().running() == 0) {
+                    Thread.onSpinWait();
+                }
+                for (long id = 2; id <= 3; id++) {
+                    bookers.add(startBooking(pipeline, new Appointment(id, patient, LocalDateTime.now().plusDays(1)), outcomes));
+                }
+                while (pipeline.getMetrics().queued() < 2) {
+                    Thread.onSpinWait();
+                }
+                long burstStart = System.nanoTime();
+                for (long id = 4; id <= 5; id++) {
+                    bookers.add(startBooking(pipeline, new Appointment(id, patient, LocalDateTime.now().plusDays(1)), outcomes));
+                }
+                for (Thread booker : bookers) {
+                    booker.join();
+                }
+                // The two queued bookings waited out their deadline; the overflow was refused at once
+                boolean boundedWait = System.nanoTime() - burstStart < TimeUnit.SECONDS.toNanos(2);
+                if (!boundedWait || pipeline.getQueueDepth(77L) != 1) {
+                    return false;
+                }
+            }
+            first.join();
+            BookingPipeline.Metrics metrics = pipeline.getMetrics();
+            return outcomes.size() == 4
+                    && outcomes.stream().allMatch(e -> e instanceof BookingRejectedException)
+                    && metrics.admitted() == 1 && metrics.completed() == 1
+                    && metrics.rejectedQueueFull() == 2 && metrics.rejectedDeadline() == 2
+                    && metrics.queued() == 0 && metrics.running() == 0
+                    && pipeline.getQueueDepth(77L) == 0
+                    && appointments.getAllAppointments().size() == 1;
+        }, verbose);
+
+        // Test 16: Doctor Appointments Follow the Patient Index into the Archive
+        test("Doctor Appointments Follow the Patient Index into the Archive", () -> {
+            DoctorService doctors = new DoctorService();
+            addCheckpointDoctors(doctors);
+            Doctor smith = doctors.findById(1L).orElseThrow();
+            Doctor jones = doctors.findById(2L).orElseThrow();
+            PatientService patients = new PatientService();
+            patients.addPatient(createSamplePatient(1L, "Index Patient One", 40, "9123456785"));
+            patients.addPatient(createSamplePatient(2L, "Index Patient Two", 50, "9123456786"));
+            patients.assignDoctorToPatient(1L, smith);
+            patients.assignDoctorToPatient(2L, jones);
+            AppointmentService service = new AppointmentService();
+            service.setPatientService(patients);
+            service.setArchive(AppointmentArchive.open(Files.createTempDirectory("meditrack-doctor-archive"),
+                    id -> patients.findById(id).orElse(null)));
+
+            LocalDateTime base = LocalDateTime.now().plusDays(1);
+            service.bookAppointment(new Appointment(1L, patients.findById(1L).orElseThrow(), base));
+            service.bookAppointment(new Appointment(2L, patients.findById(2L).orElseThrow(), base.plusHours(1)));
+            service.bookAppointment(new Appointment(3L, patients.findById(1L).orElseThrow(), base.plusHours(2)));
+            service.cancelAppointment(1L);
+            int archived = service.archiveClosedAppointments(base.plusYears(1));
+            boolean withHistory = service.getAppointmentsByDoctor(smith).stream().map(Appointment::getId)
+                    .toList().equals(List.of(1L, 3L));
+
+            // Reassigning the patient moves past and upcoming appointments with them, although
+            // the booked appointments still hold the patient as it was
+            patients.assignDoctorToPatient(1L, jones);
+            List<Appointment> schedule = service.getDoctorSchedule(2L);
+            return archived == 1 && withHistory
+                    && service.getAppointmentsByDoctor(smith).isEmpty()
+                    && service.getAppointmentsByDoctor(jones).stream().map(Appointment::getId)
+                            .toList().equals(List.of(1L, 2L, 3L))
+                    && schedule.size() == 2 && schedule.get(0).getId() == 2L && schedule.get(1).getId() == 3L
+                    && service.hasConflictingAppointment(jones, base.plusHours(2), 30)
+                    && !service.hasConflictingAppointment(smith, base.plusHours(2), 30);
+        }, verbose);
+
+        // Test 17: Name, Predicate and Date Queries Include the Archive
+        test("Name, Predicate and Date Queries Include the Archive", () -> {
+            Patient patient = patientService.findById(1L).orElseThrow();
+            AppointmentService service = new AppointmentService();
+            service.setArchive(AppointmentArchive.open(Files.createTempDirectory("meditrack-archive-queries"),
+                    id -> patientService.findById(id).orElse(null)));
+            LocalDateTime old = LocalDateTime.now().minusYears(1);
+            Appointment done = new Appointment(200L, patient, old);
+            done.setStatus(AppointmentStatus.COMPLETED);
+            service.restoreAppointment(done);
+            service.restoreAppointment(new Appointment(201L, patient, LocalDateTime.now().plusDays(3)));
+            service.archiveClosedAppointments(LocalDateTime.now());
+
+            String name = patient.getPerson().getName();
+            Map<LocalDate, List<Appointment>> byDate = service.groupAppointmentsByDate();
+            Page<Appointment> completed = service.findAppointmentsByPredicate(
+                    a -> a.getStatus() == AppointmentStatus.COMPLETED, 0, 5);
+            // Whole-store listings stay on the working set, which is what checkpoints copy
+            return service.findInWorkingSet(200L).isEmpty()
+                    && service.findByName(name).size() == 2 && service.findByName(name, 0, 5).size() == 2
+                    && service.findAppointmentsByPredicate(a -> a.getId() == 200L).size() == 1
+                    && completed.size() == 1 && completed.getItems().get(0).getId() == 200L
+                    && byDate.get(old.toLocalDate()).get(0).getId() == 200L && byDate.size() == 2
+                    && service.getAllAppointments().size() == 1 && service.getAppointments(0, 5).size() == 1;
+        }, verbose);
     }
 
     /**
@@ -407,10 +1049,597 @@ public class TestRunner {
             Map<BillStatus, List<Bill>> grouped = billService.groupBillsByStatus();
             return !grouped.isEmpty();
         }, verbose);
+        
+        // Test 11: Export and Import Binary Entity Files
+        test("Export and Import Binary Entity Files", () -> {
+            Path dir = Files.createTempDirectory("meditrack-binary");
+            BinaryDataStore store = new BinaryDataStore(dir);
+            store.exportAll(doctorService, patientService, appointmentService, billService);
+
+            DoctorService doctors = new DoctorService();
+            PatientService patients = new PatientService();
+            AppointmentService appointments = new AppointmentService();
+            BillService bills = new BillService();
+            store.importAll(doctors, patients, appointments, bills);
+
+            Optional<Bill> paid = bills.findById(1L);
+            try (MappedEntityReader<Patient> reader = MappedEntityReader.open(
+                    dir.resolve(BinaryDataStore.PATIENT_FILE), EntityLayouts.patient(id -> null))) {
+                return bills.getAllBills().size() == billService.getAllBills().size()
+                        && paid.isPresent() && paid.get().getStatus() == BillStatus.PAID
+                        && paid.get().getAppointment() != null
+                        && reader.findById(2L).map(p -> p.getPerson().getName()).orElse("").equals("Jane Smith")
+                        && reader.findById(404L).isEmpty();
+            }
+        }, verbose);
+
+        // Test 12: Write Invoice Files
+        test("Write Invoice Files", () -> {
+            Path dir = Files.createTempDirectory("meditrack-invoices");
+            List<Bill> bills = new ArrayList<>(billService.getAllBills());
+            Bill first = bills.get(0);
+            for (int i = 0; i < 600; i++) {
+                Bill copy = new Bill(1000L + i, first.getAppointment(), 100 + i);
+                copy.setNotes(i == 7 ? "Follow-up in 2 weeks, café visit" : null);
+                bills.add(copy);
+            }
+            try (InvoiceRenderer renderer = new InvoiceRenderer(dir, InvoiceTemplate.defaultTemplate(), 3)) {
+                InvoiceRenderer.RenderReport report = renderer.renderAll(bills);
+                String invoice = Files.readString(dir.resolve("invoice-1007.txt"));
+                try (var files = Files.list(dir)) {
+                    return report.invoices() == bills.size() && report.failed() == 0
+                            && files.count() == bills.size()
+                            && invoice.contains("Invoice #:        1007")
+                            && invoice.contains("TOTAL:            112.35")
+                            && invoice.contains("café visit")
+                            && invoice.contains(first.getAppointment().getPatient().getPerson().getName());
+                }
+            }
+        }, verbose);
+
+        // Test 13: Snapshot Statistics During Live Writes
+        test("Snapshot Statistics During Live Writes", () -> {
+            Appointment apt = appointmentService.getAllAppointments().get(0);
+            EntityStore<Bill> store = new EntityStore<>(Bill::getId, Bill::new);
+            Bill live = new Bill(1L, apt, 100.0);
+            store.insert(live);
+            store.insert(new Bill(2L, apt, 200.0));
+            boolean pinnedView;
+            boolean newView;
+            try (EntityStore.Snapshot<Bill> snapshot = store.openSnapshot()) {
+                Bill paid = new Bill(live);
+                paid.setStatus(BillStatus.PAID);
+                store.replace(1L, paid);
+                store.remove(2L);
+                store.insert(new Bill(3L, apt, 300.0));
+                List<Bill> seen = snapshot.list();
+                pinnedView = seen.size() == 2 && seen.get(0).getStatus() == BillStatus.PENDING
+                        && seen.get(1).getId() == 2L && store.getRetainedCount() == 2
+                        && store.snapshot().size() == 2;
+                try (EntityStore.Snapshot<Bill> later = store.openSnapshot()) {
+                    newView = later.list().get(0).isPaid() && later.getVersion() > snapshot.getVersion();
+                }
+            }
+            boolean reclaimed = store.getRetainedCount() == 0;
+
+            // Four passes over the same version always add up, however many bills land meanwhile
+            BillService bills = new BillService();
+            Thread writer = Thread.startVirtualThread(() -> {
+                for (long id = 1; id <= 20_000; id++) {
+                    bills.createBill(new Bill(id, apt, 10.0 + id % 7));
+                }
+            });
+            boolean consistent = true;
+            while (writer.isAlive()) {
+                Map<String, Double> stats = bills.getBillStatistics();
+                consistent &= Math.abs(stats.get("total") - stats.get("paid") - stats.get("pending")) < 1e-6;
+            }
+            return pinnedView && newView && reclaimed && consistent;
+        }, verbose);
+
+        // Test 14: Sharded Services with Scatter-Gather Reports
+        test("Sharded Services with Scatter-Gather Reports", () -> {
+            ShardedAppointmentService appointments = new ShardedAppointmentService(4);
+            ShardedBillService bills = new ShardedBillService(4);
+            List<Patient> patients = new ArrayList<>();
+            for (long id = 1; id <= 8; id++) {
+                Patient patient = createSamplePatient(900L + id, "Shard Patient " + id, 30, "9876543210");
+                patient.setAssignedDoctors(createSampleDoctor(900L + id % 4, "Dr. Shard", 5, Specialization.CARDIOLOGY));
+                patients.add(patient);
+            }
+
+            // Each writer books and bills for its own patients; different doctors lock different shards
+            LocalDateTime base = LocalDateTime.now().plusDays(1);
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                int writer = w;
+                writers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            long id = writer * 50L + i + 1;
+                            Appointment apt = new Appointment(id, patients.get((int) (id % 8)), base.plusMinutes(id));
+                            appointments.bookAppointment(apt);
+                            bills.createBill(new Bill(id, apt, 100.0 + id));
+                        }
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            boolean duplicateRejected = false;
+            try {
+                appointments.bookAppointment(new Appointment(1L, patients.get(2), base));
+            } catch (InvalidDataException e) {
+                duplicateRejected = true;
+            }
+            appointments.cancelAppointment(7L);
+            bills.payBill(200L);
+            bills.payBill(3L);
+
+            Map<String, Long> stats = appointments.getAppointmentStatistics();
+            Map<String, Double> billStats = bills.getBillStatistics();
+            List<Bill> top = bills.getTopUnpaidBills(3);
+            List<Appointment> upcoming = appointments.getUpcomingAppointments(2);
+            return failures.isEmpty() && duplicateRejected
+                    && appointments.findById(1L).map(a -> a.getPatient().getId() == 902L).orElse(false)
+                    && stats.get("total") == 200 && stats.get("canceled") == 1
+                    && appointments.countAppointmentsByStatus().get(AppointmentStatus.SCHEDULED) == 199
+                    && appointments.groupAppointmentsByDate().values().stream().mapToInt(List::size).sum() == 200
+                    && upcoming.size() == 2 && upcoming.get(0).getId() == 1L && upcoming.get(1).getId() == 2L
+                    && bills.isBillPaid(200L) && billStats.get("paid") == 300.0 + 103.0
+                    && Math.abs(billStats.get("total") - (200 * 100.0 + 200 * 201 / 2.0)) < 1e-6
+                    && top.size() == 3 && top.get(0).getId() == 199L && top.get(2).getId() == 197L
+                    && bills.groupBillsByStatus().get(BillStatus.PENDING).size() == 198;
+        }, verbose);
+
+        // Test 15: Writes Without an Open Snapshot Keep No Versions
+        test("Writes Without an Open Snapshot Keep No Versions", () -> {
+            Appointment apt = appointmentService.getAllAppointments().get(0);
+            EntityStore<Bill> store = new EntityStore<>(Bill::getId, Bill::new);
+            for (long id = 1; id <= 100; id++) {
+                store.insert(new Bill(id, apt, 10.0 * id));
+            }
+            for (long id = 1; id <= 100; id += 2) {
+                Bill paid = new Bill(store.get(id));
+                paid.setStatus(BillStatus.PAID);
+                store.replace(id, paid);
+            }
+            store.remove(100L);
+            boolean nothingKept = store.getRetainedCount() == 0;
+
+            // With nothing pinned the live bills are the only versions, so a snapshot shares them
+            Bill first = store.get(1L);
+            boolean shared;
+            boolean isolated;
+            try (EntityStore.Snapshot<Bill> snapshot = store.openSnapshot()) {
+                shared = snapshot.list().get(0) == first && snapshot.list().size() == 99;
+                Bill pending = new Bill(first);
+                pending.setStatus(BillStatus.PENDING);
+                store.replace(1L, pending);
+                isolated = snapshot.list().get(0).isPaid() && store.getRetainedCount() == 1;
+            }
+            store.replace(2L, new Bill(store.get(2L)));
+            return nothingKept && shared && isolated && store.getRetainedCount() == 0
+                    && !store.get(1L).isPaid();
+        }, verbose);
+    }
+
+    /**
+     * Tests durable storage: checkpoints, deltas and compaction, log segments, recovery
+     * from the write-ahead log and log shipping to a follower.
+     * 
+     * @param verbose Enable detailed output for each test
+     */
+    private static void testPersistenceFunctionality(boolean verbose) {
+        System.out.println("\n💾 Testing Persistence Functionality");
+        System.out.println("-".repeat(60));
+        
+        // Test 1: Checkpoint Delta Survives Reopen
+        test("Checkpoint Delta Survives Reopen", () -> {
+            Path dir = Files.createTempDirectory("meditrack-delta");
+            DoctorService doctors = new DoctorService();
+            try (DurableStore durable = DurableStore.open(dir, doctors, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                addCheckpointDoctors(doctors);
+                durable.snapshot();
+                doctors.addDoctor(createSampleDoctor(4L, "Dr. Delta", 4, Specialization.NEUROLOGY));
+                doctors.updateDoctor(1L, createSampleDoctor(1L, "Dr. Delta Updated", 12, Specialization.CARDIOLOGY));
+                Optional<Path> delta = durable.checkpoint();
+                if (delta.isEmpty() || !delta.get().getFileName().toString().startsWith("delta-")
+                        || durable.getLastCheckpointRecords() != 2 || durable.getDeltasSinceBase() != 1) {
+                    return false;
+                }
+            }
+            // Without the log, the doctors can only come back from the snapshot plus the delta
+            deleteLog(dir);
+            DoctorService reopened = new DoctorService();
+            try (DurableStore durable = DurableStore.open(dir, reopened, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                return durable.getDeltasSinceBase() == 1 && reopened.getAllDoctors().size() == 4
+                        && reopened.findById(4L).isPresent()
+                        && reopened.findById(1L).map(d -> d.getExperience() == 12).orElse(false);
+            }
+        }, verbose);
+
+        // Test 2: Checkpoint Delta Records Removals
+        test("Checkpoint Delta Records Removals", () -> {
+            Path dir = Files.createTempDirectory("meditrack-delta-remove");
+            DoctorService doctors = new DoctorService();
+            try (DurableStore durable = DurableStore.open(dir, doctors, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                addCheckpointDoctors(doctors);
+                durable.snapshot();
+                doctors.removeDoctor(2L);
+                if (durable.checkpoint().isEmpty() || durable.getLastCheckpointRecords() != 1) {
+                    return false;
+                }
+            }
+            deleteLog(dir);
+            DoctorService reopened = new DoctorService();
+            try (DurableStore durable = DurableStore.open(dir, reopened, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                return durable.getReplayedRecords() == 0 && reopened.getAllDoctors().size() == 2 && reopened.findById(2L).isEmpty()
+                        && reopened.findById(1L).isPresent() && reopened.findById(3L).isPresent();
+            }
+        }, verbose);
+
+        // Test 3: Checkpoint Compacts Superseded Deltas
+        test("Checkpoint Compacts Superseded Deltas", () -> {
+            // Many small deltas over a large base: the delta count triggers compaction
+            Path dir = Files.createTempDirectory("meditrack-compact");
+            SnapshotStore files = new SnapshotStore(dir.resolve(DurableStore.SNAPSHOT_DIR));
+            boolean byCount;
+            DoctorService doctors = new DoctorService();
+            try (DurableStore durable = DurableStore.open(dir, doctors, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                addCheckpointDoctors(doctors);
+                for (long id = 10; id < 210; id++) {
+                    doctors.addDoctor(createSampleDoctor(id, "Dr. Base " + id, 5, Specialization.ORTHOPEDICS));
+                }
+                durable.snapshot();
+                for (int i = 1; i <= 16; i++) {
+                    doctors.updateDoctor(1L, createSampleDoctor(1L, "Dr. Smith", 10 + i, Specialization.CARDIOLOGY));
+                    durable.checkpoint();
+                }
+                int deltasBefore = files.deltasAfter(0).size();
+                doctors.updateDoctor(1L, createSampleDoctor(1L, "Dr. Smith", 40, Specialization.CARDIOLOGY));
+                Optional<Path> compacted = durable.checkpoint();
+                byCount = deltasBefore == 16 && compacted.isPresent()
+                        && compacted.get().getFileName().toString().startsWith("snapshot-")
+                        && durable.getDeltasSinceBase() == 0 && files.deltasAfter(0).isEmpty();
+            }
+
+            // A delta larger than half the base triggers compaction on the next checkpoint
+            Path small = Files.createTempDirectory("meditrack-compact-bytes");
+            SnapshotStore smallFiles = new SnapshotStore(small.resolve(DurableStore.SNAPSHOT_DIR));
+            DoctorService smallDoctors = new DoctorService();
+            try (DurableStore durable = DurableStore.open(small, smallDoctors, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                addCheckpointDoctors(smallDoctors);
+                durable.snapshot();
+                smallDoctors.updateDoctor(1L, createSampleDoctor(1L, "Dr. Smith", 20, Specialization.CARDIOLOGY));
+                smallDoctors.updateDoctor(2L, createSampleDoctor(2L, "Dr. Jones", 20, Specialization.NEUROLOGY));
+                smallDoctors.updateDoctor(3L, createSampleDoctor(3L, "Dr. Brown", 20, Specialization.PEDIATRICS));
+                boolean wroteDelta = durable.checkpoint().map(p -> p.getFileName().toString().startsWith("delta-"))
+                        .orElse(false);
+                smallDoctors.removeDoctor(3L);
+                Optional<Path> compacted = durable.checkpoint();
+                return byCount && wroteDelta && compacted.isPresent()
+                        && compacted.get().getFileName().toString().startsWith("snapshot-")
+                        && durable.getDeltasSinceBase() == 0 && smallFiles.deltasAfter(0).isEmpty();
+            }
+        }, verbose);
+
+        // Test 4: Checkpoint Skips When Nothing New Is Durable
+        test("Checkpoint Skips When Nothing New Is Durable", () -> {
+            Path dir = Files.createTempDirectory("meditrack-checkpoint-idle");
+            DoctorService doctors = new DoctorService();
+            try (DurableStore durable = DurableStore.open(dir, doctors, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                boolean emptyStore = durable.checkpoint().isEmpty();
+                addCheckpointDoctors(doctors);
+                durable.snapshot();
+                boolean afterSnapshot = durable.checkpoint().isEmpty();
+                // Reads and a removal of an unknown id log nothing, so there is still nothing to checkpoint
+                doctors.getAllDoctors();
+                doctors.removeDoctor(99L);
+                boolean afterNoOp = durable.checkpoint().isEmpty()
+                        && durable.getDeltasSinceBase() == 0
+                        && new SnapshotStore(dir.resolve(DurableStore.SNAPSHOT_DIR)).deltasAfter(0).isEmpty();
+                return emptyStore && afterSnapshot && afterNoOp;
+            }
+        }, verbose);
+
+        // Test 5: Checkpoint Deletes the Log Segments It Covers
+        test("Checkpoint Deletes the Log Segments It Covers", () -> {
+            Path dir = Files.createTempDirectory("meditrack-log-release");
+            DoctorService doctors = new DoctorService();
+            try (DurableStore durable = DurableStore.open(dir, doctors, new PatientService(),
+                    new AppointmentService(), new BillService())) {
+                for (long id = 10; id < 110; id++) {
+                    doctors.addDoctor(createSampleDoctor(id, "Dr. Logged " + id, 5, Specialization.ORTHOPEDICS));
+                }
+                long before = logBytes(durable);
+                durable.snapshot();
+                boolean shrank = logBytes(durable) < before && durable.getLog().getSegments().size() == 1;
+
+                // A follower that has not read the newest records keeps their segment alive
+                boolean kept;
+                boolean released;
+                try (LogFollower follower = LogFollower.open(dir, new DoctorService(), new PatientService(),
+                        new AppointmentService(), new BillService())) {
+                    doctors.updateDoctor(10L, createSampleDoctor(10L, "Dr. Logged 10", 9, Specialization.ORTHOPEDICS));
+                    durable.snapshot();
+                    kept = durable.getLog().getSegments().size() == 2;
+                    released = follower.poll() == 1 && durable.snapshot() != null
+                            && durable.getLog().getSegments().size() == 1;
+                }
+                return shrank && kept && released;
+            }
+        }, verbose);
+
+        // Test 6: Replay Skips Only Dangling References
+        test("Replay Skips Only Dangling References", () -> {
+            // A booking whose patient is gone is the one record recovery may pass over
+            Path dir = Files.createTempDirectory("meditrack-replay-skip");
+            Patient gone = createSamplePatient(77L, "Removed Patient", 40, "9123456784");
+            try (WriteAheadLog log = new WriteAheadLog(dir.resolve(DurableStore.LOG_DIR))) {
+                log.append(LogRecordType.DOCTOR_ADDED,
+                        out -> EntityCodec.writeDoctor(out, createSampleDoctor(1L, "Dr. Replay", 5, Specialization.CARDIOLOGY)));
+                log.append(LogRecordType.APPOINTMENT_BOOKED,
+                        out -> EntityCodec.writeAppointment(out, new Appointment(1L, gone, LocalDateTime.now().plusDays(1))));
+            }
+            AppointmentService appointments = new AppointmentService();
+            boolean skipped;
+            try (DurableStore durable = DurableStore.open(dir, new DoctorService(), new PatientService(),
+                    appointments, new BillService())) {
+                skipped = durable.getReplayedRecords() == 1 && durable.getSkippedRecords() == 1
+                        && appointments.findById(1L).isEmpty();
+            }
+
+            // A record that cannot be decoded fails recovery instead of being counted
+            Path broken = Files.createTempDirectory("meditrack-replay-fail");
+            try (WriteAheadLog log = new WriteAheadLog(broken.resolve(DurableStore.LOG_DIR))) {
+                log.append(LogRecordType.DOCTOR_REMOVED, out -> { });
+            }
+            try {
+                DurableStore.open(broken, new DoctorService(), new PatientService(),
+                        new AppointmentService(), new BillService()).close();
+                return false;
+            } catch (IllegalStateException e) {
+                return skipped && e.getMessage().contains("DOCTOR_REMOVED");
+            }
+        }, verbose);
+
+        // Test 7: JSON Load Survives a Durable Restart
+        test("JSON Load Survives a Durable Restart", () -> {
+            Path dir = Files.createTempDirectory("meditrack-json-durable");
+            JsonDataStore store = new JsonDataStore(dir.resolve("doctors.json"),
+                    dir.resolve("patients.json"), dir.resolve("appointments.json"));
+            DoctorService sourceDoctors = new DoctorService();
+            addCheckpointDoctors(sourceDoctors);
+            store.saveDoctors(sourceDoctors.getAllDoctors());
+            store.savePatients(List.of(createSamplePatient(1L, "Json Patient One", 30, "9123456787"),
+                    createSamplePatient(2L, "Json Patient Two", 40, "9123456788"),
+                    createSamplePatient(3L, "Json Patient Three", 50, "9123456789")));
+
+            Path dataDir = dir.resolve("data");
+            DoctorService doctors = new DoctorService();
+            PatientService patients = new PatientService();
+            try (DurableStore durable = DurableStore.open(dataDir, doctors, patients,
+                    new AppointmentService(), new BillService())) {
+                // Same steps as menu option 12 in durable mode
+                store.loadDoctors(doctors);
+                store.loadPatients(patients, doctors);
+                durable.snapshot();
+                patients.addPatient(createSamplePatient(950L, "Logged After Load", 50, "9123456783"));
+            }
+
+            DoctorService reopenedDoctors = new DoctorService();
+            PatientService reopenedPatients = new PatientService();
+            try (DurableStore durable = DurableStore.open(dataDir, reopenedDoctors, reopenedPatients,
+                    new AppointmentService(), new BillService())) {
+                // Only the patient added after the snapshot comes from the log
+                return durable.getReplayedRecords() == 1
+                        && reopenedDoctors.getAllDoctors().size() == 3
+                        && reopenedPatients.getAllPatients().size() == 4
+                        && reopenedPatients.findByMedicalRecordNumber("MRN3").isPresent()
+                        && reopenedPatients.findById(950L).isPresent();
+            }
+        }, verbose);
+
+        // Test 8: Replicate to a Follower Process through the Shared Log
+        test("Replicate to a Follower Process through the Shared Log", () -> {
+            Path dir = Files.createTempDirectory("meditrack-replica");
+            DoctorService doctors = new DoctorService();
+            PatientService patients = new PatientService();
+            AppointmentService appointments = new AppointmentService();
+            BillService bills = new BillService();
+            try (DurableStore primary = DurableStore.open(dir, doctors, patients, appointments, bills)) {
+                doctors.addDoctor(createSampleDoctor(1L, "Dr. Primary", 10, Specialization.CARDIOLOGY));
+                patients.addPatient(createSamplePatient(1L, "Replica Patient", 40, "9123456780"));
+                patients.assignDoctorToPatient(1L, doctors.findById(1L).orElseThrow());
+                Patient patient = patients.findById(1L).orElseThrow();
+                appointments.bookAppointment(new Appointment(1L, patient, LocalDateTime.now().plusDays(1)));
+                primary.checkpoint();
+                bills.createBill(new Bill(1L, appointments.findById(1L).orElseThrow(), 500.0));
+
+                // In-process follower: loads the checkpoint, applies the log tail, then trails the primary
+                AppointmentService replicaAppointments = new AppointmentService();
+                BillService replicaBills = new BillService();
+                boolean bootstrapped;
+                boolean behind;
+                boolean caughtUp;
+                try (LogFollower follower = LogFollower.open(dir, new DoctorService(), new PatientService(),
+                        replicaAppointments, replicaBills)) {
+                    bootstrapped = replicaAppointments.findById(1L).isPresent()
+                            && replicaBills.findById(1L).isPresent() && follower.getLag().lagBytes() == 0;
+                    bills.payBill(1L);
+                    appointments.cancelAppointment(1L);
+                    behind = follower.getLag().lagBytes() > 0 && !replicaBills.isBillPaid(1L);
+                    // Reports on the replica must see the shipped changes, not just the live entities
+                    Map<String, Double> replicaBillStats;
+                    Map<String, Long> replicaAppointmentStats;
+                    caughtUp = follower.poll() == 2 && follower.getLag().lagBytes() == 0
+                            && (replicaBillStats = replicaBills.getBillStatistics()).get("paid") == 500.0
+                            && replicaBillStats.get("pending") == 0.0
+                            && (replicaAppointmentStats = replicaAppointments.getAppointmentStatistics()).get("canceled") == 1
+                            && replicaAppointmentStats.get("scheduled") == 0;
+                }
+
+                // A second JVM serves the same directory as a read-only replica
+                Process replica = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-cp", System.getProperty("java.class.path"), "com.airtribe.meditrack.Main",
+                        "--follow", dir.toString(), "--serve", "0")
+                        .redirectError(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                try {
+                    String port = null;
+                    BufferedReader out = new BufferedReader(new InputStreamReader(replica.getInputStream(), StandardCharsets.UTF_8));
+                    for (String line; port == null && (line = out.readLine()) != null; ) {
+                        int at = line.indexOf("http://localhost:");
+                        if (at >= 0) {
+                            port = line.substring(at + "http://localhost:".length(), line.indexOf("/api/"));
+                        }
+                    }
+                    String base = "http://127.0.0.1:" + port + "/api/";
+                    appointments.bookAppointment(new Appointment(2L, patient, LocalDateTime.now().plusDays(2)));
+
+                    HttpClient client = HttpClient.newHttpClient();
+                    HttpResponse<String> shipped;
+                    long deadline = System.currentTimeMillis() + 10_000;
+                    do {
+                        shipped = client.send(HttpRequest.newBuilder(URI.create(base + "appointments/2")).build(),
+                                HttpResponse.BodyHandlers.ofString());
+                    } while (shipped.statusCode() != 200 && System.currentTimeMillis() < deadline);
+                    HttpResponse<String> stats = client.send(HttpRequest.newBuilder(URI.create(base + "stats")).build(),
+                            HttpResponse.BodyHandlers.ofString());
+                    HttpResponse<String> write = client.send(HttpRequest.newBuilder(URI.create(base + "bills/1/pay"))
+                            .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+
+                    String body = stats.body();
+                    String appointmentStats = body.substring(body.indexOf("\"appointments\":"), body.indexOf("\"bills\":"));
+                    String billStats = body.substring(body.indexOf("\"bills\":"), body.indexOf("\"coalescing\":"));
+                    return bootstrapped && behind && caughtUp
+                            && shipped.statusCode() == 200
+                            && appointmentStats.contains("\"canceled\":1") && appointmentStats.contains("\"scheduled\":1")
+                            && billStats.contains("\"paid\":500.0") && billStats.contains("\"pending\":0.0")
+                            && body.contains("\"replication\"") && body.contains("\"primaryLsn\"")
+                            && write.statusCode() == 405 && bills.isBillPaid(1L);
+                } finally {
+                    replica.destroy();
+                    replica.waitFor();
+                }
+            }
+        }, verbose);
+
+        // Test 9: Recovered Log Replay Matches Statistics
+        test("Recovered Log Replay Matches Statistics", () -> {
+            Path dir = Files.createTempDirectory("meditrack-recovery");
+            Doctor recoveryDoctor = createSampleDoctor(1L, "Dr. Recovery", 10, Specialization.CARDIOLOGY);
+            DoctorService doctors = new DoctorService();
+            PatientService patients = new PatientService();
+            AppointmentService appointments = new AppointmentService();
+            BillService bills = new BillService();
+            DurableStore durable = DurableStore.open(dir, doctors, patients, appointments, bills);
+            try {
+                doctors.addDoctor(recoveryDoctor);
+                patients.addPatient(createSamplePatient(1L, "Recovered Patient", 40, "9123456781"));
+                patients.assignDoctorToPatient(1L, recoveryDoctor);
+                Patient patient = patients.findById(1L).orElseThrow();
+                appointments.bookAppointment(new Appointment(1L, patient, LocalDateTime.now().plusDays(1)));
+                appointments.bookAppointment(new Appointment(2L, patient, LocalDateTime.now().plusDays(2)));
+                appointments.cancelAppointment(1L);
+                bills.createBill(new Bill(1L, appointments.findById(2L).orElseThrow(), 100.0));
+                bills.payBill(1L);
+            } finally {
+                durable.close();
+            }
+
+            // No checkpoint was taken, so everything comes back from the log alone
+            PatientService recoveredPatients = new PatientService();
+            AppointmentService recoveredAppointments = new AppointmentService();
+            BillService recoveredBills = new BillService();
+            try (DurableStore recovered = DurableStore.open(dir, new DoctorService(), recoveredPatients,
+                    recoveredAppointments, recoveredBills)) {
+                Map<String, Long> appointmentStats = recoveredAppointments.getAppointmentStatistics();
+                Map<String, Double> billStats = recoveredBills.getBillStatistics();
+                return recovered.getReplayedRecords() == 8 && appointmentStats.get("canceled") == 1 && appointmentStats.get("scheduled") == 1
+                        && billStats.get("paid") == 100.0 && billStats.get("pending") == 0.0
+                        && recoveredAppointments.findRevisionedById(1L).map(r -> r.revision() == 2).orElse(false)
+                        && recoveredPatients.findRevisionedById(1L).map(r -> r.revision() == 2).orElse(false);
+            }
+        }, verbose);
+
+        // Test 10: Concurrent Bookings Share Log Syncs
+        test("Concurrent Bookings Share Log Syncs", () -> {
+            Path logDir = Files.createTempDirectory("meditrack-group-commit");
+            Doctor groupDoctor = createSampleDoctor(1L, "Dr. Group", 10, Specialization.CARDIOLOGY);
+            Patient patient = createSamplePatient(1L, "Group Patient", 30, "9123456782");
+            patient.setAssignedDoctors(groupDoctor);
+            AppointmentService shared = new AppointmentService();
+            int threads = 16, perThread = 100;
+            try (WriteAheadLog log = new WriteAheadLog(logDir)) {
+                shared.setMutationLog(log);
+                List<Thread> writers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long base = 1_000L * (t + 1);
+                    writers.add(Thread.ofPlatform().start(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            shared.bookAppointment(new Appointment(base + i, patient, LocalDateTime.now().plusDays(1)));
+                        }
+                    }));
+                }
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+                // Every booking returned durable, but the service lock did not force one fsync each
+                return log.getRecordCount() == threads * perThread
+                        && log.getDurableLsn() == WriteAheadLog.endOf(logDir)
+                        && log.getSyncCount() < log.getRecordCount();
+            } finally {
+                for (Path segment : WriteAheadLog.segments(logDir)) {
+                    Files.delete(segment);
+                }
+                Files.delete(logDir);
+            }
+        }, verbose);
     }
 
     // Helper Methods
 
+    /**
+     * Books on a new platform thread (a virtual thread blocked on a monitor would pin its
+     * carrier); a failure is added to {@code failures}.
+     */
+    private static Thread startBooking(BookingPipeline pipeline, Appointment appointment, List<Throwable> failures) {
+        return Thread.ofPlatform().start(() -> {
+            try {
+                pipeline.book(appointment);
+            } catch (RuntimeException e) {
+                failures.add(e);
+            }
+        });
+    }
+
+    /**
+     * Blocks until the latch opens; used to hold a lookup in flight while others pile up.
+     *
+     * @param latch Latch released by the test
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Creates a sample doctor for testing purposes.
      * 
@@ -440,6 +1669,32 @@ public class TestRunner {
         return new Patient(id, person, "MRN" + id);
     }
 
+    /**
+     * Adds the three doctors the checkpoint tests start from.
+     *
+     * @param doctors Service attached to the durable store under test
+     */
+    private static void addCheckpointDoctors(DoctorService doctors) {
+        doctors.addDoctor(createSampleDoctor(1L, "Dr. Smith", 10, Specialization.CARDIOLOGY));
+        doctors.addDoctor(createSampleDoctor(2L, "Dr. Jones", 8, Specialization.NEUROLOGY));
+        doctors.addDoctor(createSampleDoctor(3L, "Dr. Brown", 6, Specialization.PEDIATRICS));
+    }
+
+    /** Deletes every log segment of the durable store in {@code dir}, keeping its checkpoints. */
+    private static void deleteLog(Path dir) throws IOException {
+        for (Path segment : WriteAheadLog.segments(dir.resolve(DurableStore.LOG_DIR))) {
+            Files.delete(segment);
+        }
+    }
+
+    private static long logBytes(DurableStore durable) throws IOException {
+        long bytes = 0;
+        for (Path segment : durable.getLog().getSegments()) {
+            bytes += Files.size(segment);
+        }
+        return bytes;
+    }
+
     /**
      * Executes a single test case with exception handling and result tracking.
      * 
@@ -509,7 +1764,7 @@ public class TestRunner {
         System.out.println("Usage: java com.airtribe.meditrack.test.TestRunner [options]");
         System.out.println("\nOptions:");
         System.out.println("  --test=<suite>    Specify test suite to run");
-        System.out.println("                    Options: all, doctors, patients, appointments, bills");
+        System.out.println("                    Options: all, doctors, patients, appointments, bills, persistence");
         System.out.println("                    Default: all");
         System.out.println("  --verbose, -v     Enable verbose output");
         System.out.println("  --help, -h        Show this help message");